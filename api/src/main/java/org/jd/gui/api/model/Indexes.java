@@ -61,6 +61,11 @@ import java.util.Map;
  *         key: a super type name using internal JVM internal format<br>
  *         value: a list of sub type names using internal JVM internal format
  *     </li>
+ *     <li>
+ *         Map "outerTypeNames"<br>
+ *         key: an inner type name using internal JVM internal format<br>
+ *         value: the name of the enclosing type using internal JVM internal format
+ *     </li>
  * </ul>
  */
 public interface Indexes {
@@ -8,6 +8,7 @@
 package org.jd.gui;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.batch.BatchDecompiler;
 import org.jd.gui.controller.MainController;
 import org.jd.gui.model.configuration.Configuration;
 import org.jd.gui.service.configuration.ConfigurationPersister;
@@ -28,8 +29,10 @@ public class App {
     protected static MainController controller;
 
     public static void main(String[] args) {
-        if (checkHelpFlag(args)) {
-            JOptionPane.showMessageDialog(null, "Usage: jd-gui [option] [input-file] ...\n\nOption:\n -h Show this help message and exit", Constants.APP_NAME, JOptionPane.INFORMATION_MESSAGE);
+        if (BatchDecompiler.isBatch(args)) {
+            System.exit(BatchDecompiler.run(args));
+        } else if (checkHelpFlag(args)) {
+            JOptionPane.showMessageDialog(null, "Usage: jd-gui [option] [input-file] ...\n\nOption:\n -h Show this help message and exit\n " + BatchDecompiler.BATCH_FLAG + " Export the sources of the input files without window, see " + BatchDecompiler.BATCH_FLAG + " -h", Constants.APP_NAME, JOptionPane.INFORMATION_MESSAGE);
         } else {
             // Load preferences
             ConfigurationPersister persister = ConfigurationPersisterService.getInstance().get();
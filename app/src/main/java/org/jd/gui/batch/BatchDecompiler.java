@@ -0,0 +1,420 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.batch;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.service.configuration.ConfigurationXmlPersisterProvider;
+import org.jd.gui.service.sourcesaver.DirectorySourceSaverProvider;
+import org.jd.gui.service.sourcesaver.ParallelSourceSaver;
+import org.jd.gui.spi.SourceSaver;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.jd.gui.util.decompiler.DecompilationCache;
+import org.jd.util.WeightedCache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_CFR;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_FERNFLOWER;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JADX;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_PROCYON;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_VINEFLOWER;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+
+/**
+ * Headless export of the sources of archives.
+ * <br>
+ * Archives are opened by the file loaders and the container factories, and their sources are exported by the source
+ * savers, like with "Save All Sources" in the main window. Class files of all the archives are decompiled by a shared
+ * pool of workers, while several archives are read and written concurrently.
+ * <br>
+ * With a report directory, the engines are compared instead: see {@link EngineComparison}.
+ */
+public class BatchDecompiler {
+    public static final String BATCH_FLAG = "--batch";
+
+    protected static final String[] ENGINES = { ENGINE_JD_CORE_V1, ENGINE_JD_CORE_V0, ENGINE_CFR, ENGINE_PROCYON, ENGINE_FERNFLOWER, ENGINE_VINEFLOWER, ENGINE_JADX };
+    protected static final String USAGE = "Usage: jd-gui " + BATCH_FLAG + " [option] input-file ...\n\n"
+            + "Options:\n"
+            + " -o <directory>    Output directory, current directory by default\n"
+            + " -d                Export into directories instead of archives\n"
+            + " -e <engine>       Decompiler engine: " + String.join(", ", ENGINES) + "\n"
+            + " -r <directory>    Compare the engines, or the engines given by -e, and write a report into the directory\n"
+            + "                   instead of exporting sources\n"
+            + " -T <seconds>      Timeout of the decompilation of a class by an engine in comparisons, 60 by default\n"
+            + " -p <file>         Preferences file, in properties format\n"
+            + " -D<key>=<value>   Preference\n"
+            + " -t <count>        Decompilation threads, number of processors by default\n"
+            + " -a <count>        Archives processed concurrently, 2 by default\n"
+            + " -s <count>        Slowest classes reported, 10 by default\n"
+            + " -h                Show this help message and exit";
+
+    protected static final int EXIT_FAILURE = 1;
+    protected static final int EXIT_USAGE = 2;
+
+    private final Options options;
+    private final PrintStream out;
+    private final Set<String> targetNames = new HashSet<>();
+
+    public BatchDecompiler(Options options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static boolean isBatch(String[] args) {
+        return args != null && args.length > 0 && BATCH_FLAG.equals(args[0]);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * @param args the arguments, with or without the batch flag
+     * @return the exit status
+     */
+    public static int run(String[] args) {
+        Options options;
+
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        if (options.help) {
+            System.out.println(USAGE);
+            return 0;
+        }
+
+        // Source savers may create Swing components, never displayed
+        System.setProperty("java.awt.headless", "true");
+
+        if (options.reportDirectory != null) {
+            return new BatchDecompiler(options, System.out).compare() ? 0 : EXIT_FAILURE;
+        }
+        return new BatchDecompiler(options, System.out).run() ? 0 : EXIT_FAILURE;
+    }
+
+    /**
+     * @return true if the engines have been compared on all the archives
+     */
+    public boolean compare() {
+        Map<String, String> preferences = options.preferences;
+        List<String> engineNames = options.engineNames.isEmpty() ? Arrays.asList(ENGINES) : options.engineNames;
+
+        WeightedCache.applyPreferences(preferences);
+
+        EngineComparison comparison = new EngineComparison(new HeadlessApi(preferences), engineNames, options.timeout * 1000L, out);
+
+        try {
+            EngineComparisonReport report = new EngineComparisonReport(comparison.compare(options.files));
+            report.write(options.reportDirectory);
+            out.println("Report written into " + options.reportDirectory.toAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the sources of all the archives have been exported
+     */
+    public boolean run() {
+        Map<String, String> preferences = options.preferences;
+
+        WeightedCache.applyPreferences(preferences);
+        DecompilationCache.getInstance().setDirectory(new File(ConfigurationXmlPersisterProvider.getConfigDirectory(), DecompilationCache.CACHE_DIRECTORY_NAME));
+        DecompilationCache.getInstance().applyPreferences(preferences);
+
+        HeadlessApi api = new HeadlessApi(preferences);
+        BatchStatistics statistics = new BatchStatistics(options.slowestCount);
+        ExecutorService workers = ParallelSourceSaver.newWorkers(options.threadCount);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService archives = Executors.newFixedThreadPool(options.archiveCount, r -> {
+            Thread thread = new Thread(r, "batch-archive-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        boolean success = true;
+        long start = System.nanoTime();
+
+        try {
+            Files.createDirectories(options.output);
+
+            List<Future<String>> futures = new ArrayList<>(options.files.size());
+
+            for (File file : options.files) {
+                futures.add(archives.submit(() -> export(api, file, workers, statistics)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    out.println(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    Throwable cause = e.getCause();
+                    out.println(options.files.get(i) + ": " + (cause.getMessage() != null ? cause.getMessage() : cause));
+                    success = false;
+                }
+            }
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            out.println(e.getMessage());
+            success = false;
+        } catch (InterruptedException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+            success = false;
+        } finally {
+            archives.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        statistics.print(out, System.nanoTime() - start);
+        return success;
+    }
+
+    /**
+     * @return the summary of the export
+     */
+    protected String export(HeadlessApi api, File file, ExecutorService workers, BatchStatistics statistics) throws IOException {
+        long start = System.nanoTime();
+        Container container = api.open(file);
+
+        if (container == null) {
+            throw new IOException("Unsupported file");
+        }
+
+        try {
+            Container.Entry entry = container.getRoot().getParent();
+            SourceSaver saver = api.getSourceSaver(entry);
+
+            if (!(saver instanceof DirectorySourceSaverProvider)) {
+                throw new IOException("No source saver");
+            }
+
+            Path target = options.output.resolve(newTargetName(saver.getSourcePath(entry)));
+            ArchiveStatistics archiveStatistics = new ArchiveStatistics(statistics);
+            ParallelSourceSaver parallelSaver = new ParallelSourceSaver(api, options.threadCount, workers, () -> 0, p -> {}, () -> false);
+
+            parallelSaver.setListener(archiveStatistics);
+
+            if (options.directory) {
+                parallelSaver.saveToDirectory(entry, (DirectorySourceSaverProvider) saver, target);
+            } else {
+                parallelSaver.save(entry, (DirectorySourceSaverProvider) saver, target);
+            }
+
+            return String.format("%s: %d classes, %d failures, %d timeouts in %.1f s -> %s", file, archiveStatistics.classCount.get(),
+                    archiveStatistics.failureCount.get(), archiveStatistics.timeoutCount.get(), (System.nanoTime() - start) / 1e9, target);
+        } finally {
+            if (container instanceof Closeable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                ((Closeable) container).close();
+            }
+        }
+    }
+
+    /**
+     * @return the name of the file or directory of the sources, not used by another archive of the batch
+     */
+    protected String newTargetName(String sourcePath) {
+        String name = new File(sourcePath).getName();
+        String extension = "";
+        int lastDot = name.lastIndexOf('.');
+
+        if (lastDot > 0) {
+            extension = name.substring(lastDot);
+            name = name.substring(0, lastDot);
+        }
+        if (options.directory) {
+            extension = "";
+        }
+
+        synchronized (targetNames) {
+            String targetName = name + extension;
+
+            for (int i = 2; !targetNames.add(targetName); i++) {
+                targetName = name + '-' + i + extension;
+            }
+
+            return targetName;
+        }
+    }
+
+    /**
+     * Counters of an archive, forwarding to the statistics of the batch.
+     */
+    protected static class ArchiveStatistics implements ParallelSourceSaver.Listener {
+        private final ParallelSourceSaver.Listener batchListener;
+        private final AtomicInteger classCount = new AtomicInteger();
+        private final AtomicInteger failureCount = new AtomicInteger();
+        private final AtomicInteger timeoutCount = new AtomicInteger();
+
+        public ArchiveStatistics(ParallelSourceSaver.Listener batchListener) {
+            this.batchListener = batchListener;
+        }
+
+        @Override
+        public void classSaved(Container.Entry entry, long time, boolean failed, boolean timedOut) {
+            classCount.incrementAndGet();
+            if (failed) {
+                failureCount.incrementAndGet();
+            }
+            if (timedOut) {
+                timeoutCount.incrementAndGet();
+            }
+            batchListener.classSaved(entry, time, failed, timedOut);
+        }
+    }
+
+    public static class Options {
+        private final List<File> files = new ArrayList<>();
+        private final Map<String, String> preferences = new HashMap<>();
+        private final List<String> engineNames = new ArrayList<>();
+        private Path output = Paths.get(System.getProperty("user.dir"));
+        private Path reportDirectory;
+        private int timeout = 60; // in seconds
+        private boolean directory;
+        private boolean help;
+        private int threadCount = ComputePool.getDefaultParallelism();
+        private int archiveCount = 2;
+        private int slowestCount = 10;
+
+        public static Options parse(String[] args) throws IOException {
+            Options options = new Options();
+            Map<String, String> overriddenPreferences = new HashMap<>();
+            int i = isBatch(args) ? 1 : 0;
+
+            while (i < args.length) {
+                String arg = args[i++];
+
+                if ("-h".equals(arg)) {
+                    options.help = true;
+                } else if ("-d".equals(arg)) {
+                    options.directory = true;
+                } else if ("-o".equals(arg)) {
+                    options.output = Paths.get(value(args, i++, arg));
+                } else if ("-e".equals(arg)) {
+                    options.engineNames.add(engine(value(args, i++, arg)));
+                } else if ("-r".equals(arg)) {
+                    options.reportDirectory = Paths.get(value(args, i++, arg));
+                } else if ("-T".equals(arg)) {
+                    options.timeout = count(value(args, i++, arg), arg, 1);
+                } else if ("-p".equals(arg)) {
+                    options.load(Paths.get(value(args, i++, arg)));
+                } else if ("-t".equals(arg)) {
+                    options.threadCount = count(value(args, i++, arg), arg, 1);
+                } else if ("-a".equals(arg)) {
+                    options.archiveCount = count(value(args, i++, arg), arg, 1);
+                } else if ("-s".equals(arg)) {
+                    options.slowestCount = count(value(args, i++, arg), arg, 0);
+                } else if (arg.startsWith("-D")) {
+                    int equal = arg.indexOf('=');
+                    if (equal <= 2) {
+                        throw new IllegalArgumentException("Invalid preference: " + arg);
+                    }
+                    overriddenPreferences.put(arg.substring(2, equal), arg.substring(equal + 1));
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    options.files.add(new File(arg));
+                }
+            }
+
+            // Options take precedence over the preferences file, whatever their order
+            options.preferences.putAll(overriddenPreferences);
+            if (options.reportDirectory == null && options.engineNames.size() > 1) {
+                throw new IllegalArgumentException("Several engines are only supported with -r");
+            }
+            if (options.engineNames.size() == 1) {
+                options.preferences.put(DECOMPILE_ENGINE, options.engineNames.get(0));
+            }
+            if (options.files.isEmpty() && !options.help) {
+                throw new IllegalArgumentException("No input file");
+            }
+
+            return options;
+        }
+
+        protected void load(Path path) throws IOException {
+            Properties properties = new Properties();
+
+            try (InputStream is = Files.newInputStream(path)) {
+                properties.load(is);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                preferences.put(name, properties.getProperty(name));
+            }
+        }
+
+        protected static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value of option " + option);
+            }
+            return args[index];
+        }
+
+        protected static int count(String value, String option, int min) {
+            try {
+                int count = Integer.parseInt(value);
+                if (count >= min) {
+                    return count;
+                }
+            } catch (NumberFormatException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+            throw new IllegalArgumentException("Invalid value of option " + option + ": " + value);
+        }
+
+        protected static String engine(String name) {
+            for (String engine : ENGINES) {
+                if (engine.equalsIgnoreCase(name)) {
+                    return engine;
+                }
+            }
+            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+}
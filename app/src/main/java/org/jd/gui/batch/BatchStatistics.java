@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.batch;
+
+import org.jd.gui.api.model.Container;
+import org.jd.gui.service.sourcesaver.ParallelSourceSaver;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Statistics of a batch, updated by the workers of all the archives.
+ */
+public class BatchStatistics implements ParallelSourceSaver.Listener {
+    private static final Comparator<Timing> BY_TIME = Comparator.comparingLong(t -> t.time);
+
+    private final int slowestCount;
+    // The slowest classes, fastest first
+    private final PriorityQueue<Timing> slowest = new PriorityQueue<>(BY_TIME);
+    private final List<String> failures = new ArrayList<>();
+    private final List<String> timeouts = new ArrayList<>();
+    private long classCount;
+    private long decompilationTime;
+
+    public BatchStatistics(int slowestCount) {
+        this.slowestCount = slowestCount;
+    }
+
+    @Override
+    public synchronized void classSaved(Container.Entry entry, long time, boolean failed, boolean timedOut) {
+        classCount++;
+        decompilationTime += time;
+
+        if (failed) {
+            failures.add(entry.getUri().toString());
+        }
+        if (timedOut) {
+            timeouts.add(entry.getUri().toString());
+        }
+        if (slowestCount > 0) {
+            if (slowest.size() < slowestCount) {
+                slowest.add(new Timing(entry.getUri().toString(), time));
+            } else if (slowest.peek().time < time) {
+                slowest.poll();
+                slowest.add(new Timing(entry.getUri().toString(), time));
+            }
+        }
+    }
+
+    public synchronized long getClassCount() { return classCount; }
+    public synchronized int getFailureCount() { return failures.size(); }
+    public synchronized int getTimeoutCount() { return timeouts.size(); }
+
+    /**
+     * @param elapsedTime the wall-clock time of the batch, in nanoseconds
+     */
+    public synchronized void print(PrintStream out, long elapsedTime) {
+        double seconds = elapsedTime / 1e9;
+
+        out.printf("%d classes in %.1f s: %.1f classes/s, %d failures, %d timeouts, %.1f s of decompilation%n",
+                classCount, seconds, seconds > 0 ? classCount / seconds : 0, failures.size(), timeouts.size(), decompilationTime / 1e9);
+
+        if (!slowest.isEmpty()) {
+            List<Timing> timings = new ArrayList<>(slowest);
+            timings.sort(BY_TIME.reversed());
+            out.println("Slowest classes:");
+            for (Timing timing : timings) {
+                out.printf("  %6d ms  %s%n", timing.time / 1_000_000, timing.uri);
+            }
+        }
+        if (!failures.isEmpty()) {
+            out.println("Failures:");
+            for (String failure : failures) {
+                out.println("  " + failure);
+            }
+        }
+        if (!timeouts.isEmpty()) {
+            out.println("Timeouts:");
+            for (String timeout : timeouts) {
+                out.println("  " + timeout);
+            }
+        }
+    }
+
+    protected static class Timing {
+        private final String uri;
+        private final long time;
+
+        public Timing(String uri, long time) {
+            this.uri = uri;
+            this.time = time;
+        }
+    }
+}
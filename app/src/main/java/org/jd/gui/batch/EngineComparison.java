@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.batch;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.util.container.JarContainerEntryUtil;
+import org.jd.gui.util.decompiler.ContainerLoader;
+import org.jd.gui.util.loader.LoaderUtils;
+
+import com.heliosdecompiler.transformerapi.StandardTransformers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jd.core.ClassUtil;
+import jd.core.DecompilationResult;
+
+/**
+ * Decompilation of all the classes of archives with each engine, for {@link EngineComparisonReport}.
+ * <br>
+ * Classes are decompiled one at a time, in the order of the entries, by the engines directly: neither the
+ * decompilation cache nor the JD-Core v0 fallback are used, so that runs can be repeated and compared. Inner classes
+ * are decompiled with their outer class. A decompilation exceeding the timeout is abandoned, not interrupted: the
+ * readers of containers may share channels. Its thread is replaced, and may slow down the next measures until it ends.
+ */
+public class EngineComparison {
+    private final HeadlessApi api;
+    private final List<String> engineNames;
+    private final long timeout; // in milliseconds
+    private final PrintStream out;
+    private final ThreadLocal<ContainerLoader> loaders = ThreadLocal.withInitial(ContainerLoader::new);
+    private ExecutorService executor = newExecutor();
+
+    public EngineComparison(HeadlessApi api, List<String> engineNames, long timeout, PrintStream out) {
+        this.api = api;
+        this.engineNames = engineNames;
+        this.timeout = timeout;
+        this.out = out;
+    }
+
+    /**
+     * @return a run per archive and engine
+     */
+    public List<Run> compare(List<File> files) throws IOException {
+        List<Run> runs = new ArrayList<>();
+
+        try {
+            for (File file : files) {
+                Container container = api.open(file);
+
+                if (container == null) {
+                    throw new IOException(file + ": unsupported file");
+                }
+
+                try {
+                    List<Container.Entry> entries = new ArrayList<>();
+
+                    collect(container.getRoot(), entries);
+
+                    for (String engineName : engineNames) {
+                        Run run = run(file, entries, engineName);
+                        runs.add(run);
+                        out.printf("%s: %s, %d classes in %.1f s, %d failures, %d partial, %d timeouts, peak heap %d MB%n", file, engineName,
+                                run.measures.size(), run.time / 1e9, run.count(Status.FAILURE), run.count(Status.PARTIAL), run.count(Status.TIMEOUT), run.peakHeap >> 20);
+                    }
+                } finally {
+                    if (container instanceof Closeable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                        ((Closeable) container).close();
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return runs;
+    }
+
+    protected static void collect(Container.Entry directory, List<Container.Entry> entries) {
+        for (Container.Entry entry : JarContainerEntryUtil.removeInnerTypeEntries(directory.getChildren())) {
+            if (entry.isDirectory()) {
+                collect(entry, entries);
+            } else if (entry.getPath().endsWith(".class")) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    protected Run run(File file, List<Container.Entry> entries, String engineName) {
+        List<Measure> measures = new ArrayList<>(entries.size());
+
+        // Measure the peak of this run only
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        long start = System.nanoTime();
+
+        for (Container.Entry entry : entries) {
+            measures.add(measure(entry, engineName));
+        }
+
+        long time = System.nanoTime() - start;
+        long peakHeap = 0;
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return new Run(file.getName(), engineName, time, peakHeap, measures);
+    }
+
+    protected Measure measure(Container.Entry entry, String engineName) {
+        long start = System.nanoTime();
+        Future<Measure> future = executor.submit(() -> decompile(entry, engineName));
+
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            // Abandon the thread of the decompiler
+            executor.shutdown();
+            executor = newExecutor();
+            return new Measure(entry.getPath(), Status.TIMEOUT, 0, System.nanoTime() - start, -1);
+        } catch (ExecutionException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return new Measure(entry.getPath(), Status.FAILURE, 0, System.nanoTime() - start, -1);
+        } catch (InterruptedException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+            return new Measure(entry.getPath(), Status.FAILURE, 0, System.nanoTime() - start, -1);
+        }
+    }
+
+    protected Measure decompile(Container.Entry entry, String engineName) {
+        Map<String, String> preferences = api.getPreferences();
+        ContainerLoader loader = loaders.get();
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        String output = null;
+
+        loader.setEntry(entry);
+
+        try {
+            DecompilationResult result = StandardTransformers.decompile(LoaderUtils.createLoader(preferences, loader, entry), ClassUtil.getInternalName(entry.getPath()), preferences, engineName);
+            output = result.getDecompiledOutput();
+        } catch (Exception | StackOverflowError e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+
+        long time = System.nanoTime() - start;
+        long allocated = allocatedBytes < 0 ? -1 : getAllocatedBytes() - allocatedBytes;
+
+        if (output == null || output.isEmpty()) {
+            return new Measure(entry.getPath(), Status.FAILURE, 0, time, allocated);
+        }
+
+        int markerCount = countMarkers(output);
+
+        return new Measure(entry.getPath(), markerCount > 0 ? Status.PARTIAL : Status.SUCCESS, markerCount, time, allocated);
+    }
+
+    protected static int countMarkers(String output) {
+        int count = 0;
+
+        for (int index = output.indexOf(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE); index != -1; index = output.indexOf(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE, index + 1)) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread, or -1 if not supported by the virtual machine
+     */
+    protected static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        return -1;
+    }
+
+    protected static ExecutorService newExecutor() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "engine-comparison");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public enum Status {
+        SUCCESS,
+        /** Decompiled, with methods that could not be decompiled */
+        PARTIAL,
+        FAILURE,
+        TIMEOUT
+    }
+
+    /**
+     * Decompilation of the classes of an archive by an engine.
+     */
+    public static class Run {
+        private final String archive;
+        private final String engineName;
+        private final long time; // in nanoseconds
+        private final long peakHeap; // in bytes
+        private final List<Measure> measures;
+
+        public Run(String archive, String engineName, long time, long peakHeap, List<Measure> measures) {
+            this.archive = archive;
+            this.engineName = engineName;
+            this.time = time;
+            this.peakHeap = peakHeap;
+            this.measures = Collections.unmodifiableList(measures);
+        }
+
+        public String getArchive() { return archive; }
+        public String getEngineName() { return engineName; }
+        public long getTime() { return time; }
+        public long getPeakHeap() { return peakHeap; }
+        public List<Measure> getMeasures() { return measures; }
+
+        public int count(Status status) {
+            int count = 0;
+            for (Measure measure : measures) {
+                if (measure.status == status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Decompilation of a class by an engine.
+     */
+    public static class Measure {
+        private final String path;
+        private final Status status;
+        private final int markerCount;
+        private final long time; // in nanoseconds
+        private final long allocatedBytes; // -1 if unknown
+
+        public Measure(String path, Status status, int markerCount, long time, long allocatedBytes) {
+            this.path = path;
+            this.status = status;
+            this.markerCount = markerCount;
+            this.time = time;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getPath() { return path; }
+        public Status getStatus() { return status; }
+        public int getMarkerCount() { return markerCount; }
+        public long getTime() { return time; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+
+        public String getPackageName() {
+            int lastSlash = path.lastIndexOf('/');
+            return lastSlash == -1 ? "" : path.substring(0, lastSlash).replace('/', '.');
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.batch;
+
+import org.jd.gui.batch.EngineComparison.Measure;
+import org.jd.gui.batch.EngineComparison.Run;
+import org.jd.gui.batch.EngineComparison.Status;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Report of an {@link EngineComparison}:
+ * <ul>
+ * <li>'classes.csv': a line per class and engine</li>
+ * <li>'packages.csv': a line per package and engine, with the rank of the engine in the package</li>
+ * <li>'report.html': the runs, the ranking of the engines over all the classes, then per package</li>
+ * </ul>
+ * Engines are ranked by number of failures and timeouts, then of partially decompiled classes, then of methods that
+ * could not be decompiled, then by time.
+ */
+public class EngineComparisonReport {
+    protected static final String ALL_PACKAGES = "(all)";
+
+    protected static final Comparator<Summary> RANKING = Comparator.<Summary>comparingInt(s -> s.failureCount + s.timeoutCount)
+            .thenComparingInt(s -> s.partialCount)
+            .thenComparingInt(s -> s.markerCount)
+            .thenComparingLong(s -> s.time);
+
+    private final List<Run> runs;
+    // Ranked summaries by package, all the packages first
+    private final Map<String, List<Summary>> rankings = new LinkedHashMap<>();
+
+    public EngineComparisonReport(List<Run> runs) {
+        this.runs = runs;
+
+        Map<String, Map<String, Summary>> summaries = new TreeMap<>();
+        Map<String, Summary> all = new LinkedHashMap<>();
+
+        for (Run run : runs) {
+            all.computeIfAbsent(run.getEngineName(), Summary::new).addAll(run.getMeasures());
+            for (Measure measure : run.getMeasures()) {
+                summaries.computeIfAbsent(measure.getPackageName(), k -> new LinkedHashMap<>())
+                        .computeIfAbsent(run.getEngineName(), Summary::new).add(measure);
+            }
+        }
+
+        rankings.put(ALL_PACKAGES, rank(all));
+        summaries.forEach((packageName, engineSummaries) -> rankings.put(packageName, rank(engineSummaries)));
+    }
+
+    protected static List<Summary> rank(Map<String, Summary> summaries) {
+        List<Summary> ranking = new ArrayList<>(summaries.values());
+        ranking.sort(RANKING);
+        return ranking;
+    }
+
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        writeClasses(directory.resolve("classes.csv"));
+        writePackages(directory.resolve("packages.csv"));
+        writeHtml(directory.resolve("report.html"));
+    }
+
+    protected void writeClasses(Path path) throws IOException {
+        try (PrintWriter writer = newWriter(path)) {
+            writer.println("archive,engine,package,class,status,markers,time_ms,allocated_bytes");
+            for (Run run : runs) {
+                for (Measure measure : run.getMeasures()) {
+                    writer.println(String.join(",", csv(run.getArchive()), csv(run.getEngineName()), csv(measure.getPackageName()),
+                            csv(measure.getPath()), measure.getStatus().name(), String.valueOf(measure.getMarkerCount()),
+                            String.format(Locale.ROOT, "%.3f", measure.getTime() / 1e6), String.valueOf(measure.getAllocatedBytes())));
+                }
+            }
+        }
+    }
+
+    protected void writePackages(Path path) throws IOException {
+        try (PrintWriter writer = newWriter(path)) {
+            writer.println("package,rank,engine,classes,successes,partial,failures,timeouts,markers,time_ms,allocated_bytes");
+            rankings.forEach((packageName, ranking) -> {
+                int rank = 1;
+                for (Summary summary : ranking) {
+                    writer.println(String.join(",", csv(packageName), String.valueOf(rank++), csv(summary.engineName),
+                            String.valueOf(summary.classCount), String.valueOf(summary.successCount), String.valueOf(summary.partialCount),
+                            String.valueOf(summary.failureCount), String.valueOf(summary.timeoutCount), String.valueOf(summary.markerCount),
+                            String.format(Locale.ROOT, "%.3f", summary.time / 1e6), String.valueOf(summary.allocatedBytes)));
+                }
+            });
+        }
+    }
+
+    protected void writeHtml(Path path) throws IOException {
+        try (PrintWriter writer = newWriter(path)) {
+            writer.println("<!DOCTYPE html>");
+            writer.println("<html><head><meta charset=\"UTF-8\"><title>Decompiler comparison</title>");
+            writer.println("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:1em}"
+                    + "th,td{border:1px solid #ccc;padding:2px 6px;text-align:right}td:first-child,th:first-child{text-align:left}</style>");
+            writer.println("</head><body>");
+
+            writer.println("<h1>Runs</h1>");
+            writer.println("<table><tr><th>Archive</th><th>Engine</th><th>Classes</th><th>Time (s)</th><th>Peak heap (MB)</th>"
+                    + "<th>Failures</th><th>Partial</th><th>Timeouts</th></tr>");
+            for (Run run : runs) {
+                writer.printf("<tr><td>%s</td><td>%s</td><td>%d</td><td>%.1f</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td></tr>%n",
+                        html(run.getArchive()), html(run.getEngineName()), run.getMeasures().size(), run.getTime() / 1e9,
+                        run.getPeakHeap() >> 20, run.count(Status.FAILURE), run.count(Status.PARTIAL), run.count(Status.TIMEOUT));
+            }
+            writer.println("</table>");
+
+            rankings.forEach((packageName, ranking) -> {
+                writer.printf("<h%d>%s</h%1$d>%n", ALL_PACKAGES.equals(packageName) ? 1 : 2, ALL_PACKAGES.equals(packageName) ? "Ranking" : html(packageName));
+                writer.println("<table><tr><th>Engine</th><th>Rank</th><th>Classes</th><th>Successes</th><th>Partial</th><th>Failures</th>"
+                        + "<th>Timeouts</th><th>Markers</th><th>Time (ms)</th><th>Allocated (MB)</th></tr>");
+                int rank = 1;
+                for (Summary summary : ranking) {
+                    writer.printf("<tr><td>%s</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td><td>%.1f</td><td>%d</td></tr>%n",
+                            html(summary.engineName), rank++, summary.classCount, summary.successCount, summary.partialCount, summary.failureCount,
+                            summary.timeoutCount, summary.markerCount, summary.time / 1e6, summary.allocatedBytes >> 20);
+                }
+                writer.println("</table>");
+            });
+
+            writer.println("</body></html>");
+        }
+    }
+
+    protected static PrintWriter newWriter(Path path) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        return new PrintWriter(writer);
+    }
+
+    protected static String csv(String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    protected static String html(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Results of an engine over a set of classes.
+     */
+    protected static class Summary {
+        private final String engineName;
+        private int classCount;
+        private int successCount;
+        private int partialCount;
+        private int failureCount;
+        private int timeoutCount;
+        private int markerCount;
+        private long time;
+        private long allocatedBytes;
+
+        public Summary(String engineName) {
+            this.engineName = engineName;
+        }
+
+        public void addAll(List<Measure> measures) {
+            for (Measure measure : measures) {
+                add(measure);
+            }
+        }
+
+        public void add(Measure measure) {
+            classCount++;
+            markerCount += measure.getMarkerCount();
+            time += measure.getTime();
+            if (measure.getAllocatedBytes() > 0) {
+                allocatedBytes += measure.getAllocatedBytes();
+            }
+            switch (measure.getStatus()) {
+            case SUCCESS:
+                successCount++;
+                break;
+            case PARTIAL:
+                partialCount++;
+                break;
+            case FAILURE:
+                failureCount++;
+                break;
+            case TIMEOUT:
+                timeoutCount++;
+                break;
+            }
+        }
+    }
+}
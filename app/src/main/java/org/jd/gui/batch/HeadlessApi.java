@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.batch;
+
+import org.jd.gui.api.API;
+import org.jd.gui.api.feature.UriGettable;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.service.container.ContainerFactoryService;
+import org.jd.gui.service.fileloader.FileLoaderService;
+import org.jd.gui.service.indexer.IndexerService;
+import org.jd.gui.service.sourcesaver.SourceSaverService;
+import org.jd.gui.service.type.TypeFactoryService;
+import org.jd.gui.spi.ContainerFactory;
+import org.jd.gui.spi.FileLoader;
+import org.jd.gui.spi.Indexer;
+import org.jd.gui.spi.PanelFactory;
+import org.jd.gui.spi.SourceSaver;
+import org.jd.gui.spi.TreeNodeFactory;
+import org.jd.gui.spi.TypeFactory;
+import org.jd.gui.spi.UriLoader;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import javax.swing.Action;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+
+/**
+ * API without user interface, for the batch mode.
+ * <br>
+ * Files are opened by the file loaders, like in the main window: the containers they make are kept instead of being
+ * displayed in panels, see {@link #open(File)}. Nothing is indexed, and no source is looked up.
+ */
+public class HeadlessApi implements API {
+    protected static final String[] TYPES = { "*" };
+
+    private final Map<String, String> preferences;
+    private final Map<File, Container> containers = new ConcurrentHashMap<>();
+
+    private final PanelFactory panelFactory = new PanelFactory() {
+        @Override
+        public String[] getTypes() { return TYPES; }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends JComponent & UriGettable> T make(API api, Container container) {
+            return (T) new ContainerHolder(container);
+        }
+    };
+
+    public HeadlessApi(Map<String, String> preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * @return the container made by the file loader of the file, or null if the file is not supported
+     */
+    public Container open(File file) {
+        FileLoader loader = getFileLoader(file);
+
+        if (loader != null && loader.accept(this, file) && loader.load(this, file)) {
+            return containers.remove(file);
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean openURI(URI uri) { return false; }
+
+    @Override
+    public boolean openURI(int x, int y, Collection<Container.Entry> entries, String query, String fragment) { return false; }
+
+    @Override
+    public void addURI(URI uri) {}
+
+    @Override
+    public <T extends JComponent & UriGettable> void addPanel(File file, String title, Supplier<Icon> iconSupplier, String tip, T component) {
+        if (component instanceof ContainerHolder) {
+            containers.put(file, ((ContainerHolder) component).container);
+        }
+    }
+
+    @Override
+    public Collection<Action> getContextualActions(Container.Entry entry, String fragment) { return Collections.emptyList(); }
+
+    @Override
+    public UriLoader getUriLoader(URI uri) { return null; }
+
+    @Override
+    public FileLoader getFileLoader(File file) {
+        return FileLoaderService.getInstance().get(file);
+    }
+
+    @Override
+    public ContainerFactory getContainerFactory(Path rootPath) {
+        return ContainerFactoryService.getInstance().get(this, rootPath);
+    }
+
+    @Override
+    public PanelFactory getMainPanelFactory(Container container) { return panelFactory; }
+
+    @Override
+    public TreeNodeFactory getTreeNodeFactory(Container.Entry entry) { return null; }
+
+    @Override
+    public TypeFactory getTypeFactory(Container.Entry entry) {
+        return TypeFactoryService.getInstance().get(entry);
+    }
+
+    @Override
+    public Indexer getIndexer(Container.Entry entry) {
+        return IndexerService.getInstance().get(entry);
+    }
+
+    @Override
+    public SourceSaver getSourceSaver(Container.Entry entry) {
+        return SourceSaverService.getInstance().get(entry);
+    }
+
+    @Override
+    public Map<String, String> getPreferences() { return preferences; }
+
+    @Override
+    public Collection<Indexes> getCollectionOfIndexes() { return Collections.emptyList(); }
+
+    @Override
+    public Collection<Future<Indexes>> getCollectionOfFutureIndexes() { return Collections.emptyList(); }
+
+    @Override
+    public String getSource(Container.Entry entry) { return null; }
+
+    @Override
+    public void loadSource(Container.Entry entry, LoadSourceListener listener) {}
+
+    @Override
+    public File loadSourceFile(Container.Entry entry) { return null; }
+
+    @Override
+    public void repaint() {}
+
+    /**
+     * Lightweight component handed to {@link #addPanel}, never displayed.
+     */
+    protected static class ContainerHolder extends JComponent implements UriGettable {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Container container;
+
+        public ContainerHolder(Container container) {
+            this.container = container;
+        }
+
+        @Override
+        public URI getUri() { return container.getRoot().getParent().getUri(); }
+    }
+}
@@ -26,6 +26,7 @@ import org.jd.gui.api.model.Indexes;
 import org.jd.gui.model.configuration.Configuration;
 import org.jd.gui.model.history.History;
 import org.jd.gui.service.actions.ContextualActionsFactoryService;
+import org.jd.gui.service.configuration.ConfigurationXmlPersisterProvider;
 import org.jd.gui.service.container.ContainerFactoryService;
 import org.jd.gui.service.fileloader.FileLoaderService;
 import org.jd.gui.service.indexer.IndexerService;
@@ -51,12 +52,14 @@ import org.jd.gui.spi.UriLoader;
 import org.jd.gui.util.TempFile;
 import org.jd.gui.util.ZOutputStream;
 import org.jd.gui.util.container.JarContainerEntryUtil;
+import org.jd.gui.util.decompiler.DecompilationCache;
 import org.jd.gui.util.matcher.ArtifactVersionMatcher;
 import org.jd.gui.util.net.UriUtil;
 import org.jd.gui.util.swing.AbstractSwingWorker;
 import org.jd.gui.util.swing.SwingUtil;
 import org.jd.gui.view.MainView;
 import org.jd.util.SHA1Util;
+import org.jd.util.WeightedCache;
 
 import java.awt.Component;
 import java.awt.Desktop;
@@ -137,6 +140,10 @@ public class MainController implements API {
     public MainController(Configuration configuration) {
         this.configuration = configuration;
 
+        DecompilationCache.getInstance().setDirectory(new File(ConfigurationXmlPersisterProvider.getConfigDirectory(), DecompilationCache.CACHE_DIRECTORY_NAME));
+        DecompilationCache.getInstance().applyPreferences(configuration.getPreferences());
+        WeightedCache.applyPreferences(configuration.getPreferences());
+
         SwingUtil.invokeLater(() ->
 
         // Create main frame
@@ -462,6 +469,8 @@ public class MainController implements API {
     @SuppressWarnings("unchecked")
     protected void onPreferences() {
         preferencesController.show(() -> {
+            DecompilationCache.getInstance().applyPreferences(getPreferences());
+            WeightedCache.applyPreferences(getPreferences());
             checkPreferencesChange(currentPage);
             mainView.preferencesChanged(getPreferences());
         });
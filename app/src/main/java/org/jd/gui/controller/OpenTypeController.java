@@ -11,30 +11,42 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
+import org.jd.gui.api.model.Type;
+import org.jd.gui.spi.TypeFactory;
+import org.jd.gui.util.concurrent.QueryScheduler;
+import org.jd.gui.util.concurrent.QueryScheduler.Query;
+import org.jd.gui.util.index.TypeNameIndex;
+import org.jd.gui.util.matcher.TypeNameRanker;
 import org.jd.gui.util.net.UriUtil;
 import org.jd.gui.view.OpenTypeView;
-import org.jd.util.LRUCache;
+import org.jd.util.WeightedCache;
 import org.jd.gui.api.feature.IndexesChangeListener;
 
 import java.awt.Point;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.swing.JFrame;
-import javax.swing.SwingUtilities;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.OPEN_TYPE_CACHE_SIZE;
 
 public class OpenTypeController implements IndexesChangeListener {
+    protected static final long CACHE_MAX_WEIGHT = 1_000_000; // in matching types
 
     private final API api;
-    private final ScheduledExecutorService executor;
     private Collection<Future<Indexes>> collectionOfFutureIndexes;
     private Consumer<URI> openCallback;
 
@@ -42,17 +54,19 @@ public class OpenTypeController implements IndexesChangeListener {
     private final SelectLocationController selectLocationController;
 
     private long indexesHashCode;
+    // Each change of the pattern or of the indexes supersedes the previous matchings and resolutions of types
+    private final QueryScheduler scheduler;
     @SuppressWarnings("rawtypes")
-    private final LRUCache<String, Map<String, Collection>> cache;
+    private final WeightedCache<String, Map<String, Collection>> cache;
 
     public OpenTypeController(API api, ScheduledExecutorService executor, JFrame mainFrame) {
         this.api = api;
-        this.executor = executor;
+        this.scheduler = new QueryScheduler(executor);
         // Create UI
         openTypeView = new OpenTypeView(api, mainFrame, this::updateList, this::onTypeSelected);
         selectLocationController = new SelectLocationController(api, mainFrame);
         // Create result cache
-        cache = new LRUCache<>();
+        cache = new WeightedCache<>(OPEN_TYPE_CACHE_SIZE, CACHE_MAX_WEIGHT, Map::size);
     }
 
     public void show(Collection<Future<Indexes>> collectionOfFutureIndexes, Consumer<URI> openCallback) {
@@ -75,28 +89,29 @@ public class OpenTypeController implements IndexesChangeListener {
         int patternLength = pattern.length();
 
         if (patternLength == 0) {
+            scheduler.cancel();
             // Display
-            openTypeView.updateList(Collections.emptyMap());
+            openTypeView.hideWaitCursor();
+            openTypeView.updateList(Collections.emptyMap(), 0);
         } else {
-            executor.execute(() -> {
+            scheduler.execute(query -> {
                 // Waiting the end of indexation...
                 openTypeView.showWaitCursor();
 
                 Pattern regExpPattern = createRegExpPattern(pattern);
-                Map<String, Collection<Container.Entry>> result = new HashMap<>();
+                List<Map<String, Collection>> results = new ArrayList<>();
 
                 try {
                     for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
                         if (futureIndexes.isDone()) {
+                            query.checkCancelled();
+
                             Indexes indexes = futureIndexes.get();
                             String key = String.valueOf(indexes.hashCode()) + "***" + pattern;
                             Map<String, Collection> matchingEntries = cache.get(key);
 
                             if (matchingEntries != null) {
-                                // Merge 'result' and 'matchingEntries'
-                                for (Map.Entry<String, Collection> mapEntry : matchingEntries.entrySet()) {
-                                    result.computeIfAbsent(mapEntry.getKey(), k -> new HashSet<>()).addAll(mapEntry.getValue());
-                                }
+                                results.add(matchingEntries);
                             } else {
                                 // Waiting the end of indexation...
                                 Map<String, Collection> index = indexes.getIndex("typeDeclarations");
@@ -105,26 +120,26 @@ public class OpenTypeController implements IndexesChangeListener {
                                     matchingEntries = new HashMap<>();
 
                                     // Filter
-                                    if (patternLength == 1) {
-                                        match(pattern.charAt(0), index, matchingEntries);
+                                    if (TypeNameIndex.isSupported(pattern)) {
+                                        match(pattern, TypeNameIndex.get(indexes), index, matchingEntries, query);
+                                    } else if (patternLength == 1) {
+                                        match(pattern.charAt(0), index, matchingEntries, query);
                                     } else {
-                                        String lastKey = key.substring(0, patternLength - 1);
-                                        Map<String, Collection> lastResult = cache.get(lastKey);
+                                        String lastPattern = pattern.substring(0, patternLength - 1);
+                                        // Only the result of the regular expression of the last pattern contains all the candidates
+                                        boolean lastRegExp = lastPattern.length() > 1 && !TypeNameIndex.isSupported(lastPattern);
+                                        Map<String, Collection> lastResult = lastRegExp ? cache.get(key.substring(0, key.length() - 1)) : null;
 
                                         if (lastResult != null) {
-                                            match(regExpPattern, lastResult, matchingEntries);
+                                            match(regExpPattern, lastResult, matchingEntries, query);
                                         } else {
-                                            match(regExpPattern, index, matchingEntries);
+                                            match(regExpPattern, index, matchingEntries, query);
                                         }
                                     }
 
                                     // Store 'matchingEntries'
                                     cache.put(key, matchingEntries);
-
-                                    // Merge 'result' and 'matchingEntries'
-                                    for (Map.Entry<String, Collection> mapEntry : matchingEntries.entrySet()) {
-                                        result.computeIfAbsent(mapEntry.getKey(), k -> new HashSet<>()).addAll(mapEntry.getValue());
-                                    }
+                                    results.add(matchingEntries);
                                 }
                             }
                         }
@@ -134,25 +149,121 @@ public class OpenTypeController implements IndexesChangeListener {
                     // Restore interrupted state...
                     Thread.currentThread().interrupt();
                 } catch (Exception e) {
-                    assert ExceptionUtil.printStackTrace(e);
+                    // The matching of a superseded query is cancelled
+                    if (!query.isCancelled()) {
+                        assert ExceptionUtil.printStackTrace(e);
+                    }
+                }
+
+                // Keep the best matching types only, then merge their entries
+                TypeNameRanker ranker = rank(pattern, results, query);
+                Map<String, Collection<Container.Entry>> result = new LinkedHashMap<>();
+
+                for (String typeName : ranker.getTypeNames()) {
+                    Set<Container.Entry> entries = new HashSet<>();
+
+                    for (Map<String, Collection> matchingEntries : results) {
+                        Collection<Container.Entry> collection = matchingEntries.get(typeName);
+                        if (collection != null) {
+                            entries.addAll(collection);
+                        }
+                    }
+
+                    result.put(typeName, entries);
                 }
 
-                SwingUtilities.invokeLater(() -> {
+                query.publish(() -> {
                     openTypeView.hideWaitCursor();
                     // Display
-                    openTypeView.updateList(result);
+                    openTypeView.updateList(result, ranker.getCount());
                 });
+
+                // Then the icons and the display names of the listed types, in the task of the query, so that a
+                // superseded query stops resolving them and frees its thread
+                resolveTypes(result, query);
             });
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    protected static TypeNameRanker rank(String pattern, List<Map<String, Collection>> results, Query query) {
+        TypeNameRanker ranker = new TypeNameRanker(pattern, OpenTypeView.MAX_LINE_COUNT);
+
+        if (results.size() == 1) {
+            for (String typeName : results.get(0).keySet()) {
+                query.checkCancelled();
+                ranker.add(typeName);
+            }
+        } else {
+            Set<String> typeNames = new HashSet<>();
+
+            for (Map<String, Collection> matchingEntries : results) {
+                for (String typeName : matchingEntries.keySet()) {
+                    query.checkCancelled();
+                    if (typeNames.add(typeName)) {
+                        ranker.add(typeName);
+                    }
+                }
+            }
+        }
+
+        return ranker;
+    }
+
+    /**
+     * Make the types of the listed type names, out of the event dispatch thread, until the query is superseded.
+     */
+    protected void resolveTypes(Map<String, Collection<Container.Entry>> result, Query query) {
+        Map<String, Type> types = new HashMap<>();
+
+        for (Map.Entry<String, Collection<Container.Entry>> mapEntry : result.entrySet()) {
+            query.checkCancelled();
+
+            String typeName = mapEntry.getKey();
+            Container.Entry firstEntry = mapEntry.getValue().iterator().next();
+            TypeFactory typeFactory = api.getTypeFactory(firstEntry);
+
+            if (typeFactory != null) {
+                try {
+                    Type type = typeFactory.make(api, firstEntry, typeName);
+
+                    if (type != null) {
+                        types.put(typeName, type);
+                    }
+                } catch (Exception e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+        }
+
+        if (!types.isEmpty()) {
+            query.publish(() -> openTypeView.updateTypes(types));
+        }
+    }
+
+    /**
+     * Match a prefix or camel case pattern by range scans of the index of the type names.
+     */
+    @SuppressWarnings({ "rawtypes" })
+    protected static void match(String pattern, TypeNameIndex typeNameIndex, Map<String, Collection> index, Map<String, Collection> result, Query query) {
+        typeNameIndex.match(pattern, typeName -> {
+            query.checkCancelled();
+            Collection entries = index.get(typeName);
+            if (entries != null) {
+                // Type names are distinct: no merge
+                result.put(typeName, entries);
+            }
+        });
+    }
+
     @SuppressWarnings({ "rawtypes" })
-    protected static void match(char c, Map<String, Collection> index, Map<String, Collection> result) {
+    protected static void match(char c, Map<String, Collection> index, Map<String, Collection> result, Query query) {
         // Filter
         if (Character.isLowerCase(c)) {
             char upperCase = Character.toUpperCase(c);
 
             for (Map.Entry<String, Collection> mapEntry : index.entrySet()) {
+                query.checkCancelled();
                 String typeName = mapEntry.getKey();
                 @SuppressWarnings("unchecked")
                 Collection<Container.Entry> entries = mapEntry.getValue();
@@ -171,6 +282,7 @@ public class OpenTypeController implements IndexesChangeListener {
             }
         } else {
             for (Map.Entry<String, Collection> mapEntry : index.entrySet()) {
+                query.checkCancelled();
                 String typeName = mapEntry.getKey();
                 @SuppressWarnings("unchecked")
                 Collection<Container.Entry> entries = mapEntry.getValue();
@@ -222,8 +334,11 @@ public class OpenTypeController implements IndexesChangeListener {
     }
 
     @SuppressWarnings({ "rawtypes" })
-    protected static void match(Pattern regExpPattern, Map<String, Collection> index, Map<String, Collection> result) {
+    protected static void match(Pattern regExpPattern, Map<String, Collection> index, Map<String, Collection> result, Query query) {
+        Matcher matcher = regExpPattern.matcher("");
+
         for (Map.Entry<String, Collection> mapEntry : index.entrySet()) {
+            query.checkCancelled();
             String typeName = mapEntry.getKey();
             @SuppressWarnings("unchecked")
             Collection<Container.Entry> entries = mapEntry.getValue();
@@ -232,7 +347,7 @@ public class OpenTypeController implements IndexesChangeListener {
             int lastTypeNameSeparatorIndex = typeName.lastIndexOf('$') + 1;
             int lastIndex = Math.max(lastPackageSeparatorIndex, lastTypeNameSeparatorIndex);
 
-            if (regExpPattern.matcher(typeName.substring(lastIndex)).matches()) {
+            if (matcher.reset(typeName).region(lastIndex, typeName.length()).matches()) {
                 add(result, typeName, entries);
             }
         }
@@ -10,18 +10,23 @@ package org.jd.gui.controller;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.feature.SourcesSavable;
+import org.jd.gui.util.decompiler.DecompilationWatchdog;
 import org.jd.gui.util.swing.AbstractSwingWorker;
 
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
 
 public class SaveAllSourcesController {
+    protected static final int MAX_REPORTED_TIMEOUTS = 20;
+
     private final API api;
     private final JFrame mainFrame;
 
@@ -39,6 +44,8 @@ public class SaveAllSourcesController {
     private final class SaveAllSourcesWorker extends AbstractSwingWorker<Void, Void> {
         private final SourcesSavable savable;
         private final File file;
+        // Timeouts of other decompilations during the export are reported too
+        private final long timeoutCount = DecompilationWatchdog.getInstance().getTimeoutCount();
 
         private SaveAllSourcesWorker(SourcesSavable savable, File file) {
             super(mainFrame, "Saving...");
@@ -76,6 +83,9 @@ public class SaveAllSourcesController {
             super.done();
             try {
                 get();
+                if (!isCancelled()) {
+                    reportTimeouts(DecompilationWatchdog.getInstance().getTimeoutsSince(timeoutCount));
+                }
             } catch (InterruptedException e) {
                 assert ExceptionUtil.printStackTrace(e);
                 // Restore interrupted state...
@@ -85,6 +95,20 @@ public class SaveAllSourcesController {
             }
         }
 
+        private void reportTimeouts(List<DecompilationWatchdog.Timeout> timeouts) {
+            if (!timeouts.isEmpty()) {
+                StringBuilder message = new StringBuilder();
+                message.append(timeouts.size()).append(" decompilations exceeded the budgets of Preferences > Decompiler > Class file:\n");
+                for (DecompilationWatchdog.Timeout timeout : timeouts.subList(0, Math.min(timeouts.size(), MAX_REPORTED_TIMEOUTS))) {
+                    message.append("\n").append(timeout);
+                }
+                if (timeouts.size() > MAX_REPORTED_TIMEOUTS) {
+                    message.append("\n...");
+                }
+                JOptionPane.showMessageDialog(mainFrame, message.toString(), "Decompilation timeouts", JOptionPane.WARNING_MESSAGE);
+            }
+        }
+
         private void trySave(Path path) {
             try {
                 savable.save(api, path, this::getProgressPercentage, this::setProgressPercentage, this::isCancelled);
@@ -12,56 +12,62 @@ import org.jd.gui.api.API;
 import org.jd.gui.api.feature.IndexesChangeListener;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
-import org.jd.gui.api.model.Type;
 import org.jd.gui.model.container.DelegatingFilterContainer;
-import org.jd.gui.model.container.entry.path.FileEntryPath;
-import org.jd.gui.service.type.TypeFactoryService;
-import org.jd.gui.spi.TypeFactory;
+import org.jd.gui.service.indexer.ClassFileIndexerProvider;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.jd.gui.util.concurrent.QueryScheduler;
+import org.jd.gui.util.concurrent.QueryScheduler.Query;
 import org.jd.gui.util.function.TriConsumer;
+import org.jd.gui.util.index.TrigramIndex;
 import org.jd.gui.view.SearchInConstantPoolsView;
-import org.jd.util.LRUCache;
+import org.jd.util.WeightedCache;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.ObjIntConsumer;
 import java.util.regex.Pattern;
 
 import javax.swing.JFrame;
 
+import jd.core.ClassUtil;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.SEARCH_CACHE_SIZE;
+
 public class SearchInConstantPoolsController implements IndexesChangeListener {
-    protected static final int CACHE_MAX_ENTRIES = 5 * 20 * 9;
+    protected static final long CACHE_MAX_WEIGHT = 1_000_000; // in matching keys
 
-    private final API api;
-    private final ScheduledExecutorService executor;
+    // Each change of the pattern supersedes the previous searches
+    private final QueryScheduler scheduler;
 
     @SuppressWarnings("rawtypes")
     private final SearchInConstantPoolsView searchInConstantPoolsView;
     @SuppressWarnings("rawtypes")
-    private final Map<String, Map<String, Collection>> cache;
-    private final Set<DelegatingFilterContainer> delegatingFilterContainers = new HashSet<>();
+    private final WeightedCache<String, Map<String, Collection>> cache;
+    private volatile Set<DelegatingFilterContainer> delegatingFilterContainers = new HashSet<>();
     private Collection<Future<Indexes>> collectionOfFutureIndexes;
     private Consumer<URI> openCallback;
     private long indexesHashCode;
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public SearchInConstantPoolsController(API api, ScheduledExecutorService executor, JFrame mainFrame) {
-        this.api = api;
-        this.executor = executor;
+        this.scheduler = new QueryScheduler(executor);
         // Create UI
         ObjIntConsumer<String> changedPatternCallback = this::updateTree;
         TriConsumer<URI, String, Integer> selectedTypeCallback = this::onTypeSelected;
         this.searchInConstantPoolsView = new SearchInConstantPoolsView(api, mainFrame, changedPatternCallback, selectedTypeCallback);
         // Create result cache
-        this.cache = new LRUCache<>(CACHE_MAX_ENTRIES);
+        this.cache = new WeightedCache<>(SEARCH_CACHE_SIZE, CACHE_MAX_WEIGHT, Map::size);
     }
 
     public void show(Collection<Future<Indexes>> collectionOfFutureIndexes, Consumer<URI> openCallback) {
@@ -79,45 +85,34 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         searchInConstantPoolsView.show();
     }
 
-    @SuppressWarnings("unchecked")
     protected void updateTree(String pattern, int flags) {
-        delegatingFilterContainers.clear();
-
-        executor.execute(() -> {
+        scheduler.execute(query -> {
             // Waiting the end of indexation...
             searchInConstantPoolsView.showWaitCursor();
 
+            Set<DelegatingFilterContainer> containers = new HashSet<>();
             int matchingTypeCount = 0;
-            int patternLength = pattern.length();
 
-            if (patternLength > 0) {
+            if (!pattern.isEmpty()) {
                 try {
+                    List<String> indexNames = getIndexNames(flags);
+                    List<CompletableFuture<ContainerMatch>> futures = new ArrayList<>();
+
                     for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
                         if (futureIndexes.isDone()) {
-                            Indexes indexes = futureIndexes.get();
-                            Set<Container.Entry> matchingEntries = new HashSet<>();
-                            // Find matched entries
-                            filter(indexes, pattern, flags, matchingEntries);
-
-                            if (!matchingEntries.isEmpty()) {
-                                // Search root container with first matching entry
-                                Container.Entry parentEntry = matchingEntries.iterator().next();
-                                Container container = null;
-
-                                while (parentEntry.getContainer().getRoot() != null) {
-                                    container = parentEntry.getContainer();
-                                    parentEntry = container.getRoot().getParent();
-                                }
+                            futures.add(search(futureIndexes.get(), indexNames, pattern, query));
+                        }
+                    }
 
-                                // TODO In a future release, display matching strings, types, inner-types,
-                                // fields and methods, not only matching files
-                                matchingEntries = getOuterEntries(matchingEntries);
+                    // Merge, in the order of the containers
+                    for (CompletableFuture<ContainerMatch> future : futures) {
+                        query.checkCancelled();
 
-                                matchingTypeCount += matchingEntries.size();
+                        ContainerMatch match = future.get();
 
-                                // Create a filtered container
-                                delegatingFilterContainers.add(new DelegatingFilterContainer(container, matchingEntries));
-                            }
+                        if (match != null) {
+                            matchingTypeCount += match.typeCount;
+                            containers.add(match.container);
                         }
                     }
                 } catch (InterruptedException e) {
@@ -125,195 +120,225 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
                     // Restore interrupted state...
                     Thread.currentThread().interrupt();
                 } catch (Exception e) {
-                    assert ExceptionUtil.printStackTrace(e);
+                    // The searches of a superseded query are cancelled
+                    if (!query.isCancelled()) {
+                        assert ExceptionUtil.printStackTrace(e);
+                    }
                 }
             }
 
             final int count = matchingTypeCount;
 
-            searchInConstantPoolsView.hideWaitCursor();
-            searchInConstantPoolsView.updateTree(delegatingFilterContainers, count);
+            query.publish(() -> {
+                delegatingFilterContainers = containers;
+                searchInConstantPoolsView.hideWaitCursor();
+                searchInConstantPoolsView.updateTree(containers, count);
+            });
         });
     }
 
-    protected Set<Container.Entry> getOuterEntries(Set<Container.Entry> matchingEntries) {
-        Map<Container.Entry, Container.Entry> innerTypeEntryToOuterTypeEntry = new HashMap<>();
-        Set<Container.Entry> matchingOuterEntriesSet = new HashSet<>();
+    /**
+     * Match the indexes of a container on the compute pool, outside the executor of the main controller, an index per
+     * task, then resolve the outer types of the matching entries. The tasks stop as soon as the query is superseded.
+     *
+     * @return the filtered container, or null if no entry matches
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected CompletableFuture<ContainerMatch> search(Indexes indexes, List<String> indexNames, String pattern, Query query) {
+        List<CompletableFuture<Map<String, Collection>>> matches = new ArrayList<>(indexNames.size());
 
-        TypeFactory typeFactory;
-        for (Container.Entry entry : matchingEntries) {
-            typeFactory = TypeFactoryService.getInstance().get(entry);
+        for (String indexName : indexNames) {
+            matches.add(CompletableFuture.supplyAsync(() -> match(indexes, indexName, pattern, query), ComputePool.getExecutor()));
+        }
 
-            if (typeFactory != null) {
-                Type type = typeFactory.make(api, entry, null);
+        return CompletableFuture.allOf(matches.toArray(new CompletableFuture[0])).thenApplyAsync(v -> {
+            Set<Container.Entry> matchingEntries = new HashSet<>();
 
-                if (type != null && type.getOuterName() != null) {
-                    Container.Entry outerTypeEntry = innerTypeEntryToOuterTypeEntry.get(entry);
+            for (CompletableFuture<Map<String, Collection>> match : matches) {
+                query.checkCancelled();
 
-                    if (outerTypeEntry == null) {
-                        Map<String, Container.Entry> typeNameToEntry = new HashMap<>();
-                        Map<String, String> innerTypeNameToOuterTypeName = new HashMap<>();
+                Map<String, Collection> matchedEntries = match.join();
 
-                        // Populate "typeNameToEntry" and "innerTypeNameToOuterTypeName"
-                        for (Container.Entry e : entry.getParent().getChildren().values()) {
-                            typeFactory = TypeFactoryService.getInstance().get(e);
+                if (matchedEntries != null) {
+                    for (Collection<Container.Entry> entries : matchedEntries.values()) {
+                        matchingEntries.addAll(entries);
+                    }
+                }
+            }
 
-                            if (typeFactory != null) {
-                                type = typeFactory.make(api, e, null);
+            if (matchingEntries.isEmpty()) {
+                return null;
+            }
 
-                                if (type != null) {
-                                    typeNameToEntry.put(type.getName(), e);
-                                    if (type.getOuterName() != null) {
-                                        innerTypeNameToOuterTypeName.put(type.getName(), type.getOuterName());
-                                    }
-                                }
-                            }
-                        }
+            // Search root container with first matching entry
+            Container.Entry parentEntry = matchingEntries.iterator().next();
+            Container container = null;
 
-                        Container.Entry innerTypeEntry;
-                        // Search outer type entries and populate "innerTypeEntryToOuterTypeEntry"
-                        for (Map.Entry<String, String> e : innerTypeNameToOuterTypeName.entrySet()) {
-                            innerTypeEntry = typeNameToEntry.get(e.getKey());
+            while (parentEntry.getContainer().getRoot() != null) {
+                container = parentEntry.getContainer();
+                parentEntry = container.getRoot().getParent();
+            }
 
-                            if (innerTypeEntry != null) {
-                                String outerTypeName = e.getValue();
+            // TODO In a future release, display matching strings, types, inner-types,
+            // fields and methods, not only matching files
+            matchingEntries = getOuterEntries(indexes, matchingEntries);
 
-                                String typeName;
-                                for (;;) {
-                                    typeName = innerTypeNameToOuterTypeName.get(outerTypeName);
-                                    if (typeName == null) {
-                                        break;
-                                    }
-                                    outerTypeName = typeName;
-                                }
+            // Create a filtered container
+            return new ContainerMatch(new DelegatingFilterContainer(container, matchingEntries), matchingEntries.size());
+        }, ComputePool.getExecutor());
+    }
 
-                                outerTypeEntry = typeNameToEntry.get(outerTypeName);
+    /**
+     * @return the entries of the top level types enclosing the matching entries, looked up in the index
+     * "outerTypeNames" of the container
+     */
+    @SuppressWarnings("unchecked")
+    protected static Set<Container.Entry> getOuterEntries(Indexes indexes, Set<Container.Entry> matchingEntries) {
+        Set<Container.Entry> matchingOuterEntriesSet = new HashSet<>();
 
-                                if (outerTypeEntry != null) {
-                                    innerTypeEntryToOuterTypeEntry.put(innerTypeEntry, outerTypeEntry);
-                                }
-                            }
-                        }
+        for (Container.Entry entry : matchingEntries) {
+            Container.Entry outerTypeEntry = entry;
+            String path = entry.getPath();
 
-                        // Get outer type entry
-                        outerTypeEntry = innerTypeEntryToOuterTypeEntry.get(entry);
+            if (path.endsWith(StringConstants.CLASS_FILE_SUFFIX)) {
+                String outerTypeName = ClassFileIndexerProvider.getTopLevelTypeName(indexes, ClassUtil.getInternalName(path));
 
-                        if (outerTypeEntry == null) {
-                            outerTypeEntry = entry;
-                        }
-                    }
+                if (outerTypeName != null) {
+                    Collection<Container.Entry> outerEntries = indexes.getIndex("typeDeclarations").get(outerTypeName);
 
-                    matchingOuterEntriesSet.add(outerTypeEntry);
-                } else {
-                    String path = entry.getPath();
-                    int idx = path.indexOf(StringConstants.INTERNAL_INNER_SEPARATOR);
-                    if (idx != -1 && path.endsWith(StringConstants.CLASS_FILE_SUFFIX)) {
-                        FileEntryPath topLevelTypePath = new FileEntryPath(path.substring(0, idx) + StringConstants.CLASS_FILE_SUFFIX);
-                        matchingOuterEntriesSet.add(entry.getParent().getChildren().get(topLevelTypePath));
-                    } else {
-                        matchingOuterEntriesSet.add(entry);
+                    if (outerEntries != null) {
+                        for (Container.Entry outerEntry : outerEntries) {
+                            if (outerEntry.getContainer() == entry.getContainer()) {
+                                outerTypeEntry = outerEntry;
+                                break;
+                            }
+                        }
                     }
                 }
-            } else {
-                matchingOuterEntriesSet.add(entry);
             }
+
+            matchingOuterEntriesSet.add(outerTypeEntry);
         }
 
         return matchingOuterEntriesSet;
     }
 
-    protected void filter(Indexes indexes, String pattern, int flags, Set<Container.Entry> matchingEntries) {
+    /**
+     * Filtered container and its number of matching types.
+     */
+    protected static class ContainerMatch {
+        private final DelegatingFilterContainer container;
+        private final int typeCount;
+
+        public ContainerMatch(DelegatingFilterContainer container, int typeCount) {
+            this.container = container;
+            this.typeCount = typeCount;
+        }
+    }
+
+    /**
+     * @return the names of the indexes to match
+     */
+    protected static List<String> getIndexNames(int flags) {
         boolean declarations = (flags & SearchInConstantPoolsView.SEARCH_DECLARATION) != 0;
         boolean references = (flags & SearchInConstantPoolsView.SEARCH_REFERENCE) != 0;
+        List<String> indexNames = new ArrayList<>();
 
         if ((flags & SearchInConstantPoolsView.SEARCH_TYPE) != 0) {
-            if (declarations) {
-                match(indexes, "typeDeclarations", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar, SearchInConstantPoolsController::matchTypeEntriesWithString,
-                        matchingEntries);
-            }
-            if (references) {
-                match(indexes, "typeReferences", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar, SearchInConstantPoolsController::matchTypeEntriesWithString,
-                        matchingEntries);
-            }
+            addIndexNames(indexNames, declarations, "typeDeclarations", references, "typeReferences");
         }
-
         if ((flags & SearchInConstantPoolsView.SEARCH_CONSTRUCTOR) != 0) {
-            if (declarations) {
-                match(indexes, "constructorDeclarations", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar,
-                        SearchInConstantPoolsController::matchTypeEntriesWithString, matchingEntries);
-            }
-            if (references) {
-                match(indexes, "constructorReferences", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar,
-                        SearchInConstantPoolsController::matchTypeEntriesWithString, matchingEntries);
-            }
+            addIndexNames(indexNames, declarations, "constructorDeclarations", references, "constructorReferences");
         }
-
         if ((flags & SearchInConstantPoolsView.SEARCH_METHOD) != 0) {
-            if (declarations) {
-                match(indexes, "methodDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
-            }
-            if (references) {
-                match(indexes, "methodReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
-            }
+            addIndexNames(indexNames, declarations, "methodDeclarations", references, "methodReferences");
         }
-
         if ((flags & SearchInConstantPoolsView.SEARCH_FIELD) != 0) {
-            if (declarations) {
-                match(indexes, "fieldDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
-            }
-            if (references) {
-                match(indexes, "fieldReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
-            }
+            addIndexNames(indexNames, declarations, "fieldDeclarations", references, "fieldReferences");
         }
-
         if ((flags & SearchInConstantPoolsView.SEARCH_STRING) != 0 && (declarations || references)) {
-            match(indexes, "strings", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+            indexNames.add("strings");
         }
-
         if ((flags & SearchInConstantPoolsView.SEARCH_MODULE) != 0) {
-            if (declarations) {
-                match(indexes, "javaModuleDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString,
-                        matchingEntries);
-            }
-            if (references) {
-                match(indexes, "javaModuleReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
-            }
+            addIndexNames(indexNames, declarations, "javaModuleDeclarations", references, "javaModuleReferences");
         }
+
+        return indexNames;
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    protected void match(Indexes indexes, String indexName, String pattern, BiFunction<Character, Map<String, Collection>, Map<String, Collection>> matchWithCharFunction,
-            BiFunction<String, Map<String, Collection>, Map<String, Collection>> matchWithStringFunction, Set<Container.Entry> matchingEntries) {
-        int patternLength = pattern.length();
+    private static void addIndexNames(List<String> indexNames, boolean declarations, String declarationIndexName, boolean references, String referenceIndexName) {
+        if (declarations) {
+            indexNames.add(declarationIndexName);
+        }
+        if (references) {
+            indexNames.add(referenceIndexName);
+        }
+    }
 
-        if (patternLength > 0) {
-            String key = indexes.hashCode() + "***" + indexName + "***" + pattern;
-            String lastKey = key.substring(0, key.length() - 1);
-            Map<String, Collection> lastMatchedTypes = cache.get(lastKey);
-            Map<String, Collection> matchedEntries = cache.computeIfAbsent(key, k -> {
-                Map<String, Collection> index = indexes.getIndex(indexName);
-                if (index != null) {
-                    if (patternLength == 1) {
-                        return matchWithCharFunction.apply(pattern.charAt(0), index);
-                    }
-                    if (lastMatchedTypes != null) {
-                        return matchWithStringFunction.apply(pattern, lastMatchedTypes);
-                    }
-                    return matchWithStringFunction.apply(pattern, index);
-                }
-                return null;
-            });
+    /**
+     * May be called by several searchers. The results of a superseded query
+     * are not cached, as they are incomplete.
+     *
+     * @return the matched keys of the index and their entries, or null if the index does not exist
+     */
+    @SuppressWarnings("rawtypes")
+    protected Map<String, Collection> match(Indexes indexes, String indexName, String pattern, Query query) {
+        if (pattern.isEmpty()) {
+            return null;
+        }
+
+        String key = indexes.hashCode() + "***" + indexName + "***" + pattern;
+        String lastKey = key.substring(0, key.length() - 1);
+        Map<String, Collection> matchedEntries = cache.get(key);
+
+        if (matchedEntries == null) {
+            matchedEntries = match(indexes, indexName, pattern, cache.get(lastKey), query);
 
             if (matchedEntries != null) {
-                for (Collection<Container.Entry> entries : matchedEntries.values()) {
-                    matchingEntries.addAll(entries);
-                }
+                cache.put(key, matchedEntries);
             }
         }
+
+        return matchedEntries;
+    }
+
+    /**
+     * Match an index, or the keys matched by the pattern without its last character if known, or the candidate keys
+     * of the trigram index of the index if fewer.
+     *
+     * @return the matched keys of the index and their entries, or null if the index does not exist
+     */
+    @SuppressWarnings("rawtypes")
+    protected static Map<String, Collection> match(Indexes indexes, String indexName, String pattern, Map<String, Collection> lastMatchedEntries, Query query) {
+        Map<String, Collection> index = indexes.getIndex(indexName);
+
+        if (index == null) {
+            return null;
+        }
+
+        // Keys of type indexes are matched on their simple names
+        boolean typeIndex = indexName.startsWith("type") || indexName.startsWith("constructor");
+        int patternLength = pattern.length();
+
+        if (patternLength == 1) {
+            char c = pattern.charAt(0);
+            return typeIndex ? matchTypeEntriesWithChar(c, index, query) : matchWithChar(c, index, query);
+        }
+
+        TrigramIndex trigramIndex = patternLength < 3 ? null : TrigramIndex.get(indexes, indexName);
+        List<String> candidates = trigramIndex == null ? null : trigramIndex.getCandidates(pattern);
+
+        if (candidates != null && (lastMatchedEntries == null || candidates.size() < lastMatchedEntries.size())) {
+            return matchWithString(pattern, candidates, index, query);
+        }
+
+        Map<String, Collection> entries = lastMatchedEntries != null ? lastMatchedEntries : index;
+
+        return typeIndex ? matchTypeEntriesWithString(pattern, entries, query) : matchWithString(pattern, entries, query);
     }
 
     @SuppressWarnings("rawtypes")
-    protected static Map<String, Collection> matchTypeEntriesWithChar(char c, Map<String, Collection> index) {
+    protected static Map<String, Collection> matchTypeEntriesWithChar(char c, Map<String, Collection> index, Query query) {
         if (c == '*' || c == '?') {
             return index;
         }
@@ -324,6 +349,7 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         int lastTypeNameSeparatorIndex;
         int lastIndex;
         for (Map.Entry<String, Collection> entry : index.entrySet()) {
+            query.checkCancelled();
             typeName = entry.getKey();
             // Search last package separator
             lastPackageSeparatorIndex = typeName.lastIndexOf('/') + 1;
@@ -339,7 +365,7 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
     }
 
     @SuppressWarnings("rawtypes")
-    protected static Map<String, Collection> matchTypeEntriesWithString(String pattern, Map<String, Collection> index) {
+    protected static Map<String, Collection> matchTypeEntriesWithString(String pattern, Map<String, Collection> index, Query query) {
         Pattern p = createPattern(pattern);
         Map<String, Collection> map = new HashMap<>();
 
@@ -348,6 +374,7 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         int lastTypeNameSeparatorIndex;
         int lastIndex;
         for (Map.Entry<String, Collection> entry : index.entrySet()) {
+            query.checkCancelled();
             typeName = entry.getKey();
             // Search last package separator
             lastPackageSeparatorIndex = typeName.lastIndexOf('/') + 1;
@@ -363,7 +390,7 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
     }
 
     @SuppressWarnings("rawtypes")
-    protected static Map<String, Collection> matchWithChar(char c, Map<String, Collection> index) {
+    protected static Map<String, Collection> matchWithChar(char c, Map<String, Collection> index, Query query) {
         if (c == '*' || c == '?') {
             return index;
         }
@@ -371,6 +398,7 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
 
         String key;
         for (Map.Entry<String, Collection> entry : index.entrySet()) {
+            query.checkCancelled();
             key = entry.getKey();
             if (!key.isEmpty() && key.charAt(0) == c) {
                 map.put(key, entry.getValue());
@@ -381,12 +409,13 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
     }
 
     @SuppressWarnings("rawtypes")
-    protected static Map<String, Collection> matchWithString(String pattern, Map<String, Collection> index) {
+    protected static Map<String, Collection> matchWithString(String pattern, Map<String, Collection> index, Query query) {
         Pattern p = createPattern(pattern);
         Map<String, Collection> map = new HashMap<>();
 
         String key;
         for (Map.Entry<String, Collection> entry : index.entrySet()) {
+            query.checkCancelled();
             key = entry.getKey();
             if (p.matcher(key).matches()) {
                 map.put(key, entry.getValue());
@@ -396,6 +425,24 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         return map;
     }
 
+    /**
+     * Match the candidate keys of a trigram index only.
+     */
+    @SuppressWarnings("rawtypes")
+    protected static Map<String, Collection> matchWithString(String pattern, List<String> candidates, Map<String, Collection> index, Query query) {
+        Pattern p = createPattern(pattern);
+        Map<String, Collection> map = new HashMap<>();
+
+        for (String key : candidates) {
+            query.checkCancelled();
+            if (p.matcher(key).matches()) {
+                map.put(key, index.get(key));
+            }
+        }
+
+        return map;
+    }
+
     /**
      * Create a simple regular expression
      *
@@ -19,11 +19,11 @@ import org.jd.gui.service.type.TypeFactoryService;
 import org.jd.gui.spi.TypeFactory;
 import org.jd.gui.util.ImageUtil;
 import org.jd.gui.util.decompiler.ContainerLoader;
+import org.jd.gui.util.decompiler.DecompilationCache;
 import org.jd.gui.util.loader.LoaderUtils;
 import org.jd.gui.view.SelectLocationView;
 import org.netbeans.modules.editor.java.JavaKit;
 
-import com.heliosdecompiler.transformerapi.StandardTransformers;
 import com.heliosdecompiler.transformerapi.TransformationException;
 import com.heliosdecompiler.transformerapi.common.Loader;
 
@@ -141,7 +141,7 @@ public class SelectLocationController {
             String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
             Loader apiLoader = LoaderUtils.createLoader(preferences, containerLoader, entry);
             String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-            DecompilationResult decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
+            DecompilationResult decompilationResult = DecompilationCache.getInstance().decompile(containerLoader, apiLoader, entryInternalName, preferences, decompileEngine);
             return decompilationResult.getDecompiledOutput();
         }
         try (InputStream in = entry.getInputStream()) {
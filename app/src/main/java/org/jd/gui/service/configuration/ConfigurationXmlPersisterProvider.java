@@ -82,6 +82,13 @@ public class ConfigurationXmlPersisterProvider implements ConfigurationPersister
         return new File(Constants.CONFIG_FILENAME);
     }
 
+    /**
+     * @return the directory of the configuration file, where other persistent data may be stored
+     */
+    public static File getConfigDirectory() {
+        return FILE.getAbsoluteFile().getParentFile();
+    }
+
     @Override
     public Configuration load() {
         // Default values
@@ -0,0 +1,498 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.entry.path.DirectoryEntryPath;
+import org.jd.gui.model.container.entry.path.FileEntryPath;
+import org.jd.gui.service.configuration.ConfigurationXmlPersisterProvider;
+import org.jd.util.SHA1Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_ENABLED;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_MAX_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_SHA1;
+
+/**
+ * Persistent store of the indexes of archives, keyed by canonical path, size and last modification time of the
+ * archive, and optionally by its SHA-1.
+ * <br>
+ * Entries are stored as the list of paths leading from the archive to the entry, nested archives included, and
+ * resolved again in the tree of the reopened archive. Cache files are evicted in least recently used order when the
+ * size of the cache directory exceeds the configured budget.
+ */
+@SuppressWarnings("rawtypes")
+public class IndexesCacheService {
+    protected static final IndexesCacheService INDEXES_CACHE_SERVICE = new IndexesCacheService();
+
+    /**
+     * To increment each time indexers produce different indexes.
+     */
+    protected static final int FORMAT_VERSION = 2;
+    protected static final int MAGIC = 0x4A44494E; // "JDIN"
+    protected static final String CACHE_DIRECTORY_NAME = "jd-gui-duo.indexes";
+    protected static final String CACHE_FILE_SUFFIX = ".idx";
+    protected static final String NESTED_SEPARATOR = "!/";
+    protected static final long DEFAULT_MAX_SIZE_MB = 512;
+
+    private static final byte VALUE_ENTRY = 0;
+    private static final byte VALUE_STRING = 1;
+    // Bounds of the values read from a cache file, which may be damaged
+    private static final int MAX_COUNT = 1 << 24;
+    private static final int MAX_STRING_LENGTH = 1 << 20;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 12;
+
+    public static IndexesCacheService getInstance() { return INDEXES_CACHE_SERVICE; }
+
+    private final File directory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "indexes-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected IndexesCacheService() {
+        this(new File(ConfigurationXmlPersisterProvider.getConfigDirectory(), CACHE_DIRECTORY_NAME));
+    }
+
+    /**
+     * @param directory the directory of the cache files
+     */
+    protected IndexesCacheService(File directory) {
+        this.directory = directory;
+    }
+
+    public static boolean isEnabled(API api) {
+        return !"false".equals(api.getPreferences().get(INDEXES_CACHE_ENABLED));
+    }
+
+    /**
+     * @return the indexes of the archive, or null if they are not cached or if the cache is stale
+     */
+    public Map<String, Map<String, Collection>> load(API api, Container.Entry topEntry) {
+        File archive = getArchive(topEntry);
+
+        if (archive != null) {
+            File cacheFile = getCacheFile(archive);
+
+            if (cacheFile != null && cacheFile.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile.toPath()), 1 << 16), 1 << 16))) {
+                    Map<String, Map<String, Collection>> map = read(in, api, archive, topEntry);
+
+                    if (map != null) {
+                        // Least recently used eviction is based on last modification time
+                        cacheFile.setLastModified(System.currentTimeMillis());
+                        return map;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+                // Stale or corrupted cache file
+                deleteQuietly(cacheFile);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Write the indexes in background.
+     */
+    public void store(API api, Container.Entry topEntry, Map<String, Map<String, Collection>> map) {
+        File archive = getArchive(topEntry);
+
+        if (archive != null) {
+            boolean sha1 = "true".equals(api.getPreferences().get(INDEXES_CACHE_SHA1));
+            long maxSize = getMaxSize(api);
+
+            writer.execute(() -> {
+                File cacheFile = getCacheFile(archive);
+
+                if (cacheFile != null && (directory.isDirectory() || directory.mkdirs())) {
+                    File tmpFile = new File(directory, cacheFile.getName() + ".tmp");
+                    boolean written = false;
+
+                    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FastGZIPOutputStream(Files.newOutputStream(tmpFile.toPath())), 1 << 16))) {
+                        written = write(out, archive, sha1, topEntry, map);
+                    } catch (IOException e) {
+                        assert ExceptionUtil.printStackTrace(e);
+                    }
+
+                    try {
+                        if (written) {
+                            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                            evict(maxSize);
+                        } else {
+                            Files.deleteIfExists(tmpFile.toPath());
+                        }
+                    } catch (IOException e) {
+                        assert ExceptionUtil.printStackTrace(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait for the end of the writing of the indexes stored before.
+     */
+    protected void flush() throws InterruptedException, ExecutionException {
+        writer.submit(() -> {}).get();
+    }
+
+    protected static File getArchive(Container.Entry topEntry) {
+        if ("file".equals(topEntry.getUri().getScheme())) {
+            File file = new File(topEntry.getUri());
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    protected File getCacheFile(File archive) {
+        try {
+            String key = archive.getCanonicalPath() + '|' + archive.length() + '|' + archive.lastModified();
+            return new File(directory, SHA1Util.computeSHA1(key.getBytes(StandardCharsets.UTF_8)) + CACHE_FILE_SUFFIX);
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return null;
+        }
+    }
+
+    protected static long getMaxSize(API api) {
+        long maxSizeMB = DEFAULT_MAX_SIZE_MB;
+        try {
+            maxSizeMB = Long.parseLong(api.getPreferences().getOrDefault(INDEXES_CACHE_MAX_SIZE, String.valueOf(DEFAULT_MAX_SIZE_MB)));
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return maxSizeMB * 1024 * 1024;
+    }
+
+    protected void evict(long maxSize) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(CACHE_FILE_SUFFIX));
+
+        if (files != null) {
+            long totalSize = 0;
+            for (File file : files) {
+                totalSize += file.length();
+            }
+            if (totalSize > maxSize) {
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                for (File file : files) {
+                    if (totalSize <= maxSize) {
+                        break;
+                    }
+                    totalSize -= file.length();
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    protected static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
+
+    // --- Writing --- //
+    protected static boolean write(DataOutputStream out, File archive, boolean sha1, Container.Entry topEntry, Map<String, Map<String, Collection>> map) throws IOException {
+        // Number entries
+        Map<Container.Entry, Integer> entryIds = new IdentityHashMap<>();
+        List<String> entryPaths = new ArrayList<>();
+
+        for (Map<String, Collection> index : map.values()) {
+            for (Collection values : index.values()) {
+                for (Object value : values) {
+                    if (value instanceof Container.Entry) {
+                        Container.Entry entry = (Container.Entry) value;
+                        if (!entryIds.containsKey(entry)) {
+                            String path = getPath(topEntry, entry);
+                            if (path == null) {
+                                return false;
+                            }
+                            entryIds.put(entry, entryPaths.size());
+                            entryPaths.add(path);
+                        }
+                    } else if (!(value instanceof String)) {
+                        // Unsupported value type
+                        return false;
+                    }
+                }
+            }
+        }
+
+        // Header
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(archive.length());
+        out.writeLong(archive.lastModified());
+        writeString(out, sha1 ? SHA1Util.computeSHA1(archive) : "");
+
+        // Entries
+        out.writeInt(entryPaths.size());
+        for (String path : entryPaths) {
+            writeString(out, path);
+        }
+
+        // Indexes
+        out.writeInt(map.size());
+        for (Map.Entry<String, Map<String, Collection>> index : map.entrySet()) {
+            writeString(out, index.getKey());
+            out.writeInt(index.getValue().size());
+
+            for (Map.Entry<String, Collection> mapEntry : index.getValue().entrySet()) {
+                writeString(out, mapEntry.getKey());
+                out.writeInt(mapEntry.getValue().size());
+
+                for (Object value : mapEntry.getValue()) {
+                    if (value instanceof Container.Entry) {
+                        out.writeByte(VALUE_ENTRY);
+                        out.writeInt(entryIds.get(value));
+                    } else {
+                        out.writeByte(VALUE_STRING);
+                        writeString(out, (String) value);
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the paths leading from 'topEntry' to 'entry', separated by "!/", or null if 'entry' is not a descendant
+     */
+    protected static String getPath(Container.Entry topEntry, Container.Entry entry) {
+        Deque<String> paths = new ArrayDeque<>();
+        Container.Entry e = entry;
+
+        while (e != null && e != topEntry) {
+            paths.push(e.getPath());
+            Container.Entry root = e.getContainer().getRoot();
+            e = root == null ? null : root.getParent();
+        }
+
+        return e == null ? null : String.join(NESTED_SEPARATOR, paths);
+    }
+
+    /**
+     * Strings are written as UTF-16 chars to preserve unpaired surrogates of constant pools.
+     */
+    protected static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    // --- Reading --- //
+    @SuppressWarnings("unchecked")
+    protected static Map<String, Map<String, Collection>> read(DataInputStream in, API api, File archive, Container.Entry topEntry) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != archive.length() || in.readLong() != archive.lastModified()) {
+            return null;
+        }
+
+        String sha1 = readString(in);
+
+        if ("true".equals(api.getPreferences().get(INDEXES_CACHE_SHA1)) && !sha1.equals(SHA1Util.computeSHA1(archive))) {
+            return null;
+        }
+
+        // Entries
+        int entryCount = readCount(in);
+        Container.Entry[] entries = new Container.Entry[entryCount];
+        EntryResolver resolver = new EntryResolver(topEntry);
+
+        for (int i = 0; i < entryCount; i++) {
+            entries[i] = resolver.resolve(readString(in));
+            if (entries[i] == null) {
+                return null;
+            }
+        }
+
+        // Indexes
+        int indexCount = readCount(in);
+        Map<String, Map<String, Collection>> map = new HashMap<>(Math.min(indexCount, MAX_INITIAL_CAPACITY) * 2);
+
+        for (int i = 0; i < indexCount; i++) {
+            String indexName = readString(in);
+            int keyCount = readCount(in);
+            Map<String, Collection> index = new HashMap<>(Math.min(keyCount, MAX_INITIAL_CAPACITY) * 4 / 3 + 1);
+
+            for (int j = 0; j < keyCount; j++) {
+                String key = readString(in);
+                int valueCount = readCount(in);
+                List values = new ArrayList<>(Math.min(valueCount, MAX_INITIAL_CAPACITY));
+
+                for (int k = 0; k < valueCount; k++) {
+                    if (in.readByte() == VALUE_ENTRY) {
+                        int entryIndex = in.readInt();
+                        if (entryIndex < 0 || entryIndex >= entryCount) {
+                            throw new IOException("Invalid entry index " + entryIndex);
+                        }
+                        values.add(entries[entryIndex]);
+                    } else {
+                        values.add(readString(in));
+                    }
+                }
+
+                index.put(key, values);
+            }
+
+            map.put(indexName, index);
+        }
+
+        return map;
+    }
+
+    protected static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length * 2];
+        in.readFully(bytes);
+        char[] chars = new char[length];
+        for (int i = 0, j = 0; i < length; i++, j += 2) {
+            chars[i] = (char) (((bytes[j] & 0xFF) << 8) | (bytes[j + 1] & 0xFF));
+        }
+        return new String(chars);
+    }
+
+    protected static class EntryResolver {
+        private final Container.Entry topEntry;
+        private final Map<String, Container.Entry> directories = new HashMap<>();
+
+        public EntryResolver(Container.Entry topEntry) {
+            this.topEntry = topEntry;
+        }
+
+        public Container.Entry resolve(String chain) {
+            Container.Entry entry = topEntry;
+            int start = 0;
+            int index;
+
+            // Nested archives
+            while ((index = chain.indexOf(NESTED_SEPARATOR, start)) != -1) {
+                entry = resolve(chain, start, index, entry);
+                if (entry == null) {
+                    return null;
+                }
+                start = index + NESTED_SEPARATOR.length();
+            }
+
+            return resolve(chain, start, chain.length(), entry);
+        }
+
+        protected Container.Entry resolve(String chain, int start, int end, Container.Entry archiveEntry) {
+            Container.Entry parent = archiveEntry;
+            int index = chain.lastIndexOf('/', end - 1);
+
+            if (index >= start) {
+                String directoryKey = chain.substring(0, index);
+                parent = directories.get(directoryKey);
+
+                if (parent == null) {
+                    // Walk down the directories
+                    parent = archiveEntry;
+                    for (int i = chain.indexOf('/', start); i != -1 && i <= index && parent != null; i = chain.indexOf('/', i + 1)) {
+                        String key = chain.substring(0, i);
+                        Container.Entry directory = directories.get(key);
+                        if (directory == null) {
+                            directory = getChild(parent, new DirectoryEntryPath(chain.substring(start, i)));
+                            if (directory != null) {
+                                directories.put(key, directory);
+                            }
+                        }
+                        parent = directory;
+                    }
+                    if (parent == null) {
+                        return null;
+                    }
+                }
+            }
+
+            return getChild(parent, new FileEntryPath(chain.substring(start, end)));
+        }
+
+        protected static Container.Entry getChild(Container.Entry parent, Container.EntryPath entryPath) {
+            Map<Container.EntryPath, Container.Entry> children = parent.getChildren();
+
+            if (children == null) {
+                return null;
+            }
+
+            Container.Entry child = children.get(entryPath);
+
+            if (child == null) {
+                for (Container.Entry e : children.values()) {
+                    if (e.isDirectory() == entryPath.isDirectory() && e.getPath().equals(entryPath.getPath())) {
+                        return e;
+                    }
+                }
+            }
+
+            return child;
+        }
+    }
+
+    protected static class FastGZIPOutputStream extends GZIPOutputStream {
+        public FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 1 << 16);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
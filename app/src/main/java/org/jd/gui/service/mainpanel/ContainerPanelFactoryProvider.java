@@ -13,10 +13,17 @@ import org.jd.gui.api.feature.SourcesSavable;
 import org.jd.gui.api.feature.UriGettable;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
+import org.jd.gui.service.indexer.IndexesCacheService;
+import org.jd.gui.service.indexer.ParallelIndexer;
+import org.jd.gui.service.sourcesaver.DirectorySourceSaverProvider;
+import org.jd.gui.service.sourcesaver.ParallelSourceSaver;
 import org.jd.gui.spi.Indexer;
 import org.jd.gui.spi.PanelFactory;
 import org.jd.gui.spi.SourceSaver;
 import org.jd.gui.spi.TreeNodeFactory;
+import org.jd.gui.util.index.CompactIndexes;
+import org.jd.gui.util.index.TrigramIndex;
+import org.jd.gui.util.index.TypeNameIndex;
 import org.jd.gui.view.component.panel.TreeTabbedPanel;
 
 import java.io.Closeable;
@@ -44,6 +51,9 @@ import javax.swing.JOptionPane;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_COMPACT;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_TRIGRAMS;
+
 public class ContainerPanelFactoryProvider implements PanelFactory {
     protected static final String[] TYPES = { "default" };
 
@@ -56,7 +66,29 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
         return (T)new ContainerPanel(api, container);
     }
 
+    /**
+     * @return the indexes of a container, as searched by the main window, compact and with their trigram indexes
+     * unless disabled by the preferences
+     */
     @SuppressWarnings("rawtypes")
+    public static Indexes newIndexes(Map<String, String> preferences, Map<String, Map<String, Collection>> map) {
+        Indexes indexes;
+
+        if ("false".equals(preferences.get(INDEXES_COMPACT))) {
+            indexes = map::get;
+        } else {
+            indexes = new CompactIndexes(map);
+        }
+
+        // Index the type names for "Open Type" with the container, not on the first search
+        TypeNameIndex.get(indexes);
+
+        if (!"false".equals(preferences.get(INDEXES_TRIGRAMS))) {
+            TrigramIndex.build(indexes);
+        }
+        return indexes;
+    }
+
     protected static class ContainerPanel extends TreeTabbedPanel implements ContentIndexable, SourcesSavable, Closeable {
         private static final long serialVersionUID = 1L;
         private transient Container.Entry entry;
@@ -84,6 +116,18 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
         /** --- ContentIndexable --- */
         @Override
         public Indexes index(API api, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+            boolean cacheEnabled = IndexesCacheService.isEnabled(api);
+
+            if (cacheEnabled) {
+                // Reload indexes of an unchanged archive
+                Map<String, Map<String, Collection>> cachedMap = IndexesCacheService.getInstance().load(api, entry);
+
+                if (cachedMap != null) {
+                    setProgressFunction.accept(100);
+                    return newIndexes(api.getPreferences(), cachedMap);
+                }
+            }
+
             Map<String, Map<String, Collection>> map = new HashMap<>();
             DelegatedMapMapWithDefault mapWithDefault = new DelegatedMapMapWithDefault(map);
 
@@ -97,8 +141,12 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
                 indexer.index(api, entry, indexesWithDefault, getProgressFunction, setProgressFunction, isCancelledFunction);
             }
 
+            if (cacheEnabled && !isCancelledFunction.getAsBoolean()) {
+                IndexesCacheService.getInstance().store(api, entry, map);
+            }
+
             // To prevent memory leaks, return an index without the 'populate' behaviour
-            return map::get;
+            return newIndexes(api.getPreferences(), map);
         }
 
         /** --- SourcesSavable --- */
@@ -126,25 +174,43 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
                     Files.createDirectories(parentPath);
                 }
 
+                SourceSaver saver = api.getSourceSaver(entry);
+
+                if (ParallelSourceSaver.isEnabled(api, saver)) {
+                    // Stream the sources into the archive, decompiling them in parallel
+                    ParallelSourceSaver parallelSaver = new ParallelSourceSaver(api, ParallelIndexer.getParallelism(api), getProgressFunction, setProgressFunction, isCancelledFunction);
+
+                    try {
+                        parallelSaver.save(entry, (DirectorySourceSaverProvider) saver, path);
+                    } catch (AccessDeniedException e) {
+                        assert ExceptionUtil.printStackTrace(e);
+                        showAccessDeniedMessage();
+                    }
+                    return;
+                }
+
                 URI uri = path.toUri();
                 URI archiveUri = new URI("jar:" + uri.getScheme(), uri.getHost(), uri.getPath() + "!/", null);
 
                 try (FileSystem archiveFs = FileSystems.newFileSystem(archiveUri, Collections.singletonMap("create", "true"))) {
                     Path archiveRootPath = archiveFs.getPath("/");
-                    SourceSaver saver = api.getSourceSaver(entry);
 
                     if (saver != null) {
                         saver.saveContent(api, archiveRootPath, archiveRootPath, entry, getProgressFunction, setProgressFunction, isCancelledFunction);
                     }
                 } catch (AccessDeniedException e) {
                     assert ExceptionUtil.printStackTrace(e);
-                    JOptionPane.showMessageDialog(getParent(), "Not authorized to save to this destination. Please restart as administrator or choose another location.", "Access denied", JOptionPane.ERROR_MESSAGE);
+                    showAccessDeniedMessage();
                 }
             } catch (URISyntaxException|IOException e) {
                 assert ExceptionUtil.printStackTrace(e);
             }
         }
 
+        protected void showAccessDeniedMessage() {
+            JOptionPane.showMessageDialog(getParent(), "Not authorized to save to this destination. Please restart as administrator or choose another location.", "Access denied", JOptionPane.ERROR_MESSAGE);
+        }
+
         @Override
         public void close() throws IOException {
             if (container instanceof Closeable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
@@ -12,6 +12,7 @@ import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
 import org.jd.gui.api.model.Type;
+import org.jd.gui.service.indexer.ClassFileIndexerProvider;
 import org.jd.gui.service.type.TypeFactoryService;
 import org.jd.gui.spi.TypeFactory;
 
@@ -58,8 +59,10 @@ public final class UriUtil {
             try {
                 for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
                     if (futureIndexes.isDone()) {
+                        Indexes indexes = futureIndexes.get();
+                        String topLevelTypeName = ClassFileIndexerProvider.getTopLevelTypeName(indexes, outerName);
                         @SuppressWarnings("unchecked")
-                        Collection<Container.Entry> outerEntries = futureIndexes.get().getIndex("typeDeclarations").get(outerName);
+                        Collection<Container.Entry> outerEntries = indexes.getIndex("typeDeclarations").get(topLevelTypeName == null ? outerName : topLevelTypeName);
 
                         if (outerEntries != null) {
                             for (Container.Entry outerEntry : outerEntries) {
@@ -28,10 +28,7 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -57,9 +54,7 @@ import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 
 public class OpenTypeView {
-    protected static final int MAX_LINE_COUNT = 80;
-
-    private final API api;
+    public static final int MAX_LINE_COUNT = 80;
 
     private JDialog openTypeDialog;
     private JTextField openTypeEnterTextField;
@@ -69,7 +64,6 @@ public class OpenTypeView {
 
     @SuppressWarnings("unchecked")
     public OpenTypeView(API api, JFrame mainFrame, Consumer<String> changedPatternCallback, TriConsumer<Point, Collection<Container.Entry>, String> selectedTypeCallback) {
-        this.api = api;
         // Build GUI
         SwingUtil.invokeLater(() -> {
             openTypeDialog = new JDialog(mainFrame, "Open Type", false);
@@ -229,35 +223,33 @@ public class OpenTypeView {
         SwingUtil.invokeLater(() -> openTypeDialog.setCursor(Cursor.getDefaultCursor()));
     }
 
+    /**
+     * Display the matching types, without reading them: the labels are made from the type names, until
+     * {@link #updateTypes(Map)}.
+     *
+     * @param map   the best matching type names, best first, and their entries
+     * @param count the number of matching types
+     */
     @SuppressWarnings("unchecked")
-    public void updateList(Map<String, Collection<Container.Entry>> map) {
+    public void updateList(Map<String, Collection<Container.Entry>> map, int count) {
         SwingUtil.invokeLater(() -> {
             @SuppressWarnings("all")
             DefaultListModel model = (DefaultListModel)openTypeList.getModel();
-            List<String> typeNames = new ArrayList<>(map.keySet());
-            int index = 0;
-
-            typeNames.sort(Comparator.comparing(OpenTypeView::getSimpleTypeName));
 
             model.removeAllElements();
 
-            for (String typeName : typeNames) {
-                if (index < MAX_LINE_COUNT) {
-                    Collection<Container.Entry> entries = map.get(typeName);
-                    Container.Entry firstEntry = entries.iterator().next();
-                    Type type = api.getTypeFactory(firstEntry).make(api, firstEntry, typeName);
+            for (Map.Entry<String, Collection<Container.Entry>> mapEntry : map.entrySet()) {
+                String typeName = mapEntry.getKey();
+                int lastPackageSeparatorIndex = typeName.lastIndexOf('/');
+                String displayTypeName = typeName.substring(lastPackageSeparatorIndex + 1).replace('$', '.');
+                String displayPackageName = lastPackageSeparatorIndex == -1 ? "" : typeName.substring(0, lastPackageSeparatorIndex).replace('/', '.');
 
-                    if (type != null) {
-                        model.addElement(new OpenTypeListCellBean(type.getDisplayTypeName(), type.getDisplayPackageName(), type.getIcon(), entries, typeName));
-                    } else {
-                        model.addElement(new OpenTypeListCellBean(typeName, entries, typeName));
-                    }
-                } else if (index == MAX_LINE_COUNT) {
-                    model.addElement(null);
-                }
+                model.addElement(new OpenTypeListCellBean(displayTypeName, displayPackageName, null, mapEntry.getValue(), typeName));
             }
 
-            int count = typeNames.size();
+            if (count > map.size()) {
+                model.addElement(null);
+            }
 
             switch (count) {
                 case 0:
@@ -272,6 +264,29 @@ public class OpenTypeView {
         });
     }
 
+    /**
+     * Replace the labels of the listed types by their display names and icons.
+     */
+    @SuppressWarnings("unchecked")
+    public void updateTypes(Map<String, Type> types) {
+        SwingUtil.invokeLater(() -> {
+            @SuppressWarnings("all")
+            DefaultListModel model = (DefaultListModel)openTypeList.getModel();
+
+            for (int i = 0, size = model.getSize(); i < size; i++) {
+                OpenTypeListCellBean bean = (OpenTypeListCellBean)model.getElementAt(i);
+
+                if (bean != null) {
+                    Type type = types.get(bean.getTypeName());
+
+                    if (type != null) {
+                        model.setElementAt(new OpenTypeListCellBean(type.getDisplayTypeName(), type.getDisplayPackageName(), type.getIcon(), bean.getEntries(), bean.getTypeName()), i);
+                    }
+                }
+            }
+        });
+    }
+
     public void focus() {
         SwingUtil.invokeLater(() -> openTypeList.requestFocus());
     }
@@ -289,8 +304,4 @@ public class OpenTypeView {
             }
         });
     }
-
-    private static String getSimpleTypeName(String typeName) {
-        return typeName.substring(typeName.lastIndexOf('/') + 1);
-    }
 }
@@ -6,6 +6,7 @@ import org.jd.core.v1.util.StringConstants;
 import org.jd.core.v1.util.ZipLoader;
 import org.jd.gui.api.API;
 import org.jd.gui.util.ImageUtil;
+import org.jd.gui.util.decompiler.DecompilationWatchdog;
 import org.jd.gui.util.loader.LoaderUtils;
 import org.jdesktop.swingx.JXTable;
 import org.jdesktop.swingx.decorator.HighlighterFactory;
@@ -13,9 +14,7 @@ import org.netbeans.modules.editor.java.JavaKit;
 import org.oxbow.swingbits.list.CheckListRenderer;
 import org.oxbow.swingbits.table.filter.TableRowFilterSupport;
 
-import com.heliosdecompiler.transformerapi.StandardTransformers;
 import com.heliosdecompiler.transformerapi.TransformationException;
-import com.heliosdecompiler.transformerapi.common.Loader;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -50,7 +49,6 @@ import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
 
 import de.cismet.custom.visualdiff.DiffPanel;
 import jd.core.ClassUtil;
-import jd.core.DecompilationResult;
 import jd.core.preferences.Preferences;
 
 /**
@@ -200,14 +198,14 @@ public class CompareWindow {
             Map<String, String> preferences = api.getPreferences();
             preferences.put(Preferences.WRITE_LINE_NUMBERS, "false");
             preferences.put(Preferences.REALIGN_LINE_NUMBERS, "false");
-            try (FileInputStream in = new FileInputStream(file)) {
-                ZipLoader zipLoader = new ZipLoader(in);
-                String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-                Loader apiLoader = LoaderUtils.createLoader(preferences, zipLoader, file.toURI());
-                String entryInternalName = ClassUtil.getInternalName(entryPath);
-                DecompilationResult decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
-                return decompilationResult.getDecompiledOutput();
-            }
+            String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
+            String entryInternalName = ClassUtil.getInternalName(entryPath);
+            // A loader per decompilation: a decompilation exceeding its budget may still be reading its loader
+            return DecompilationWatchdog.getInstance().decompile(() -> {
+                try (FileInputStream in = new FileInputStream(file)) {
+                    return new ZipLoader(in);
+                }
+            }, zipLoader -> LoaderUtils.createLoader(preferences, zipLoader, file.toURI()), entryInternalName, preferences, decompileEngine);
         }
         try (ZipFile zipFile = new ZipFile(file); InputStream in = zipFile.getInputStream(zipFile.getEntry(entryPath))) {
             return IOUtils.toString(in, StandardCharsets.UTF_8);
@@ -0,0 +1,257 @@
+package org.jd.gui.service.indexer;
+
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.batch.HeadlessApi;
+import org.jd.gui.model.container.GenericContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SuppressWarnings("rawtypes")
+public class IndexesCacheServiceTest {
+    private static final String[] PATHS = { "META-INF/MANIFEST.MF", "a/D.class", "a/b/C.class", "a/b/C$1.class" };
+
+    @TempDir
+    Path tmpDir;
+
+    private final API api = new HeadlessApi(new HashMap<>());
+    private File cacheDirectory;
+    private IndexesCacheService service;
+    private File archive;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        cacheDirectory = tmpDir.resolve("cache").toFile();
+        service = new IndexesCacheService(cacheDirectory);
+        archive = tmpDir.resolve("test.jar").toFile();
+        writeArchive(archive, PATHS);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        store();
+
+        try (OpenedArchive openedArchive = new OpenedArchive(archive)) {
+            Map<String, Map<String, Collection>> map = service.load(api, openedArchive.topEntry);
+
+            assertNotNull(map);
+            // Entries resolved in the tree of the reopened archive
+            assertEquals(index(openedArchive.topEntry), map);
+        }
+    }
+
+    @Test
+    public void testChangedLastModified() throws Exception {
+        store();
+        assertNotNull(load());
+
+        assertTrue(archive.setLastModified(archive.lastModified() + 10_000));
+
+        assertNull(load());
+    }
+
+    @Test
+    public void testChangedSize() throws Exception {
+        store();
+        assertNotNull(load());
+
+        long lastModified = archive.lastModified();
+        writeArchive(archive, "META-INF/MANIFEST.MF", "a/D.class", "a/b/C.class", "a/b/C$1.class", "a/E.class");
+        assertTrue(archive.setLastModified(lastModified));
+
+        assertNull(load());
+    }
+
+    @Test
+    public void testChangedFormatVersion() throws Exception {
+        Path cacheFile = storeAndRewrite(bytes -> ByteBuffer.wrap(bytes).putInt(4, IndexesCacheService.FORMAT_VERSION + 1));
+
+        assertNull(load());
+        // Stale cache files are deleted
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    @Test
+    public void testDamagedFile() throws Exception {
+        Path cacheFile = storeAndRewrite(bytes -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            // Entry count, after the header and the SHA-1 of the archive
+            int entryCountOffset = 28 + 2 * buffer.getInt(24);
+            buffer.putInt(entryCountOffset, Integer.MAX_VALUE);
+        });
+
+        assertNull(load());
+        // Damaged cache files are deleted
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    /**
+     * Store the indexes, then rewrite the cache file as written by another version or damaged.
+     */
+    protected Path storeAndRewrite(Consumer<byte[]> rewriter) throws Exception {
+        store();
+
+        File[] cacheFiles = cacheDirectory.listFiles((dir, name) -> name.endsWith(IndexesCacheService.CACHE_FILE_SUFFIX));
+
+        assertNotNull(cacheFiles);
+        assertEquals(1, cacheFiles.length);
+
+        Path cacheFile = cacheFiles[0].toPath();
+        byte[] bytes;
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(cacheFile))) {
+            bytes = in.readAllBytes();
+        }
+
+        assertEquals(IndexesCacheService.MAGIC, ByteBuffer.wrap(bytes).getInt(0));
+        rewriter.accept(bytes);
+
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(cacheFile))) {
+            out.write(bytes);
+        }
+
+        return cacheFile;
+    }
+
+    protected void store() throws Exception {
+        try (OpenedArchive openedArchive = new OpenedArchive(archive)) {
+            service.store(api, openedArchive.topEntry, index(openedArchive.topEntry));
+            service.flush();
+        }
+    }
+
+    protected Map<String, Map<String, Collection>> load() throws IOException {
+        try (OpenedArchive openedArchive = new OpenedArchive(archive)) {
+            return service.load(api, openedArchive.topEntry);
+        }
+    }
+
+    /**
+     * @return indexes referencing entries, by type name, and strings, by path
+     */
+    protected static Map<String, Map<String, Collection>> index(Container.Entry topEntry) {
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        index(topEntry, map);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static void index(Container.Entry entry, Map<String, Map<String, Collection>> map) {
+        for (Container.Entry child : entry.getChildren().values()) {
+            if (child.isDirectory()) {
+                index(child, map);
+            } else {
+                String path = child.getPath();
+
+                if (path.endsWith(".class")) {
+                    List entries = new ArrayList<>();
+                    entries.add(child);
+                    map.computeIfAbsent("typeDeclarations", k -> new HashMap<>()).put(path.substring(0, path.length() - 6), entries);
+                }
+
+                List strings = new ArrayList<>();
+                strings.add(path);
+                strings.add(child.getParent().getPath());
+                map.computeIfAbsent("strings", k -> new HashMap<>()).put(path, strings);
+            }
+        }
+    }
+
+    protected static void writeArchive(File file, String... paths) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            for (String path : paths) {
+                out.putNextEntry(new ZipEntry(path));
+                out.write(path.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Archive opened like by the file loaders: the top entry is the file of the archive.
+     */
+    protected class OpenedArchive implements Closeable {
+        private final FileSystem fileSystem;
+        private final GenericContainer container;
+        private final ArchiveEntry topEntry;
+
+        public OpenedArchive(File file) throws IOException {
+            fileSystem = FileSystems.newFileSystem(file.toPath(), (ClassLoader) null);
+            topEntry = new ArchiveEntry(file);
+            container = new GenericContainer(api, topEntry, fileSystem.getRootDirectories().iterator().next());
+            topEntry.children = container.getRoot().getChildren();
+        }
+
+        @Override
+        public void close() throws IOException {
+            container.close();
+            fileSystem.close();
+        }
+    }
+
+    protected static class ArchiveEntry implements Container.Entry {
+        private static final Container PARENT_CONTAINER = new Container() {
+            @Override
+            public String getType() { return "generic"; }
+            @Override
+            public Container.Entry getRoot() { return null; }
+        };
+
+        private final File file;
+        private Map<Container.EntryPath, Container.Entry> children = Collections.emptyMap();
+
+        public ArchiveEntry(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Container getContainer() { return PARENT_CONTAINER; }
+        @Override
+        public Container.Entry getParent() { return null; }
+        @Override
+        public URI getUri() { return file.toURI(); }
+        @Override
+        public String getPath() { return file.getPath(); }
+        @Override
+        public boolean isDirectory() { return false; }
+        @Override
+        public long length() { return file.length(); }
+        @Override
+        public long compressedLength() { return length(); }
+        @Override
+        public InputStream getInputStream() { return null; }
+        @Override
+        public Map<Container.EntryPath, Container.Entry> getChildren() { return children; }
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.benchmark;
+
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.batch.HeadlessApi;
+import org.jd.gui.service.indexer.ClassFileIndexerProvider;
+import org.jd.gui.service.mainpanel.ContainerPanelFactoryProvider;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_COMPACT;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_TRIGRAMS;
+
+/**
+ * Archives of the benchmarks, opened like in batch mode.
+ * <br>
+ * By default, the archives are the jars copied into 'target/corpus' by the build, with pinned versions: run the
+ * benchmarks from the directory of the module, after 'mvn -Pbenchmarks package'. Another directory may be chosen with
+ * the system property {@value #CORPUS_DIRECTORY}, to compare numbers on the same archives only.
+ */
+public class Corpus implements Closeable {
+    public static final String CORPUS_DIRECTORY = "jd.benchmark.corpus";
+    public static final String DEFAULT_CORPUS_DIRECTORY = "target/corpus";
+
+    private final HeadlessApi api = new HeadlessApi(new HashMap<>());
+    private final List<Container> containers = new ArrayList<>();
+    private final List<Container.Entry> classEntries = new ArrayList<>();
+    private final List<Container.Entry> directories = new ArrayList<>();
+
+    public static Corpus open() throws IOException {
+        File directory = new File(System.getProperty(CORPUS_DIRECTORY, DEFAULT_CORPUS_DIRECTORY));
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".jar"));
+
+        if (files == null || files.length == 0) {
+            throw new IOException("No archive in " + directory.getAbsolutePath() + ", build the module or set -D" + CORPUS_DIRECTORY);
+        }
+
+        Arrays.sort(files);
+
+        Corpus corpus = new Corpus();
+
+        for (File file : files) {
+            Container container = corpus.api.open(file);
+
+            if (container == null) {
+                corpus.close();
+                throw new IOException("Unsupported archive: " + file);
+            }
+
+            corpus.containers.add(container);
+            corpus.add(container.getRoot());
+        }
+
+        return corpus;
+    }
+
+    protected void add(Container.Entry directory) {
+        directories.add(directory);
+
+        for (Container.Entry entry : directory.getChildren().values()) {
+            if (entry.isDirectory()) {
+                add(entry);
+            } else if (entry.getPath().endsWith(".class")) {
+                classEntries.add(entry);
+            }
+        }
+    }
+
+    public HeadlessApi getApi() { return api; }
+
+    /**
+     * @return the class files, in the order of the archives and of their entries
+     */
+    public List<Container.Entry> getClassEntries() { return classEntries; }
+
+    public List<Container.Entry> getDirectories() { return directories; }
+
+    /**
+     * @return the indexes of all the class files, built like the indexes of the main window: compact and with their
+     * trigram indexes if requested
+     */
+    @SuppressWarnings("rawtypes")
+    public Indexes index(boolean compact, boolean trigrams) {
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        Indexes indexes = newIndexes(map);
+        ClassFileIndexerProvider indexer = new ClassFileIndexerProvider();
+
+        for (Container.Entry entry : classEntries) {
+            indexer.index(api, entry, indexes, () -> 0, p -> {}, () -> false);
+        }
+
+        // Like the indexes of the main window, once built: without default values
+        map.replaceAll((name, index) -> new HashMap<>(index));
+
+        Map<String, String> preferences = new HashMap<>();
+
+        preferences.put(INDEXES_COMPACT, String.valueOf(compact));
+        preferences.put(INDEXES_TRIGRAMS, String.valueOf(trigrams));
+
+        return ContainerPanelFactoryProvider.newIndexes(preferences, map);
+    }
+
+    /**
+     * @return indexes populating missing indexes and keys, like the indexes of the main window
+     */
+    @SuppressWarnings("rawtypes")
+    public static Indexes newIndexes(Map<String, Map<String, Collection>> map) {
+        return name -> map.computeIfAbsent(name, k -> new IndexWithDefault());
+    }
+
+    /**
+     * @return a sample of the class files, evenly spread over the corpus
+     */
+    public List<Container.Entry> sample(int count) {
+        if (count >= classEntries.size()) {
+            return classEntries;
+        }
+
+        List<Container.Entry> sample = new ArrayList<>(count);
+        double step = (double) classEntries.size() / count;
+
+        for (int i = 0; i < count; i++) {
+            sample.add(classEntries.get((int) (i * step)));
+        }
+
+        return Collections.unmodifiableList(sample);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Container container : containers) {
+            if (container instanceof Closeable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                ((Closeable) container).close();
+            }
+        }
+        containers.clear();
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static class IndexWithDefault extends HashMap<String, Collection> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Collection get(Object key) {
+            return computeIfAbsent((String) key, k -> new ArrayList<>());
+        }
+    }
+}
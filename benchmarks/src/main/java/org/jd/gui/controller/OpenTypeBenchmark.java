@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.controller;
+
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.benchmark.Corpus;
+import org.jd.gui.util.concurrent.QueryScheduler;
+import org.jd.gui.util.concurrent.QueryScheduler.Query;
+import org.jd.gui.util.index.TypeNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of the type declarations of the corpus by "Open Type", then ranking of the listed types. The indexes are
+ * built like the indexes of the main window, compact or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("rawtypes")
+public class OpenTypeBenchmark {
+    @Param({ "s", "S", "Str", "SB", "*Map", "Imm*Li" })
+    private String pattern;
+
+    @Param({ "true", "false" })
+    private boolean compact;
+
+    private Map<String, Collection> index;
+    private TypeNameIndex typeNameIndex;
+    // Never superseded: the checks of the cancellation are measured with the matching
+    private final Query query = new QueryScheduler(Runnable::run).newQuery();
+
+    @Setup
+    public void setup() throws IOException {
+        Indexes indexes;
+
+        try (Corpus corpus = Corpus.open()) {
+            indexes = corpus.index(compact, false);
+        }
+
+        Map<String, Collection> typeDeclarations = indexes.getIndex("typeDeclarations");
+
+        index = typeDeclarations != null ? typeDeclarations : Collections.emptyMap();
+        typeNameIndex = TypeNameIndex.get(indexes);
+    }
+
+    @Benchmark
+    public Map<String, Collection> match() {
+        Map<String, Collection> result = new HashMap<>();
+
+        if (pattern.length() == 1) {
+            OpenTypeController.match(pattern.charAt(0), index, result, query);
+        } else {
+            OpenTypeController.match(OpenTypeController.createRegExpPattern(pattern), index, result, query);
+        }
+
+        return result;
+    }
+
+    /**
+     * Match like "Open Type": with the index of the type names if the pattern is supported, "*Map" and "Imm*Li" are
+     * not.
+     */
+    @Benchmark
+    public Map<String, Collection> matchWithTypeNameIndex() {
+        if (!TypeNameIndex.isSupported(pattern)) {
+            return match();
+        }
+
+        Map<String, Collection> result = new HashMap<>();
+
+        OpenTypeController.match(pattern, typeNameIndex, index, result, query);
+
+        return result;
+    }
+
+    @Benchmark
+    public List<String> matchAndRank() {
+        return OpenTypeController.rank(pattern, Collections.singletonList(match()), query).getTypeNames();
+    }
+}
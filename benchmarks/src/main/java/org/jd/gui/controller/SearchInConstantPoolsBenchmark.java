@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.controller;
+
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.benchmark.Corpus;
+import org.jd.gui.util.concurrent.QueryScheduler;
+import org.jd.gui.util.concurrent.QueryScheduler.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of the indexes of the corpus by "Search in constant pools".
+ * <br>
+ * 'match' filters the whole index, like the first key stroke, 'matchIncrementally' filters the result of the pattern
+ * without its last character, like the next key strokes. The indexes are built like the indexes of the main window,
+ * compact or not, with trigram indexes or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("rawtypes")
+public class SearchInConstantPoolsBenchmark {
+    @Param({ "typeDeclarations", "typeReferences", "methodDeclarations", "fieldReferences", "strings" })
+    private String indexName;
+
+    @Param({ "S", "Str", "get*Name", "*Exception" })
+    private String pattern;
+
+    @Param({ "true", "false" })
+    private boolean compact;
+
+    @Param({ "true", "false" })
+    private boolean trigrams;
+
+    private Indexes indexes;
+    private Map<String, Collection> lastMatchedEntries;
+    // Never superseded: the checks of the cancellation are measured with the matching
+    private final Query query = new QueryScheduler(Runnable::run).newQuery();
+
+    @Setup
+    public void setup() throws IOException {
+        try (Corpus corpus = Corpus.open()) {
+            indexes = corpus.index(compact, trigrams);
+        }
+        if (pattern.length() > 1) {
+            lastMatchedEntries = SearchInConstantPoolsController.match(indexes, indexName, pattern.substring(0, pattern.length() - 1), null, query);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Collection> match() {
+        return SearchInConstantPoolsController.match(indexes, indexName, pattern, null, query);
+    }
+
+    @Benchmark
+    public Map<String, Collection> matchIncrementally() {
+        return SearchInConstantPoolsController.match(indexes, indexName, pattern, lastMatchedEntries, query);
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing of a class file, the class files of the corpus being indexed in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassFileIndexerBenchmark {
+    private Corpus corpus;
+    private List<Container.Entry> entries;
+    private ClassFileIndexerProvider indexer;
+    private Indexes indexes;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Corpus.open();
+        entries = corpus.getClassEntries();
+        indexer = new ClassFileIndexerProvider();
+    }
+
+    @Setup(Level.Iteration)
+    @SuppressWarnings("rawtypes")
+    public void newIndexes() {
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        indexes = Corpus.newIndexes(map);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+
+    @Benchmark
+    public Indexes index() {
+        Container.Entry entry = entries.get(next);
+
+        next = (next + 1) % entries.size();
+        indexer.index(corpus.getApi(), entry, indexes, () -> 0, p -> {}, () -> false);
+        return indexes;
+    }
+}
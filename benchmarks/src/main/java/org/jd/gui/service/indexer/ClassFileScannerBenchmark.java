@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.apache.commons.io.IOUtils;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.benchmark.Corpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning of a class file by the allocation light scanner and by ASM, the class files of the corpus being scanned in
+ * turn. The bytes are read once, at setup: run with '-prof gc' to compare the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassFileScannerBenchmark {
+    private final List<byte[]> classFiles = new ArrayList<>();
+    private ClassFileIndexerProvider indexer;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        try (Corpus corpus = Corpus.open()) {
+            for (Container.Entry entry : corpus.getClassEntries()) {
+                try (InputStream inputStream = entry.getInputStream()) {
+                    classFiles.add(IOUtils.toByteArray(inputStream));
+                }
+            }
+        }
+        indexer = new ClassFileIndexerProvider();
+    }
+
+    @Benchmark
+    public String scan() throws IOException {
+        byte[] classFile = nextClassFile();
+
+        indexer.clearSets();
+        return indexer.scan(new ByteArrayInputStream(classFile));
+    }
+
+    @Benchmark
+    public String scanWithASM() {
+        byte[] classFile = nextClassFile();
+
+        indexer.clearSets();
+        return indexer.scanWithASM(classFile, 0, classFile.length);
+    }
+
+    protected byte[] nextClassFile() {
+        byte[] classFile = classFiles.get(next);
+
+        next = (next + 1) % classFiles.size();
+        return classFile;
+    }
+}
@@ -14,7 +14,12 @@ import org.jd.gui.api.model.Container;
 import org.jd.gui.model.container.entry.path.SimpleEntryPath;
 import org.jd.gui.spi.ContainerFactory;
 import org.jd.gui.util.TempFile;
+import org.jd.gui.util.container.ClassBytesCache;
+import org.jd.gui.util.container.ContainerClassIndex;
 import org.jd.gui.util.index.IndexesUtil;
+import org.jd.gui.util.zip.NestedArchive;
+import org.jd.gui.util.zip.NestedArchiveFileSystemProvider;
+import org.jd.gui.util.zip.ZipDirectory;
 
 import java.io.Closeable;
 import java.io.File;
@@ -22,13 +27,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -46,6 +54,9 @@ public class GenericContainer implements Container, Closeable {
     private final int rootNameCount;
     private final Container.Entry root;
     private ZipFile zipFile; // closed when tab is closed
+    private final Deque<Closeable> nestedResources = new ArrayDeque<>(); // closed when tab is closed
+    private ZipDirectory zipDirectory;
+    private boolean zipDirectoryLoaded;
 
     public GenericContainer(API api, Container.Entry parentEntry, Path rootPath) {
         this.api = api;
@@ -86,6 +97,55 @@ public class GenericContainer implements Container, Closeable {
     @Override
     public Container.Entry getRoot() { return root; }
 
+    /**
+     * @return the central directory of the archive of this container, null if the container is not an archive or if
+     *         the archive can not be read in place
+     */
+    protected synchronized ZipDirectory getZipDirectory() {
+        if (!zipDirectoryLoaded) {
+            zipDirectoryLoaded = true;
+            try {
+                zipDirectory = openZipDirectory();
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+        return zipDirectory;
+    }
+
+    /**
+     * @return the central directory of the archive of this container, read from the buffer of a nested archive or from
+     *         the archive file, released when this container is closed
+     */
+    protected ZipDirectory openZipDirectory() throws IOException {
+        Container.Entry parentEntry = root.getParent();
+        File file;
+
+        if (parentEntry instanceof Entry) {
+            Entry entry = (Entry) parentEntry;
+
+            if (entry.nestedArchive != null) {
+                return new ZipDirectory(entry.nestedArchive);
+            }
+            if (entry.fsPath.getFileSystem() != FileSystems.getDefault()) {
+                return null;
+            }
+            file = entry.fsPath.toFile();
+        } else {
+            file = new File(parentEntry.getPath());
+        }
+
+        if (file.isFile()) {
+            return ZipDirectory.open(file.toPath());
+        }
+
+        return null;
+    }
+
+    protected synchronized void addNestedResource(Closeable closeable) {
+        nestedResources.push(closeable);
+    }
+
     protected class Entry implements Container.Entry {
         private final Container.Entry parent;
         private final Path fsPath;
@@ -93,6 +153,7 @@ public class GenericContainer implements Container, Closeable {
         private URI uri;
         private Boolean isDirectory;
         private Map<Container.EntryPath, Container.Entry> children;
+        private ByteBuffer nestedArchive;
 
         public Entry(Container.Entry parent, Path fsPath, URI uri) {
             this.parent = parent;
@@ -175,7 +236,7 @@ public class GenericContainer implements Container, Closeable {
         @Override
         public InputStream getInputStream() {
             try {
-                return Files.newInputStream(fsPath);
+                return ClassBytesCache.getInstance().getInputStream(this, () -> Files.newInputStream(fsPath));
             } catch (IOException e) {
                 assert ExceptionUtil.printStackTrace(e);
                 return null;
@@ -215,29 +276,82 @@ public class GenericContainer implements Container, Closeable {
             }
         }
 
-        @SuppressWarnings("resource")
         protected Map<Container.EntryPath, Container.Entry> loadChildrenFromFileEntry() throws IOException {
+            FileSystem subFileSystem = newNestedFileSystem();
+
+            if (subFileSystem == null) {
+                return loadChildrenFromTempFile();
+            }
+
+            addNestedResource(subFileSystem);
+            return loadChildrenFromFileSystem(subFileSystem);
+        }
+
+        /**
+         * Open the nested archive in place. Archives of the default file system are opened directly, nested archives
+         * are read from a buffer, see {@link NestedArchive}.
+         *
+         * @return the file system of the nested archive, null if it can not be opened in place
+         */
+        protected FileSystem newNestedFileSystem() throws IOException {
+            if (fsPath.getFileSystem() == FileSystems.getDefault()) {
+                return FileSystems.newFileSystem(fsPath, (ClassLoader)null);
+            }
+
+            ZipDirectory directory = getZipDirectory();
+
+            if (directory == null) {
+                return null;
+            }
+
+            int index = directory.indexOf(fsPath.toAbsolutePath().toString().substring(1));
+
+            if (index == -1) {
+                return null;
+            }
+
+            NestedArchive archive = NestedArchive.open(directory, index);
+
+            if (archive == null) {
+                return null;
+            }
+
+            addNestedResource(archive);
+            nestedArchive = archive.getBuffer();
+
+            return FileSystems.newFileSystem(NestedArchiveFileSystemProvider.newArchivePath(nestedArchive, getUri()), (ClassLoader)null);
+        }
+
+        protected Map<Container.EntryPath, Container.Entry> loadChildrenFromTempFile() throws IOException {
             StringBuilder suffix = new StringBuilder(".").append(TIMESTAMP).append('.').append(tmpFileCounter.getAndIncrement()).append('.').append(fsPath.getFileName().toString());
             try (TempFile tmpFile = new TempFile(suffix.toString())) {
                 Path tmpPath = Paths.get(tmpFile.toURI());
                 Files.copy(fsPath, tmpPath);
-    
-                @SuppressWarnings("all")
-                // Resource leak : The file system cannot be closed until the application is shutdown
+                addNestedResource(() -> Files.deleteIfExists(tmpPath));
+
                 FileSystem subFileSystem = FileSystems.newFileSystem(tmpPath, (ClassLoader)null);
-    
-                Iterator<Path> rootDirectories = subFileSystem.getRootDirectories().iterator();
-    
-                if (rootDirectories.hasNext()) {
-                    Path rootPath = rootDirectories.next();
-                    ContainerFactory containerFactory = api.getContainerFactory(rootPath);
-    
-                    if (containerFactory != null) {
-                        Container container = containerFactory.make(api, this, rootPath);
-    
-                        if (container != null) {
-                            return container.getRoot().getChildren();
+                addNestedResource(subFileSystem);
+
+                return loadChildrenFromFileSystem(subFileSystem);
+            }
+        }
+
+        protected Map<Container.EntryPath, Container.Entry> loadChildrenFromFileSystem(FileSystem subFileSystem) {
+            Iterator<Path> rootDirectories = subFileSystem.getRootDirectories().iterator();
+
+            if (rootDirectories.hasNext()) {
+                Path rootPath = rootDirectories.next();
+                ContainerFactory containerFactory = api.getContainerFactory(rootPath);
+
+                if (containerFactory != null) {
+                    Container container = containerFactory.make(api, this, rootPath);
+
+                    if (container != null) {
+                        if (container instanceof Closeable) {
+                            // Nested containers are closed with this container
+                            addNestedResource((Closeable) container);
                         }
+                        return container.getRoot().getChildren();
                     }
                 }
             }
@@ -247,6 +361,15 @@ public class GenericContainer implements Container, Closeable {
 
     @Override
     public void close() {
+        ClassBytesCache.getInstance().invalidate(this);
+        ContainerClassIndex.invalidate(this);
+        synchronized (this) {
+            while (!nestedResources.isEmpty()) {
+                IOUtils.closeQuietly(nestedResources.pop());
+            }
+            IOUtils.closeQuietly(zipDirectory);
+            zipDirectory = null;
+        }
         IOUtils.closeQuietly(zipFile);
         zipFile = null;
     }
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.model.container;
+
+import org.apache.commons.io.IOUtils;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.entry.path.SimpleEntryPath;
+import org.jd.gui.util.container.ClassBytesCache;
+import org.jd.gui.util.container.ContainerClassIndex;
+import org.jd.gui.util.zip.NestedArchive;
+import org.jd.gui.util.zip.ZipDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Container reading an archive from its central directory, without zip file system.
+ * <br>
+ * Entries are listed from the sorted names of the directory, one level at a time, and their content is read in place.
+ * Nested archives are opened the same way, see {@link NestedArchive}.
+ */
+public class ZipDirectoryContainer implements Container, Closeable {
+    private final String type;
+    private final Entry root;
+    private final ZipDirectory zipDirectory;
+    private final Deque<Closeable> nestedResources = new ArrayDeque<>(); // closed when tab is closed
+
+    public ZipDirectoryContainer(Container.Entry parentEntry, String type, ZipDirectory zipDirectory) {
+        this.type = type;
+        this.zipDirectory = zipDirectory;
+        this.root = new Entry(parentEntry, "", -1, true);
+    }
+
+    /**
+     * @return the type of the container of an archive, from its file name
+     */
+    public static String getType(String fileName) {
+        String name = fileName.toLowerCase();
+        int index = name.lastIndexOf('.');
+        String extension = index == -1 ? "" : name.substring(index + 1);
+
+        switch (extension) {
+        case "jar":
+        case "war":
+        case "ear":
+        case "kar":
+        case "jmod":
+            return extension;
+        default:
+            return "generic";
+        }
+    }
+
+    @Override
+    public String getType() { return type; }
+    @Override
+    public Container.Entry getRoot() { return root; }
+
+    protected synchronized void addNestedResource(Closeable closeable) {
+        nestedResources.push(closeable);
+    }
+
+    protected class Entry implements Container.Entry {
+        private final Container.Entry parent;
+        private final String path;
+        private final int index; // -1 for directories
+        private final boolean isDirectory;
+        private URI uri;
+        private Map<Container.EntryPath, Container.Entry> children;
+
+        public Entry(Container.Entry parent, String path, int index, boolean isDirectory) {
+            this.parent = parent;
+            this.path = path;
+            this.index = index;
+            this.isDirectory = isDirectory;
+        }
+
+        @Override
+        public Container getContainer() { return ZipDirectoryContainer.this; }
+        @Override
+        public Container.Entry getParent() { return parent; }
+        @Override
+        public String getPath() { return path; }
+        @Override
+        public boolean isDirectory() { return isDirectory; }
+
+        @Override
+        public URI getUri() {
+            if (uri == null) {
+                try {
+                    if (this == root) {
+                        URI parentUri = parent.getUri();
+                        uri = new URI(parentUri.getScheme(), parentUri.getHost(), parentUri.getPath() + "!/", null);
+                    } else {
+                        URI rootUri = root.getUri();
+                        uri = new URI(rootUri.getScheme(), rootUri.getHost(), rootUri.getPath() + path, null);
+                    }
+                } catch (URISyntaxException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+            return uri;
+        }
+
+        @Override
+        public long length() {
+            return index == -1 ? 0 : zipDirectory.getSize(index);
+        }
+
+        @Override
+        public long compressedLength() {
+            return index == -1 ? 0 : zipDirectory.getImpactSize(index);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            if (index != -1) {
+                try {
+                    return ClassBytesCache.getInstance().getInputStream(this, () -> zipDirectory.getInputStream(index));
+                } catch (IOException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public synchronized Map<Container.EntryPath, Container.Entry> getChildren() {
+            if (children == null) {
+                try {
+                    if (isDirectory) {
+                        children = loadChildrenFromDirectoryEntry();
+                    } else {
+                        children = loadChildrenFromFileEntry();
+                    }
+                } catch (IOException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    children = Collections.emptyMap();
+                }
+            }
+            return children;
+        }
+
+        /**
+         * List the entries whose names start with the path of this directory: they have consecutive ranks in the
+         * directory. Sub-directories are listed once, whether the archive contains their entries or not.
+         */
+        protected NavigableMap<Container.EntryPath, Container.Entry> loadChildrenFromDirectoryEntry() {
+            NavigableMap<Container.EntryPath, Container.Entry> sortedChildren = new TreeMap<>(ContainerEntryComparator.COMPARATOR);
+            // Top-level entries have the parent of the container as parent, like in the other containers
+            Container.Entry childParent = this == root ? parent : this;
+            String prefix = path.isEmpty() ? "" : path + '/';
+            int prefixLength = prefix.length();
+            int size = zipDirectory.size();
+            int rank = zipDirectory.rankOf(prefix);
+
+            while (rank < size) {
+                int childIndex = zipDirectory.getIndexByRank(rank);
+                String name = zipDirectory.getName(childIndex);
+
+                if (!name.startsWith(prefix)) {
+                    break;
+                }
+
+                int slashIndex = name.indexOf('/', prefixLength);
+
+                if (name.length() == prefixLength) {
+                    // Entry of this directory
+                    rank++;
+                } else if (slashIndex == -1) {
+                    Entry child = new Entry(childParent, name, childIndex, false);
+                    sortedChildren.put(new SimpleEntryPath(name, false), child);
+                    rank++;
+                } else {
+                    String childPath = name.substring(0, slashIndex);
+
+                    if (slashIndex > prefixLength) {
+                        Entry child = new Entry(childParent, childPath, -1, true);
+                        sortedChildren.put(new SimpleEntryPath(childPath, true), child);
+                    }
+                    // Skip the entries of the sub-directory
+                    rank = zipDirectory.rankOf(childPath + '/' + Character.MAX_VALUE);
+                }
+            }
+
+            return Collections.unmodifiableNavigableMap(sortedChildren);
+        }
+
+        protected Map<Container.EntryPath, Container.Entry> loadChildrenFromFileEntry() throws IOException {
+            NestedArchive nestedArchive = NestedArchive.open(zipDirectory, index);
+
+            if (nestedArchive == null) {
+                return Collections.emptyMap();
+            }
+
+            try {
+                ZipDirectoryContainer container = new ZipDirectoryContainer(this, ZipDirectoryContainer.getType(path), new ZipDirectory(nestedArchive.getBuffer()));
+                // Nested containers are closed with this container
+                addNestedResource(nestedArchive);
+                addNestedResource(container);
+                return container.getRoot().getChildren();
+            } catch (IOException e) {
+                nestedArchive.close();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        ClassBytesCache.getInstance().invalidate(this);
+        ContainerClassIndex.invalidate(this);
+        while (!nestedResources.isEmpty()) {
+            IOUtils.closeQuietly(nestedResources.pop());
+        }
+        IOUtils.closeQuietly(zipDirectory);
+    }
+}
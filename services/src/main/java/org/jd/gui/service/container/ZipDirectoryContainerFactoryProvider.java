@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.container;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.ZipDirectoryContainer;
+import org.jd.gui.spi.ContainerFactory;
+import org.jd.gui.util.zip.ZipDirectory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.ZIP_DIRECTORY_CONTAINER;
+
+/**
+ * Factory of the containers of archive files read from their central directory. Archive loaders pass the archive
+ * file itself as root path, instead of the root of a zip file system, when this factory is enabled.
+ * <br>
+ * Disabled by default: the zip file system remains the backend of the archives until both are compared.
+ */
+public class ZipDirectoryContainerFactoryProvider implements ContainerFactory {
+    @Override
+    public String getType() { return "zip"; }
+
+    public static boolean isEnabled(API api) {
+        return "true".equals(api.getPreferences().get(ZIP_DIRECTORY_CONTAINER));
+    }
+
+    @Override
+    public boolean accept(API api, Path rootPath) {
+        try {
+            return isEnabled(api) && rootPath.getFileSystem() == FileSystems.getDefault() && Files.isRegularFile(rootPath)
+                    && Files.size(rootPath) <= Integer.MAX_VALUE;
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return false;
+        }
+    }
+
+    @Override
+    public Container make(API api, Container.Entry parentEntry, Path rootPath) {
+        try {
+            // The archive file is released when the container is closed
+            ZipDirectory zipDirectory = ZipDirectory.open(rootPath);
+            return new ZipDirectoryContainer(parentEntry, ZipDirectoryContainer.getType(rootPath.getFileName().toString()), zipDirectory);
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return null;
+        }
+    }
+}
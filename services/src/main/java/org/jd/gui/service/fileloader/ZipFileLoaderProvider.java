@@ -9,6 +9,7 @@ package org.jd.gui.service.fileloader;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
+import org.jd.gui.service.container.ZipDirectoryContainerFactoryProvider;
 
 import java.io.File;
 import java.io.IOException;
@@ -41,6 +42,11 @@ public class ZipFileLoaderProvider extends AbstractFileLoaderProvider {
     @Override
     @SuppressWarnings("all")
     public boolean load(API api, File file) {
+        if (ZipDirectoryContainerFactoryProvider.isEnabled(api) && load(api, file, file.toPath()) != null) {
+            // Archive read from its central directory
+            return true;
+        }
+
         try {
             URI fileUri = file.toURI();
             if (!isValidScheme(fileUri.getScheme())) {
@@ -23,7 +23,9 @@ import org.objectweb.asm.TypePath;
 import org.objectweb.asm.signature.SignatureReader;
 import org.objectweb.asm.signature.SignatureVisitor;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -59,9 +61,11 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
     protected Set<String> stringSet = new HashSet<>();
     protected Set<String> superTypeNameSet = new HashSet<>();
     protected Set<String> descriptorSet = new HashSet<>();
+    protected String outerTypeName;
 
     protected ClassIndexer classIndexer = new ClassIndexer();
     protected SignatureIndexer signatureIndexer = new SignatureIndexer();
+    protected ClassFileScanner classFileScanner = new ClassFileScanner(this);
 
     @Override
     public String[] getSelectors() {
@@ -79,81 +83,10 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
     @SuppressWarnings("unchecked")
     @Override
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
-        // Cleaning sets...
-        typeDeclarationSet.clear();
-        constructorDeclarationSet.clear();
-        methodDeclarationSet.clear();
-        fieldDeclarationSet.clear();
-        typeReferenceSet.clear();
-        constructorReferenceSet.clear();
-        methodReferenceSet.clear();
-        fieldReferenceSet.clear();
-        stringSet.clear();
-        superTypeNameSet.clear();
-        descriptorSet.clear();
+        clearSets();
 
         try (InputStream inputStream = entry.getInputStream()) {
-            // Index field, method, interfaces & super type
-            ClassReader classReader = new ClassReader(inputStream);
-            classReader.accept(classIndexer, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
-
-            // Index descriptors
-            for (String descriptor : descriptorSet) {
-                new SignatureReader(descriptor).accept(signatureIndexer);
-            }
-
-            // Index references
-            char[] buffer = new char[classReader.getMaxStringLength()];
-
-            for (int i = classReader.getItemCount() - 1; i > 0; i--) {
-                int startIndex = classReader.getItem(i);
-
-                if (startIndex != 0) {
-                    int tag = classReader.readByte(startIndex - 1);
-
-                    switch (tag) {
-                    case CONSTANT_Class:
-                        String className = classReader.readUTF8(startIndex, buffer);
-                        if (className.startsWith("[")) {
-                            new SignatureReader(className).acceptType(signatureIndexer);
-                        } else {
-                            typeReferenceSet.add(className);
-                        }
-                        break;
-                    case CONSTANT_String:
-                        String str = classReader.readUTF8(startIndex, buffer);
-                        stringSet.add(str);
-                        break;
-                    case CONSTANT_Fieldref:
-                        int nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
-                        int nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
-                        tag = classReader.readByte(nameAndTypeIndex - 1);
-                        if (tag == CONSTANT_NameAndType) {
-                            String fieldName = classReader.readUTF8(nameAndTypeIndex, buffer);
-                            fieldReferenceSet.add(fieldName);
-                        }
-                        break;
-                    case CONSTANT_Methodref, CONSTANT_InterfaceMethodref:
-                        nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
-                        nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
-                        tag = classReader.readByte(nameAndTypeIndex - 1);
-                        if (tag == CONSTANT_NameAndType) {
-                            String methodName = classReader.readUTF8(nameAndTypeIndex, buffer);
-                            if (StringConstants.INSTANCE_CONSTRUCTOR.equals(methodName)) {
-                                int classItem = classReader.readUnsignedShort(startIndex);
-                                int classIndex = classReader.getItem(classItem);
-                                className = classReader.readUTF8(classIndex, buffer);
-                                constructorReferenceSet.add(className);
-                            } else {
-                                methodReferenceSet.add(methodName);
-                            }
-                        }
-                        break;
-                    }
-                }
-            }
-
-            String typeName = classIndexer.name;
+            String typeName = scan(inputStream);
 
             // Append sets to indexes
             addToIndexes(indexes, "typeDeclarations", typeDeclarationSet, entry);
@@ -175,6 +108,11 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
                     index.get(superTypeName).add(typeName);
                 }
             }
+
+            // Populate map [inner type name : [outer type name]]
+            if (outerTypeName != null) {
+                indexes.getIndex("outerTypeNames").get(typeName).add(outerTypeName);
+            }
             
             ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
 
@@ -183,6 +121,134 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
         }
     }
 
+    protected void clearSets() {
+        typeDeclarationSet.clear();
+        constructorDeclarationSet.clear();
+        methodDeclarationSet.clear();
+        fieldDeclarationSet.clear();
+        typeReferenceSet.clear();
+        constructorReferenceSet.clear();
+        methodReferenceSet.clear();
+        fieldReferenceSet.clear();
+        stringSet.clear();
+        superTypeNameSet.clear();
+        descriptorSet.clear();
+        outerTypeName = null;
+    }
+
+    /**
+     * @return the name of the top level type enclosing the type, following the index "outerTypeNames", or null if
+     * the type is not an inner type
+     */
+    @SuppressWarnings("rawtypes")
+    public static String getTopLevelTypeName(Indexes indexes, String typeName) {
+        Map<String, Collection> index = indexes.getIndex("outerTypeNames");
+        String topLevelTypeName = null;
+
+        if (index != null) {
+            // Bounded, in case of a cycle in invalid class files
+            for (int depth = 0; depth < 64; depth++) {
+                Collection outerTypeNames = index.get(typeName);
+
+                if (outerTypeNames == null || outerTypeNames.isEmpty()) {
+                    break;
+                }
+
+                typeName = (String) outerTypeNames.iterator().next();
+                topLevelTypeName = typeName;
+            }
+        }
+
+        return topLevelTypeName;
+    }
+
+    /**
+     * Populate the sets with the allocation light scanner, or with ASM if the class file is not supported by the
+     * scanner.
+     *
+     * @return the internal name of the type
+     */
+    protected String scan(InputStream inputStream) throws IOException {
+        ByteBuffer buffer = classFileScanner.read(inputStream);
+
+        try {
+            return classFileScanner.scan();
+        } catch (RuntimeException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            clearSets();
+            return scanWithASM(buffer.array(), 0, buffer.limit());
+        }
+    }
+
+    /**
+     * Populate the sets with ASM.
+     *
+     * @return the internal name of the type
+     */
+    protected String scanWithASM(byte[] classFileBuffer, int offset, int length) {
+        // Index field, method, interfaces & super type
+        ClassReader classReader = new ClassReader(classFileBuffer, offset, length);
+        classReader.accept(classIndexer, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+
+        // Index descriptors
+        for (String descriptor : descriptorSet) {
+            new SignatureReader(descriptor).accept(signatureIndexer);
+        }
+
+        // Index references
+        char[] buffer = new char[classReader.getMaxStringLength()];
+
+        for (int i = classReader.getItemCount() - 1; i > 0; i--) {
+            int startIndex = classReader.getItem(i);
+
+            if (startIndex != 0) {
+                int tag = classReader.readByte(startIndex - 1);
+
+                switch (tag) {
+                case CONSTANT_Class:
+                    String className = classReader.readUTF8(startIndex, buffer);
+                    if (className.startsWith("[")) {
+                        new SignatureReader(className).acceptType(signatureIndexer);
+                    } else {
+                        typeReferenceSet.add(className);
+                    }
+                    break;
+                case CONSTANT_String:
+                    String str = classReader.readUTF8(startIndex, buffer);
+                    stringSet.add(str);
+                    break;
+                case CONSTANT_Fieldref:
+                    int nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
+                    int nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
+                    tag = classReader.readByte(nameAndTypeIndex - 1);
+                    if (tag == CONSTANT_NameAndType) {
+                        String fieldName = classReader.readUTF8(nameAndTypeIndex, buffer);
+                        fieldReferenceSet.add(fieldName);
+                    }
+                    break;
+                case CONSTANT_Methodref, CONSTANT_InterfaceMethodref:
+                    nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
+                    nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
+                    tag = classReader.readByte(nameAndTypeIndex - 1);
+                    if (tag == CONSTANT_NameAndType) {
+                        String methodName = classReader.readUTF8(nameAndTypeIndex, buffer);
+                        if (StringConstants.INSTANCE_CONSTRUCTOR.equals(methodName)) {
+                            int classItem = classReader.readUnsignedShort(startIndex);
+                            int classIndex = classReader.getItem(classItem);
+                            className = classReader.readUTF8(classIndex, buffer);
+                            constructorReferenceSet.add(className);
+                        } else {
+                            methodReferenceSet.add(methodName);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        return classIndexer.name;
+    }
+
     protected class ClassIndexer extends ClassVisitor {
         private AnnotationIndexer annotationIndexer = new AnnotationIndexer();
         private FieldIndexer fieldIndexer = new FieldIndexer(annotationIndexer);
@@ -208,6 +274,25 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
             }
         }
 
+        @Override
+        public void visitNestHost(String nestHost) {
+            if (outerTypeName == null) {
+                outerTypeName = nestHost;
+            }
+        }
+
+        @Override
+        public void visitOuterClass(String owner, String name, String descriptor) {
+            outerTypeName = owner;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (outerName != null && name.equals(this.name)) {
+                outerTypeName = outerName;
+            }
+        }
+
         @Override
         public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
             descriptorSet.add(desc);
@@ -0,0 +1,618 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.core.v1.util.StringConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.apache.bcel.Const.CONSTANT_Class;
+import static org.apache.bcel.Const.CONSTANT_Double;
+import static org.apache.bcel.Const.CONSTANT_Dynamic;
+import static org.apache.bcel.Const.CONSTANT_Fieldref;
+import static org.apache.bcel.Const.CONSTANT_Float;
+import static org.apache.bcel.Const.CONSTANT_Integer;
+import static org.apache.bcel.Const.CONSTANT_InterfaceMethodref;
+import static org.apache.bcel.Const.CONSTANT_InvokeDynamic;
+import static org.apache.bcel.Const.CONSTANT_Long;
+import static org.apache.bcel.Const.CONSTANT_MethodHandle;
+import static org.apache.bcel.Const.CONSTANT_MethodType;
+import static org.apache.bcel.Const.CONSTANT_Methodref;
+import static org.apache.bcel.Const.CONSTANT_Module;
+import static org.apache.bcel.Const.CONSTANT_NameAndType;
+import static org.apache.bcel.Const.CONSTANT_Package;
+import static org.apache.bcel.Const.CONSTANT_String;
+import static org.apache.bcel.Const.CONSTANT_Utf8;
+
+/**
+ * Allocation light class file scanner, populating the sets of a {@link ClassFileIndexerProvider}.
+ * <br>
+ * The class file is read into a reused buffer and only the structures used by the indexes are decoded: constant
+ * pool references, class header, enclosing type, member names, signatures, exceptions and annotations. Code
+ * attributes are skipped. Decoded symbols are kept in a small cache keyed by their modified UTF-8 bytes, so that the
+ * names shared by most classes ("java/lang/Object", "&lt;init&gt;", "toString", ...) are neither decoded nor allocated
+ * again. Signatures are not decoded at all: the class names are looked up in the cache directly from the bytes of the
+ * constant.
+ * <br>
+ * Unsafe thread implementation, like the indexer owning it.
+ */
+public class ClassFileScanner {
+    protected static final int MAGIC = 0xCAFEBABE;
+    protected static final int SYMBOL_CACHE_SIZE = 4096;
+    protected static final int MAX_CACHED_SYMBOL_LENGTH = 256;
+
+    private final ClassFileIndexerProvider indexer;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private byte[] b;
+    private int[] offsets = new int[512];
+    private byte[] tags = new byte[512];
+    private int[] marks = new int[512];
+    private int constantCount;
+    private int generation;
+    private int signatureIndex;
+    private int signatureEnd;
+    private char[] chars = new char[128];
+    private final byte[][] symbolBytes = new byte[SYMBOL_CACHE_SIZE][];
+    private final String[] symbols = new String[SYMBOL_CACHE_SIZE];
+    private String typeName;
+    private int typeIndex;
+    private int enclosingTypeIndex;
+    private int nestHostIndex;
+
+    public ClassFileScanner(ClassFileIndexerProvider indexer) {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Read a class file into the reused buffer.
+     *
+     * @return the buffer, flipped for reading
+     */
+    public ByteBuffer read(InputStream inputStream) throws IOException {
+        buffer.clear();
+
+        int count;
+        while ((count = inputStream.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+            buffer.position(buffer.position() + count);
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Scan the class file previously read.
+     *
+     * @return the internal name of the scanned type
+     * @throws IllegalArgumentException if the class file structure is invalid or unsupported
+     */
+    public String scan() {
+        b = buffer.array();
+
+        if (buffer.limit() < 10 || u4(0) != MAGIC) {
+            throw new IllegalArgumentException("Invalid class file");
+        }
+
+        int offset = scanConstantPool(u2(8));
+
+        // Class header
+        typeIndex = u2(offset + 2);
+        typeName = className(typeIndex);
+        indexer.typeDeclarationSet.add(typeName);
+
+        int superClassIndex = u2(offset + 4);
+        if (superClassIndex != 0) {
+            indexer.superTypeNameSet.add(className(superClassIndex));
+        }
+
+        int interfaceCount = u2(offset + 6);
+        offset += 8;
+        for (int i = 0; i < interfaceCount; i++, offset += 2) {
+            indexer.superTypeNameSet.add(className(u2(offset)));
+        }
+
+        // Fields & methods
+        int fieldCount = u2(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = scanMember(offset, false);
+        }
+
+        int methodCount = u2(offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            offset = scanMember(offset, true);
+        }
+
+        // Class annotations & enclosing type, declared by InnerClasses, else by EnclosingMethod, else by NestHost
+        enclosingTypeIndex = 0;
+        nestHostIndex = 0;
+        scanAttributes(offset, false);
+
+        if (indexer.outerTypeName == null) {
+            if (enclosingTypeIndex != 0) {
+                indexer.outerTypeName = className(enclosingTypeIndex);
+            } else if (nestHostIndex != 0) {
+                indexer.outerTypeName = className(nestHostIndex);
+            }
+        }
+
+        return typeName;
+    }
+
+    protected int scanConstantPool(int count) {
+        constantCount = count;
+
+        if (offsets.length < count) {
+            int length = Math.max(count, offsets.length * 2);
+            offsets = new int[length];
+            tags = new byte[length];
+            marks = new int[length];
+        }
+        if (++generation == 0) {
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+
+        // Locate items
+        int offset = 10;
+
+        for (int i = 1; i < count; i++) {
+            byte tag = b[offset];
+
+            tags[i] = tag;
+            offsets[i] = offset + 1;
+
+            switch (tag) {
+            case CONSTANT_Utf8:
+                offset += 3 + u2(offset + 1);
+                break;
+            case CONSTANT_Class, CONSTANT_String, CONSTANT_MethodType, CONSTANT_Module, CONSTANT_Package:
+                offset += 3;
+                break;
+            case CONSTANT_MethodHandle:
+                offset += 4;
+                break;
+            case CONSTANT_Integer, CONSTANT_Float, CONSTANT_Fieldref, CONSTANT_Methodref, CONSTANT_InterfaceMethodref,
+                 CONSTANT_NameAndType, CONSTANT_Dynamic, CONSTANT_InvokeDynamic:
+                offset += 5;
+                break;
+            case CONSTANT_Long, CONSTANT_Double:
+                offset += 9;
+                tags[++i] = 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid constant pool tag " + tag);
+            }
+        }
+
+        // Index references
+        for (int i = 1; i < count; i++) {
+            switch (tags[i]) {
+            case CONSTANT_Class:
+                int nameIndex = u2(offsets[i]);
+                if (b[offsets[checkTag(nameIndex, CONSTANT_Utf8)] + 2] == '[') {
+                    scanSignature(nameIndex);
+                } else {
+                    indexer.typeReferenceSet.add(utf8(nameIndex));
+                }
+                break;
+            case CONSTANT_String:
+                // String constants are mostly distinct, they would evict shared symbols from the cache
+                int stringOffset = offsets[checkTag(u2(offsets[i]), CONSTANT_Utf8)];
+                indexer.stringSet.add(decode(stringOffset + 2, u2(stringOffset)));
+                break;
+            case CONSTANT_Fieldref:
+                int nameAndTypeIndex = u2(offsets[i] + 2);
+                if (tags[nameAndTypeIndex] == CONSTANT_NameAndType) {
+                    indexer.fieldReferenceSet.add(utf8(u2(offsets[nameAndTypeIndex])));
+                }
+                break;
+            case CONSTANT_Methodref, CONSTANT_InterfaceMethodref:
+                nameAndTypeIndex = u2(offsets[i] + 2);
+                if (tags[nameAndTypeIndex] == CONSTANT_NameAndType) {
+                    String methodName = utf8(u2(offsets[nameAndTypeIndex]));
+                    if (StringConstants.INSTANCE_CONSTRUCTOR.equals(methodName)) {
+                        indexer.constructorReferenceSet.add(className(u2(offsets[i])));
+                    } else {
+                        indexer.methodReferenceSet.add(methodName);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        return offset;
+    }
+
+    protected int scanMember(int offset, boolean method) {
+        String name = utf8(u2(offset + 2));
+
+        if (!method) {
+            indexer.fieldDeclarationSet.add(name);
+        } else if (StringConstants.INSTANCE_CONSTRUCTOR.equals(name)) {
+            indexer.constructorDeclarationSet.add(typeName);
+        } else if (!"<clinit>".equals(name)) {
+            indexer.methodDeclarationSet.add(name);
+        }
+
+        int descriptorIndex = u2(offset + 4);
+
+        offset = scanAttributes(offset + 6, method);
+        scanSignature(signatureIndex == 0 ? descriptorIndex : signatureIndex);
+
+        return offset;
+    }
+
+    /**
+     * Scan annotations, exceptions and enclosing types, and keep the index of the signature, 0 if none.
+     *
+     * @return the offset following the attributes
+     */
+    protected int scanAttributes(int offset, boolean method) {
+        signatureIndex = 0;
+
+        int attributeCount = u2(offset);
+
+        offset += 2;
+
+        for (int i = 0; i < attributeCount; i++) {
+            String name = utf8(u2(offset));
+            int start = offset + 6;
+
+            switch (name) {
+            case "Signature":
+                signatureIndex = u2(start);
+                break;
+            case "Exceptions":
+                if (method) {
+                    int exceptionCount = u2(start);
+                    for (int j = 1; j <= exceptionCount; j++) {
+                        indexer.typeReferenceSet.add(className(u2(start + 2 * j)));
+                    }
+                }
+                break;
+            case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations":
+                scanAnnotations(start);
+                break;
+            case "RuntimeVisibleParameterAnnotations", "RuntimeInvisibleParameterAnnotations":
+                if (method) {
+                    int parameterCount = b[start] & 0xFF;
+                    int parameterOffset = start + 1;
+                    for (int j = 0; j < parameterCount; j++) {
+                        parameterOffset = scanAnnotations(parameterOffset);
+                    }
+                }
+                break;
+            case "RuntimeVisibleTypeAnnotations", "RuntimeInvisibleTypeAnnotations":
+                scanTypeAnnotations(start);
+                break;
+            case "InnerClasses":
+                int classCount = u2(start);
+                for (int j = 0, classOffset = start + 2; j < classCount; j++, classOffset += 8) {
+                    int outerClassIndex = u2(classOffset + 2);
+                    if (u2(classOffset) == typeIndex && outerClassIndex != 0) {
+                        indexer.outerTypeName = className(outerClassIndex);
+                    }
+                }
+                break;
+            case "EnclosingMethod":
+                enclosingTypeIndex = u2(start);
+                break;
+            case "NestHost":
+                nestHostIndex = u2(start);
+                break;
+            default:
+                break;
+            }
+
+            offset = start + u4(offset + 2);
+        }
+
+        return offset;
+    }
+
+    protected int scanAnnotations(int offset) {
+        int annotationCount = u2(offset);
+
+        offset += 2;
+        for (int i = 0; i < annotationCount; i++) {
+            offset = scanAnnotation(offset, true);
+        }
+
+        return offset;
+    }
+
+    protected void scanTypeAnnotations(int offset) {
+        int annotationCount = u2(offset);
+
+        offset += 2;
+        for (int i = 0; i < annotationCount; i++) {
+            // Skip 'target_info'
+            switch (b[offset] & 0xFF) {
+            case 0x13, 0x14, 0x15:
+                offset += 1;
+                break;
+            case 0x00, 0x01, 0x16:
+                offset += 2;
+                break;
+            case 0x10, 0x11, 0x12, 0x17, 0x42, 0x43, 0x44, 0x45, 0x46:
+                offset += 3;
+                break;
+            case 0x47, 0x48, 0x49, 0x4A, 0x4B:
+                offset += 4;
+                break;
+            case 0x40, 0x41:
+                offset += 3 + 6 * u2(offset + 1);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid type annotation target " + (b[offset] & 0xFF));
+            }
+            // Skip 'type_path'
+            offset += 1 + 2 * (b[offset] & 0xFF);
+            offset = scanAnnotation(offset, true);
+        }
+    }
+
+    /**
+     * @param index false to skip the annotation, like the elements of arrays which are not indexed
+     */
+    protected int scanAnnotation(int offset, boolean index) {
+        if (index) {
+            scanSignature(u2(offset));
+        }
+
+        int pairCount = u2(offset + 2);
+
+        offset += 4;
+        for (int i = 0; i < pairCount; i++) {
+            offset = scanElementValue(offset + 2, index);
+        }
+
+        return offset;
+    }
+
+    protected int scanElementValue(int offset, boolean index) {
+        switch (b[offset]) {
+        case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's', 'c':
+            return offset + 3;
+        case 'e':
+            if (index) {
+                scanSignature(u2(offset + 1));
+            }
+            return offset + 5;
+        case '@':
+            return scanAnnotation(offset + 1, index);
+        case '[':
+            int valueCount = u2(offset + 1);
+            offset += 3;
+            for (int i = 0; i < valueCount; i++) {
+                offset = scanElementValue(offset, false);
+            }
+            return offset;
+        default:
+            throw new IllegalArgumentException("Invalid element value tag " + (char) b[offset]);
+        }
+    }
+
+    /**
+     * Index the class types of a descriptor or a generic signature, directly from the bytes of the constant.
+     * A constant used by several members is scanned once.
+     */
+    protected void scanSignature(int utf8Index) {
+        int offset = offsets[checkTag(utf8Index, CONSTANT_Utf8)];
+
+        if (marks[utf8Index] == generation) {
+            return;
+        }
+        marks[utf8Index] = generation;
+
+        int i = offset + 2;
+        signatureEnd = i + u2(offset);
+
+        if (i < signatureEnd && b[i] == '<') {
+            // Formal type parameters
+            i++;
+            while (at(i) != '>') {
+                while (at(i) != ':') {
+                    i++;
+                }
+                while (at(i) == ':') {
+                    byte c = at(++i);
+                    if (c == 'L' || c == '[' || c == 'T') {
+                        i = scanType(i);
+                    }
+                }
+            }
+            i++;
+        }
+
+        if (i < signatureEnd && b[i] == '(') {
+            // Method signature
+            i++;
+            while (at(i) != ')') {
+                i = scanType(i);
+            }
+            i = scanType(i + 1);
+            while (i < signatureEnd && b[i] == '^') {
+                i = scanType(i + 1);
+            }
+        } else {
+            // Field type or super types
+            while (i < signatureEnd) {
+                i = scanType(i);
+            }
+        }
+    }
+
+    protected int scanType(int i) {
+        switch (at(i)) {
+        case '[':
+            return scanType(i + 1);
+        case 'T':
+            while (at(i) != ';') {
+                i++;
+            }
+            return i + 1;
+        case 'L':
+            int start = ++i;
+            i = skipIdentifier(i);
+            indexer.typeReferenceSet.add(symbol(start, i - start));
+
+            while (at(i) != ';') {
+                if (b[i] == '<') {
+                    // Type arguments
+                    i++;
+                    while (at(i) != '>') {
+                        if (b[i] == '*') {
+                            i++;
+                        } else {
+                            if (b[i] == '+' || b[i] == '-') {
+                                i++;
+                            }
+                            i = scanType(i);
+                        }
+                    }
+                    i++;
+                } else {
+                    // Inner type name, not indexed
+                    i = skipIdentifier(i + 1);
+                }
+            }
+            return i + 1;
+        default:
+            return i + 1;
+        }
+    }
+
+    private int skipIdentifier(int i) {
+        byte c;
+        while ((c = at(i)) != ';' && c != '.' && c != '<') {
+            i++;
+        }
+        return i;
+    }
+
+    private byte at(int i) {
+        if (i >= signatureEnd) {
+            throw new IllegalArgumentException("Invalid signature");
+        }
+        return b[i];
+    }
+
+    // --- Symbols --- //
+    protected String className(int classIndex) {
+        return utf8(u2(offsets[checkTag(classIndex, CONSTANT_Class)]));
+    }
+
+    protected String utf8(int utf8Index) {
+        int offset = offsets[checkTag(utf8Index, CONSTANT_Utf8)];
+        return symbol(offset + 2, u2(offset));
+    }
+
+    /**
+     * @return the symbol encoded in modified UTF-8 at the given range, decoded only if it is not in the cache
+     */
+    protected String symbol(int start, int length) {
+        if (length > MAX_CACHED_SYMBOL_LENGTH) {
+            return decode(start, length);
+        }
+
+        int end = start + length;
+        int hash = 1;
+
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + b[i];
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (SYMBOL_CACHE_SIZE - 1);
+        byte[] cached = symbolBytes[slot];
+
+        if (cached != null && Arrays.equals(cached, 0, cached.length, b, start, end)) {
+            return symbols[slot];
+        }
+
+        String symbol = decode(start, length);
+
+        symbolBytes[slot] = Arrays.copyOfRange(b, start, end);
+        symbols[slot] = symbol;
+
+        return symbol;
+    }
+
+    protected String decode(int start, int length) {
+        int end = start + length;
+        int i = start;
+
+        while (i < end && b[i] > 0) {
+            i++;
+        }
+        if (i == end) {
+            // ASCII
+            return new String(b, start, length, StandardCharsets.ISO_8859_1);
+        }
+
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+
+        int count = 0;
+
+        for (i = start; i < end; count++) {
+            int c = b[i++] & 0xFF;
+
+            if ((c & 0x80) == 0) {
+                chars[count] = (char) c;
+            } else if ((c & 0xE0) == 0xC0) {
+                chars[count] = (char) (((c & 0x1F) << 6) + (b[i++] & 0x3F));
+            } else {
+                chars[count] = (char) (((c & 0xF) << 12) + ((b[i++] & 0x3F) << 6) + (b[i++] & 0x3F));
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+    // --- Readers --- //
+    private int checkTag(int index, byte tag) {
+        if (index <= 0 || index >= constantCount || tags[index] != tag) {
+            throw new IllegalArgumentException("Invalid constant pool index " + index);
+        }
+        return index;
+    }
+
+    private int u2(int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+
+    private int u4(int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+}
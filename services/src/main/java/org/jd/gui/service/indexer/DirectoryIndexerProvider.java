@@ -33,7 +33,11 @@ public class DirectoryIndexerProvider extends AbstractIndexerProvider {
             assert ExceptionUtil.printStackTrace(e);
         }
 
-        index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth);
+        if (ParallelIndexer.isEnabled(api)) {
+            new ParallelIndexer(api, ParallelIndexer.getParallelism(api), getProgressFunction, setProgressFunction, isCancelledFunction).index(entry, indexes, depth);
+        } else {
+            index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth);
+        }
     }
 
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, int depth) {
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.spi.Indexer;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.jd.gui.util.decompiler.GuiPreferences;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Fork/join indexation of the entries of a container.
+ * <br>
+ * Most indexers, like ClassFileIndexerProvider, are not thread safe, so each worker thread uses its own copy of
+ * the indexers and populates its own partial indexes. Partial indexes are merged into the target indexes at the end.
+ */
+public class ParallelIndexer {
+    protected static final int THRESHOLD = 64;
+
+    private final API api;
+    private final int parallelism;
+    private final BooleanSupplier isCancelledFunction;
+    private final DoubleConsumer setProgressFunction;
+    private final Collection<PartialIndexes> partialIndexes = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(this::newWorker);
+    private final Object progressLock = new Object();
+    private double progress;
+
+    public ParallelIndexer(API api, int parallelism, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        this.api = api;
+        this.parallelism = parallelism;
+        this.isCancelledFunction = isCancelledFunction;
+        this.setProgressFunction = setProgressFunction;
+        this.progress = getProgressFunction.getAsDouble();
+    }
+
+    /**
+     * @return the configured degree of parallelism, 1 meaning sequential indexation
+     */
+    public static int getParallelism(API api) {
+        String preference = api.getPreferences().get(GuiPreferences.INDEXER_PARALLELISM);
+
+        if (preference != null) {
+            try {
+                return Math.max(1, Integer.parseInt(preference));
+            } catch (NumberFormatException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+
+        return ComputePool.getDefaultParallelism();
+    }
+
+    /**
+     * @return true if parallel indexation must be used, false if the caller is already a worker of a parallel indexation
+     */
+    public static boolean isEnabled(API api) {
+        return !ForkJoinTask.inForkJoinPool() && getParallelism(api) > 1;
+    }
+
+    public void index(Container.Entry entry, Indexes indexes, int depth) {
+        List<Container.Entry> files = new ArrayList<>();
+
+        collect(entry, depth, files);
+
+        if (!files.isEmpty() && !isCancelledFunction.getAsBoolean()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                pool.invoke(new IndexTask(files, 0, files.size()));
+            } finally {
+                pool.shutdown();
+            }
+
+            merge(indexes);
+        }
+    }
+
+    /**
+     * Flatten the tree of entries. Nested archives are expanded like directories, without depth limitation, as
+     * ZipFileIndexerProvider would do.
+     */
+    protected void collect(Container.Entry entry, int depth, List<Container.Entry> files) {
+        if (depth-- > 0) {
+            for (Container.Entry e : entry.getChildren().values()) {
+                if (isCancelledFunction.getAsBoolean()) {
+                    return;
+                }
+                if (e.isDirectory()) {
+                    collect(e, depth, files);
+                } else if (api.getIndexer(e) instanceof ZipFileIndexerProvider) {
+                    collect(e, Integer.MAX_VALUE, files);
+                } else {
+                    files.add(e);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected void merge(Indexes indexes) {
+        for (PartialIndexes partial : partialIndexes) {
+            for (Map.Entry<String, Map<String, Collection>> partialIndex : partial.map.entrySet()) {
+                Map<String, Collection> index = indexes.getIndex(partialIndex.getKey());
+
+                for (Map.Entry<String, Collection> mapEntry : partialIndex.getValue().entrySet()) {
+                    index.get(mapEntry.getKey()).addAll(mapEntry.getValue());
+                }
+            }
+        }
+        partialIndexes.clear();
+    }
+
+    protected Worker newWorker() {
+        Worker worker = new Worker();
+        partialIndexes.add(worker.indexes);
+        return worker;
+    }
+
+    protected void addProgress(double delta) {
+        if (delta > 0) {
+            synchronized (progressLock) {
+                progress += delta;
+                setProgressFunction.accept(Math.min(progress, 100));
+            }
+        }
+    }
+
+    protected class IndexTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Container.Entry> files;
+        private final int from;
+        private final int to;
+
+        public IndexTask(List<Container.Entry> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (isCancelledFunction.getAsBoolean()) {
+                return;
+            }
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new IndexTask(files, from, middle), new IndexTask(files, middle, to));
+            } else {
+                Worker worker = workers.get();
+
+                for (int i = from; i < to && !isCancelledFunction.getAsBoolean(); i++) {
+                    worker.index(files.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread confined state: a private copy of each indexer and partial indexes.
+     */
+    protected class Worker {
+        private final PartialIndexes indexes = new PartialIndexes();
+        private final Map<Indexer, Indexer> indexers = new IdentityHashMap<>();
+        private double delta;
+
+        public void index(Container.Entry entry) {
+            Indexer indexer = api.getIndexer(entry);
+
+            if (indexer != null) {
+                delta = 0;
+                indexers.computeIfAbsent(indexer, ParallelIndexer::copyOf).index(api, entry, indexes, this::getDelta, this::setDelta, isCancelledFunction);
+                addProgress(delta);
+            }
+        }
+
+        private double getDelta() { return delta; }
+        private void setDelta(double delta) { this.delta = delta; }
+    }
+
+    /**
+     * Indexers are service providers, so they always have a public no-arg constructor.
+     */
+    protected static Indexer copyOf(Indexer indexer) {
+        try {
+            return indexer.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return indexer;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static class PartialIndexes implements Indexes {
+        private final Map<String, Map<String, Collection>> map = new HashMap<>();
+
+        @Override
+        public Map<String, Collection> getIndex(String name) {
+            return map.computeIfAbsent(name, k -> new MapWithDefault());
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static class MapWithDefault extends HashMap<String, Collection> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Collection get(Object key) {
+            return computeIfAbsent(key.toString(), k -> new ArrayList<>());
+        }
+    }
+}
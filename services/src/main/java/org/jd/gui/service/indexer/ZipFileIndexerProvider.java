@@ -23,6 +23,11 @@ public class ZipFileIndexerProvider extends AbstractIndexerProvider {
 
     @Override
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        if (ParallelIndexer.isEnabled(api)) {
+            new ParallelIndexer(api, ParallelIndexer.getParallelism(api), getProgressFunction, setProgressFunction, isCancelledFunction).index(entry, indexes, Integer.MAX_VALUE);
+            return;
+        }
+
         for (Container.Entry e : entry.getChildren().values()) {
             if (e.isDirectory()) {
                 index(api, e, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
@@ -9,6 +9,8 @@ package org.jd.gui.service.preferencespanel;
 
 import org.jd.gui.spi.PreferencesPanel;
 import org.jd.gui.util.ImageUtil;
+import org.jd.gui.util.decompiler.DecompilationCache;
+import org.jd.gui.util.decompiler.DecompilationWatchdog;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -27,8 +29,11 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_CFR;
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_FERNFLOWER;
@@ -38,16 +43,26 @@ import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompile
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_PROCYON;
 import static org.jd.gui.util.decompiler.GuiPreferences.ADVANCED_CLASS_LOOKUP;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_DISK_CACHE;
 import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_MEMORY_BUDGET;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_TIME_BUDGET;
 import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
 import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_ERRORS;
 import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_INFO;
 import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_WARNINGS;
+import static org.jd.gui.util.decompiler.GuiPreferences.TIMEOUT_FALLBACK_ENGINE;
 
-public class ClassFileDecompilerPreferencesProvider extends JPanel implements PreferencesPanel {
+public class ClassFileDecompilerPreferencesProvider extends JPanel implements PreferencesPanel, DocumentListener {
 
     private static final long serialVersionUID = 1L;
+    protected static final int MAX_DECOMPILATION_CACHE_SIZE = 10_000;
+    protected static final int MAX_TIME_BUDGET = 3600;
+    protected static final int MAX_MEMORY_BUDGET = 65_536;
+    protected static final String STUB = "Stub";
 
+    protected transient PreferencesPanel.PreferencesPanelChangeListener listener;
     protected JCheckBox showCompilerErrorsCheckBox;
     protected JCheckBox showCompilerWarningsCheckBox;
     protected JCheckBox showCompilerInfoCheckBox;
@@ -56,8 +71,16 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
     protected JLabel selectDecompiler;
     protected JComboBox<String> decompileEngine;
     protected JButton configureDecompiler;
+    protected JTextField decompilationCacheSizeTextField;
+    protected JCheckBox decompilationDiskCacheCheckBox;
+    protected JTextField timeBudgetTextField;
+    protected JTextField memoryBudgetTextField;
+    protected JComboBox<String> timeoutFallbackEngine;
+    protected Color errorBackgroundColor = Color.RED;
+    protected Color defaultBackgroundColor;
 
     private static final String[] DECOMPILERS = { ENGINE_JD_CORE_V1, ENGINE_JD_CORE_V0, ENGINE_CFR, ENGINE_PROCYON, ENGINE_FERNFLOWER, ENGINE_VINEFLOWER, ENGINE_JADX };
+    private static final String[] FALLBACK_ENGINES = { STUB, ENGINE_JD_CORE_V1, ENGINE_JD_CORE_V0, ENGINE_CFR, ENGINE_PROCYON, ENGINE_FERNFLOWER, ENGINE_VINEFLOWER, ENGINE_JADX };
 
     private transient Map<String, PreferencesPanel> decompilerPreferencesProviders = new HashMap<>();
 
@@ -83,6 +106,34 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         add(decompileEngine);
         add(configureDecompiler);
 
+        add(new JLabel("Decompilation time per class in s (0.." + MAX_TIME_BUDGET + ", 0 = unlimited): "));
+
+        timeBudgetTextField = new JTextField();
+        timeBudgetTextField.getDocument().addDocumentListener(this);
+        add(timeBudgetTextField);
+
+        add(new JLabel("Decompilation memory per class in MB (0.." + MAX_MEMORY_BUDGET + ", 0 = unlimited): "));
+
+        memoryBudgetTextField = new JTextField();
+        memoryBudgetTextField.getDocument().addDocumentListener(this);
+        add(memoryBudgetTextField);
+
+        add(new JLabel("Decompile with, when exceeded: "));
+
+        timeoutFallbackEngine = new JComboBox<>(FALLBACK_ENGINES);
+        add(timeoutFallbackEngine);
+
+        add(new JLabel("Decompiled classes kept in memory (0.." + MAX_DECOMPILATION_CACHE_SIZE + "): "));
+
+        decompilationCacheSizeTextField = new JTextField();
+        decompilationCacheSizeTextField.getDocument().addDocumentListener(this);
+        add(decompilationCacheSizeTextField);
+
+        decompilationDiskCacheCheckBox = new JCheckBox("Persist decompiled sources on disk");
+        add(decompilationDiskCacheCheckBox);
+
+        defaultBackgroundColor = timeBudgetTextField.getBackground();
+
         JDCoreDecompilerPreferencesProvider jdCoreDecompilerPreferencesProvider = new JDCoreDecompilerPreferencesProvider(decompileEngine);
         decompilerPreferencesProviders.put(ENGINE_JD_CORE_V0, jdCoreDecompilerPreferencesProvider);
         decompilerPreferencesProviders.put(ENGINE_JD_CORE_V1, jdCoreDecompilerPreferencesProvider);
@@ -144,6 +195,7 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
 
     @Override
     public void init(Color errorBackgroundColor) {
+        this.errorBackgroundColor = errorBackgroundColor;
     }
 
     @Override
@@ -159,6 +211,12 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         advancedClassLookupCheckBox.setSelected("true".equals(preferences.get(ADVANCED_CLASS_LOOKUP)));
         removeUnnecessaryCastsCheckBox.setSelected("true".equals(preferences.get(REMOVE_UNNECESSARY_CASTS)));
         decompileEngine.setSelectedItem(preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1));
+        timeBudgetTextField.setText(preferences.getOrDefault(DECOMPILE_TIME_BUDGET, DecompilationWatchdog.DEFAULT_TIME_BUDGET));
+        memoryBudgetTextField.setText(preferences.getOrDefault(DECOMPILE_MEMORY_BUDGET, DecompilationWatchdog.DEFAULT_MEMORY_BUDGET));
+        String fallbackEngine = preferences.getOrDefault(TIMEOUT_FALLBACK_ENGINE, DecompilationWatchdog.DEFAULT_FALLBACK_ENGINE);
+        timeoutFallbackEngine.setSelectedItem(fallbackEngine.isEmpty() ? STUB : fallbackEngine);
+        decompilationCacheSizeTextField.setText(preferences.getOrDefault(DECOMPILATION_CACHE_SIZE, DecompilationCache.DEFAULT_MAX_SIZE));
+        decompilationDiskCacheCheckBox.setSelected("true".equals(preferences.get(DECOMPILATION_DISK_CACHE)));
         for (PreferencesPanel preferencesPanel : decompilerPreferencesProviders.values()) {
             preferencesPanel.loadPreferences(preferences);
         }
@@ -172,6 +230,11 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         preferences.put(ADVANCED_CLASS_LOOKUP, Boolean.toString(advancedClassLookupCheckBox.isSelected()));
         preferences.put(REMOVE_UNNECESSARY_CASTS, Boolean.toString(removeUnnecessaryCastsCheckBox.isSelected()));
         preferences.put(DECOMPILE_ENGINE, decompileEngine.getSelectedItem().toString());
+        preferences.put(DECOMPILE_TIME_BUDGET, timeBudgetTextField.getText());
+        preferences.put(DECOMPILE_MEMORY_BUDGET, memoryBudgetTextField.getText());
+        preferences.put(TIMEOUT_FALLBACK_ENGINE, STUB.equals(timeoutFallbackEngine.getSelectedItem()) ? "" : timeoutFallbackEngine.getSelectedItem().toString());
+        preferences.put(DECOMPILATION_CACHE_SIZE, decompilationCacheSizeTextField.getText());
+        preferences.put(DECOMPILATION_DISK_CACHE, Boolean.toString(decompilationDiskCacheCheckBox.isSelected()));
         for (PreferencesPanel preferencesPanel : decompilerPreferencesProviders.values()) {
             preferencesPanel.savePreferences(preferences);
         }
@@ -179,11 +242,36 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
 
     @Override
     public boolean arePreferencesValid() {
-        return true;
+        return IndexerPreferencesProvider.isValid(timeBudgetTextField, 0, MAX_TIME_BUDGET)
+                && IndexerPreferencesProvider.isValid(memoryBudgetTextField, 0, MAX_MEMORY_BUDGET)
+                && IndexerPreferencesProvider.isValid(decompilationCacheSizeTextField, 0, MAX_DECOMPILATION_CACHE_SIZE);
     }
 
     @Override
     public void addPreferencesChangeListener(PreferencesPanel.PreferencesPanelChangeListener listener) {
+        this.listener = listener;
+    }
+
+    // --- DocumentListener --- //
+    @Override
+    public void insertUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void removeUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void changedUpdate(DocumentEvent e) { onTextChange(); }
+
+    public void onTextChange() {
+        updateBackground(timeBudgetTextField, MAX_TIME_BUDGET);
+        updateBackground(memoryBudgetTextField, MAX_MEMORY_BUDGET);
+        updateBackground(decompilationCacheSizeTextField, MAX_DECOMPILATION_CACHE_SIZE);
+
+        if (listener != null) {
+            listener.preferencesPanelChanged(this);
+        }
+    }
+
+    protected void updateBackground(JTextField textField, int maxValue) {
+        textField.setBackground(IndexerPreferencesProvider.isValid(textField, 0, maxValue) ? defaultBackgroundColor : errorBackgroundColor);
     }
 
     @Override
@@ -194,5 +282,10 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         advancedClassLookupCheckBox.setSelected(false);
         removeUnnecessaryCastsCheckBox.setSelected(false);
         decompileEngine.setSelectedItem(ENGINE_JD_CORE_V1);
+        timeBudgetTextField.setText(DecompilationWatchdog.DEFAULT_TIME_BUDGET);
+        memoryBudgetTextField.setText(DecompilationWatchdog.DEFAULT_MEMORY_BUDGET);
+        timeoutFallbackEngine.setSelectedItem(DecompilationWatchdog.DEFAULT_FALLBACK_ENGINE);
+        decompilationCacheSizeTextField.setText(DecompilationCache.DEFAULT_MAX_SIZE);
+        decompilationDiskCacheCheckBox.setSelected(false);
     }
 }
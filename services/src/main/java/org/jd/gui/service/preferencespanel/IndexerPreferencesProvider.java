@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.spi.PreferencesPanel;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.jd.gui.util.container.ClassBytesCache;
+
+import java.awt.Color;
+import java.awt.GridLayout;
+import java.util.Map;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.CLASS_BYTES_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXER_PARALLELISM;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_ENABLED;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_MAX_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE_SHA1;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_COMPACT;
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_TRIGRAMS;
+import static org.jd.gui.util.decompiler.GuiPreferences.ZIP_DIRECTORY_CONTAINER;
+
+public class IndexerPreferencesProvider extends JPanel implements PreferencesPanel, DocumentListener {
+
+    private static final long serialVersionUID = 1L;
+    protected static final int MAX_PARALLELISM = 64;
+    protected static final int MAX_CACHE_SIZE = 100_000;
+    protected static final String DEFAULT_CACHE_SIZE = "512";
+    protected static final int MAX_CLASS_BYTES_CACHE_SIZE = 4096;
+
+    protected transient PreferencesPanel.PreferencesPanelChangeListener listener;
+    protected JTextField parallelismTextField;
+    protected JCheckBox cacheEnabledCheckBox;
+    protected JCheckBox cacheSha1CheckBox;
+    protected JTextField cacheMaxSizeTextField;
+    protected JCheckBox compactCheckBox;
+    protected JCheckBox trigramsCheckBox;
+    protected JCheckBox zipDirectoryCheckBox;
+    protected JTextField classBytesCacheSizeTextField;
+    protected Color errorBackgroundColor = Color.RED;
+    protected Color defaultBackgroundColor;
+
+    public IndexerPreferencesProvider() {
+        super(new GridLayout(0, 2));
+
+        add(new JLabel("Indexing threads (1.." + MAX_PARALLELISM + "): "));
+
+        parallelismTextField = new JTextField();
+        parallelismTextField.getDocument().addDocumentListener(this);
+        add(parallelismTextField);
+
+        cacheEnabledCheckBox = new JCheckBox("Persist indexes on disk");
+        cacheEnabledCheckBox.addActionListener(e -> cacheSha1CheckBox.setEnabled(cacheEnabledCheckBox.isSelected()));
+        add(cacheEnabledCheckBox);
+
+        cacheSha1CheckBox = new JCheckBox("Check archive SHA-1");
+        add(cacheSha1CheckBox);
+
+        add(new JLabel("Index cache size in MB (1.." + MAX_CACHE_SIZE + "): "));
+
+        cacheMaxSizeTextField = new JTextField();
+        cacheMaxSizeTextField.getDocument().addDocumentListener(this);
+        add(cacheMaxSizeTextField);
+
+        compactCheckBox = new JCheckBox("Compact in-memory indexes");
+        add(compactCheckBox);
+
+        trigramsCheckBox = new JCheckBox("Index substrings of strings and members (more memory)");
+        add(trigramsCheckBox);
+
+        add(new JLabel("Class file cache size in MB (0.." + MAX_CLASS_BYTES_CACHE_SIZE + "): "));
+
+        classBytesCacheSizeTextField = new JTextField();
+        classBytesCacheSizeTextField.getDocument().addDocumentListener(this);
+        add(classBytesCacheSizeTextField);
+
+        zipDirectoryCheckBox = new JCheckBox("Read archives from their central directory");
+        add(zipDirectoryCheckBox);
+
+        defaultBackgroundColor = parallelismTextField.getBackground();
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public String getPreferencesGroupTitle() { return "Indexer"; }
+    @Override
+    public String getPreferencesPanelTitle() { return "Performance"; }
+    @Override
+    public JComponent getPanel() { return this; }
+
+    @Override
+    public void init(Color errorBackgroundColor) {
+        this.errorBackgroundColor = errorBackgroundColor;
+    }
+
+    @Override
+    public boolean isActivated() { return true; }
+
+    @Override
+    public void loadPreferences(Map<String, String> preferences) {
+        String preference = preferences.get(INDEXER_PARALLELISM);
+
+        parallelismTextField.setText(preference != null ? preference : getDefaultParallelism());
+        parallelismTextField.setCaretPosition(parallelismTextField.getText().length());
+        cacheEnabledCheckBox.setSelected(!"false".equals(preferences.get(INDEXES_CACHE_ENABLED)));
+        cacheSha1CheckBox.setSelected("true".equals(preferences.get(INDEXES_CACHE_SHA1)));
+        cacheSha1CheckBox.setEnabled(cacheEnabledCheckBox.isSelected());
+        cacheMaxSizeTextField.setText(preferences.getOrDefault(INDEXES_CACHE_MAX_SIZE, DEFAULT_CACHE_SIZE));
+        compactCheckBox.setSelected(!"false".equals(preferences.get(INDEXES_COMPACT)));
+        trigramsCheckBox.setSelected(!"false".equals(preferences.get(INDEXES_TRIGRAMS)));
+        zipDirectoryCheckBox.setSelected("true".equals(preferences.get(ZIP_DIRECTORY_CONTAINER)));
+        classBytesCacheSizeTextField.setText(preferences.getOrDefault(CLASS_BYTES_CACHE_SIZE, ClassBytesCache.DEFAULT_MAX_SIZE));
+    }
+
+    @Override
+    public void savePreferences(Map<String, String> preferences) {
+        preferences.put(INDEXER_PARALLELISM, parallelismTextField.getText());
+        preferences.put(INDEXES_CACHE_ENABLED, Boolean.toString(cacheEnabledCheckBox.isSelected()));
+        preferences.put(INDEXES_CACHE_SHA1, Boolean.toString(cacheSha1CheckBox.isSelected()));
+        preferences.put(INDEXES_CACHE_MAX_SIZE, cacheMaxSizeTextField.getText());
+        preferences.put(INDEXES_COMPACT, Boolean.toString(compactCheckBox.isSelected()));
+        preferences.put(INDEXES_TRIGRAMS, Boolean.toString(trigramsCheckBox.isSelected()));
+        preferences.put(ZIP_DIRECTORY_CONTAINER, Boolean.toString(zipDirectoryCheckBox.isSelected()));
+        preferences.put(CLASS_BYTES_CACHE_SIZE, classBytesCacheSizeTextField.getText());
+    }
+
+    @Override
+    public boolean arePreferencesValid() {
+        return isValid(parallelismTextField, MAX_PARALLELISM) && isValid(cacheMaxSizeTextField, MAX_CACHE_SIZE)
+                && isValid(classBytesCacheSizeTextField, 0, MAX_CLASS_BYTES_CACHE_SIZE);
+    }
+
+    protected static boolean isValid(JTextField textField, int maxValue) {
+        return isValid(textField, 1, maxValue);
+    }
+
+    protected static boolean isValid(JTextField textField, int minValue, int maxValue) {
+        try {
+            String text = textField.getText();
+            if (text != null && text.matches("\\d+")) {
+                int i = Integer.parseInt(text);
+                return i >= minValue && i <= maxValue;
+            }
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return false;
+    }
+
+    @Override
+    public void addPreferencesChangeListener(PreferencesPanel.PreferencesPanelChangeListener listener) {
+        this.listener = listener;
+    }
+
+    // --- DocumentListener --- //
+    @Override
+    public void insertUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void removeUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void changedUpdate(DocumentEvent e) { onTextChange(); }
+
+    public void onTextChange() {
+        parallelismTextField.setBackground(isValid(parallelismTextField, MAX_PARALLELISM) ? defaultBackgroundColor : errorBackgroundColor);
+        cacheMaxSizeTextField.setBackground(isValid(cacheMaxSizeTextField, MAX_CACHE_SIZE) ? defaultBackgroundColor : errorBackgroundColor);
+        classBytesCacheSizeTextField.setBackground(isValid(classBytesCacheSizeTextField, 0, MAX_CLASS_BYTES_CACHE_SIZE) ? defaultBackgroundColor : errorBackgroundColor);
+
+        if (listener != null) {
+            listener.preferencesPanelChanged(this);
+        }
+    }
+
+    @Override
+    public void restoreDefaults() {
+        parallelismTextField.setText(getDefaultParallelism());
+        cacheEnabledCheckBox.setSelected(true);
+        cacheSha1CheckBox.setSelected(false);
+        cacheSha1CheckBox.setEnabled(true);
+        cacheMaxSizeTextField.setText(DEFAULT_CACHE_SIZE);
+        compactCheckBox.setSelected(true);
+        trigramsCheckBox.setSelected(true);
+        zipDirectoryCheckBox.setSelected(false);
+        classBytesCacheSizeTextField.setText(ClassBytesCache.DEFAULT_MAX_SIZE);
+    }
+
+    private static String getDefaultParallelism() {
+        return String.valueOf(Math.min(ComputePool.getDefaultParallelism(), MAX_PARALLELISM));
+    }
+}
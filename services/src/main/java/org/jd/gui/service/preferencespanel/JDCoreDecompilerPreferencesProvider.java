@@ -13,12 +13,14 @@ import javax.swing.JComponent;
 import javax.swing.JPanel;
 
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static jd.core.preferences.Preferences.DISPLAY_DEFAULT_CONSTRUCTOR;
 import static jd.core.preferences.Preferences.ESCAPE_UNICODE_CHARACTERS;
 import static jd.core.preferences.Preferences.OMIT_THIS_PREFIX;
 import static jd.core.preferences.Preferences.REALIGN_LINE_NUMBERS;
 import static jd.core.preferences.Preferences.WRITE_LINE_NUMBERS;
 import static jd.core.preferences.Preferences.WRITE_METADATA;
+import static org.jd.gui.util.decompiler.GuiPreferences.PARALLEL_FALLBACK;
 
 public class JDCoreDecompilerPreferencesProvider extends JPanel implements PreferencesPanel {
 
@@ -29,6 +31,7 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
     protected JCheckBox realignLineNumbersCheckBox;
     protected JCheckBox omitThisPrefixCheckBox;
     protected JCheckBox displayDefaultConstructorCheckBox;
+    protected JCheckBox parallelFallbackCheckBox;
     protected JComboBox<String> decompileEngine;
 
     public JDCoreDecompilerPreferencesProvider(JComboBox<String> decompileEngine) {
@@ -43,6 +46,8 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
         realignLineNumbersCheckBox = new JCheckBox("Realign line numbers");
         omitThisPrefixCheckBox = new JCheckBox("Omit the prefix 'this' if possible");
         displayDefaultConstructorCheckBox = new JCheckBox("Display default constructor");
+        parallelFallbackCheckBox = new JCheckBox("Start JD-Core v0 fallback in parallel");
+        parallelFallbackCheckBox.setToolTipText("Decompile with JD-Core v0 at the same time as JD-Core v1, in case JD-Core v1 fails");
 
         add(writeLineNumbersCheckBox);
         add(writeMetadataCheckBox);
@@ -50,6 +55,7 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
         add(realignLineNumbersCheckBox);
         add(omitThisPrefixCheckBox);
         add(displayDefaultConstructorCheckBox);
+        add(parallelFallbackCheckBox);
     }
 
     @Override
@@ -60,6 +66,7 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
         realignLineNumbersCheckBox.setSelected(false);
         omitThisPrefixCheckBox.setSelected(false);
         displayDefaultConstructorCheckBox.setSelected(false);
+        parallelFallbackCheckBox.setSelected(false);
     }
 
     @Override
@@ -70,6 +77,7 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
         realignLineNumbersCheckBox.setSelected(Boolean.parseBoolean(preferences.getOrDefault(REALIGN_LINE_NUMBERS, Boolean.FALSE.toString())));
         omitThisPrefixCheckBox.setSelected(Boolean.parseBoolean(preferences.getOrDefault(OMIT_THIS_PREFIX, Boolean.FALSE.toString())));
         displayDefaultConstructorCheckBox.setSelected(Boolean.parseBoolean(preferences.getOrDefault(DISPLAY_DEFAULT_CONSTRUCTOR, Boolean.FALSE.toString())));
+        parallelFallbackCheckBox.setSelected(Boolean.parseBoolean(preferences.getOrDefault(PARALLEL_FALLBACK, Boolean.FALSE.toString())));
         toggleOldOptions();
     }
 
@@ -81,6 +89,7 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
         preferences.put(REALIGN_LINE_NUMBERS, Boolean.toString(realignLineNumbersCheckBox.isSelected()));
         preferences.put(OMIT_THIS_PREFIX, Boolean.toString(omitThisPrefixCheckBox.isSelected()));
         preferences.put(DISPLAY_DEFAULT_CONSTRUCTOR, Boolean.toString(displayDefaultConstructorCheckBox.isSelected()));
+        preferences.put(PARALLEL_FALLBACK, Boolean.toString(parallelFallbackCheckBox.isSelected()));
     }
 
     // --- PreferencesPanel --- //
@@ -120,5 +129,6 @@ public class JDCoreDecompilerPreferencesProvider extends JPanel implements Prefe
     public void toggleOldOptions() {
         omitThisPrefixCheckBox.setEnabled(ENGINE_JD_CORE_V0.equals(decompileEngine.getSelectedItem()));
         displayDefaultConstructorCheckBox.setEnabled(ENGINE_JD_CORE_V0.equals(decompileEngine.getSelectedItem()));
+        parallelFallbackCheckBox.setEnabled(ENGINE_JD_CORE_V1.equals(decompileEngine.getSelectedItem()));
     }
 }
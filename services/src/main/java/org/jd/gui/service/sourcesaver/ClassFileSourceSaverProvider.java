@@ -7,19 +7,13 @@
 
 package org.jd.gui.service.sourcesaver;
 
-import org.jd.core.v1.printer.LineNumberStringBuilderPrinter;
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.core.v1.util.StringConstants;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
-import org.jd.gui.util.MethodPatcher;
 import org.jd.gui.util.ProgressUtil;
 import org.jd.gui.util.decompiler.ContainerLoader;
-import org.jd.gui.util.loader.LoaderUtils;
-
-import com.heliosdecompiler.transformerapi.StandardTransformers;
-import com.heliosdecompiler.transformerapi.common.Loader;
+import org.jd.gui.util.decompiler.FallbackDecompiler;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -31,19 +25,17 @@ import java.util.function.BooleanSupplier;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
 
 import jd.core.ClassUtil;
-import jd.core.DecompilationResult;
 
 public class ClassFileSourceSaverProvider extends AbstractSourceSaverProvider {
 
-    private static final String INTERNAL_ERROR = "// INTERNAL ERROR //";
+    protected static final String INTERNAL_ERROR = "// INTERNAL ERROR //";
 
-    protected ContainerLoader loader = new ContainerLoader();
-    protected LineNumberStringBuilderPrinter printer = new LineNumberStringBuilderPrinter();
+    // Per-thread loaders, sources may be saved in parallel
+    protected final ThreadLocal<ContainerLoader> loaders = ThreadLocal.withInitial(ContainerLoader::new);
 
     @Override
     public String[] getSelectors() { return appendSelectors("*:file:*.class"); }
@@ -74,46 +66,47 @@ public class ClassFileSourceSaverProvider extends AbstractSourceSaverProvider {
 
     @Override
     public void saveContent(API api, Path rootPath, Path path, Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        writeCodeToFile(path, decompile(api, entry));
+        
+        try {
+            updateProgress(entry, getProgressFunction, setProgressFunction);
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
 
-        DecompilationResult decompiledResult = new DecompilationResult();
+    /**
+     * @return the source code of the class, or an error comment
+     */
+    public String decompile(API api, Container.Entry entry) {
+        String decompiledOutput;
         
         try {
             // Init preferences
             Map<String, String> preferences = api.getPreferences();
 
             // Init loader
+            ContainerLoader loader = loaders.get();
             loader.setEntry(entry);
 
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-            
             String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            decompiledResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
-            if (decompiledResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                decompiledResult.setDecompiledOutput(MethodPatcher.patchCode(decompiledResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry));
-            }
-
+            decompiledOutput = FallbackDecompiler.getInstance().decompile(loader, entry, preferences, decompileEngine).getOutput();
         } catch (Exception t) {
-            decompiledResult.setDecompiledOutput(INTERNAL_ERROR);
+            decompiledOutput = INTERNAL_ERROR;
             assert ExceptionUtil.printStackTrace(t);
         }
         
-        writeCodeToFile(path, decompiledResult.getDecompiledOutput());
-        
-        try {
-            ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
-            // update progress of inner classes that were filtered by PackageSourceSaverProvider
-            String internalTypeName = ClassUtil.getInternalName(entry.getPath());
-            for (Container.Entry e : entry.getParent().getChildren().values()) {
-                if (e.getPath().startsWith(internalTypeName + StringConstants.INTERNAL_INNER_SEPARATOR)) {
-                    ProgressUtil.updateProgress(e, getProgressFunction, setProgressFunction);
-                }
-            }
+        return decompiledOutput;
+    }
 
-        } catch (IOException e) {
-            assert ExceptionUtil.printStackTrace(e);
+    protected static void updateProgress(Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) throws IOException {
+        ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
+        // update progress of inner classes that were filtered by PackageSourceSaverProvider
+        String internalTypeName = ClassUtil.getInternalName(entry.getPath());
+        for (Container.Entry e : entry.getParent().getChildren().values()) {
+            if (e.getPath().startsWith(internalTypeName + StringConstants.INTERNAL_INNER_SEPARATOR)) {
+                ProgressUtil.updateProgress(e, getProgressFunction, setProgressFunction);
+            }
         }
     }
 
@@ -0,0 +1,416 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.sourcesaver;
+
+import org.apache.commons.io.IOUtils;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.service.indexer.ParallelIndexer;
+import org.jd.gui.spi.SourceSaver;
+import org.jd.gui.util.ProgressUtil;
+import org.jd.gui.util.TempFile;
+import org.jd.gui.util.decompiler.DecompilationWatchdog;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Parallel export of the sources of a container into a zip archive or a directory.
+ * <br>
+ * A producer thread walks the entries like the sequential savers do, and submits one task per file to a pool of
+ * workers. The calling thread writes the results into the archive in submission order, so that the order of the
+ * entries does not depend on scheduling. The queue of pending results is bounded: the producer waits when the workers
+ * or the writer fall behind.
+ * <br>
+ * Class files are decompiled and files are copied by the workers directly. The other files, like nested archives,
+ * are saved by their saver into a temporary archive, then copied.
+ * <br>
+ * The pool of workers may be shared by several exports, like in batch mode: it is then neither created nor shut down
+ * by this saver.
+ */
+public class ParallelSourceSaver {
+    protected static final int QUEUE_SIZE_PER_THREAD = 4;
+
+    // End of the walk
+    private static final Future<Result> END = CompletableFuture.completedFuture(null);
+    private static final Result EMPTY = new Result(Collections.emptyList(), 0);
+
+    private final API api;
+    private final int parallelism;
+    private final ExecutorService sharedWorkers;
+    private final DoubleSupplier getProgressFunction;
+    private final DoubleConsumer setProgressFunction;
+    private final BooleanSupplier isCancelledFunction;
+    private Listener listener;
+    private volatile boolean stopped;
+
+    public ParallelSourceSaver(API api, int parallelism, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        this(api, parallelism, null, getProgressFunction, setProgressFunction, isCancelledFunction);
+    }
+
+    /**
+     * @param sharedWorkers the pool of workers, or null to create one per export
+     */
+    public ParallelSourceSaver(API api, int parallelism, ExecutorService sharedWorkers, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        this.api = api;
+        this.parallelism = parallelism;
+        this.sharedWorkers = sharedWorkers;
+        this.getProgressFunction = getProgressFunction;
+        this.setProgressFunction = setProgressFunction;
+        this.isCancelledFunction = isCancelledFunction;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return true if the sources of the entry must be saved in parallel
+     */
+    public static boolean isEnabled(API api, SourceSaver saver) {
+        return saver instanceof DirectorySourceSaverProvider && ParallelIndexer.getParallelism(api) > 1;
+    }
+
+    /**
+     * Save the sources of the children of the entry into a new archive.
+     */
+    public void save(Container.Entry entry, DirectorySourceSaverProvider saver, Path path) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            save(entry, saver, (name, bytes) -> {
+                zos.putNextEntry(new ZipEntry(name));
+                if (bytes != null) {
+                    zos.write(bytes);
+                }
+                zos.closeEntry();
+            });
+        }
+    }
+
+    /**
+     * Save the sources of the children of the entry into a directory.
+     */
+    public void saveToDirectory(Container.Entry entry, DirectorySourceSaverProvider saver, Path path) throws IOException {
+        Path directory = path.toAbsolutePath().normalize();
+
+        Files.createDirectories(directory);
+        save(entry, saver, (name, bytes) -> {
+            Path target = directory.resolve(name).normalize();
+
+            if (!target.startsWith(directory)) {
+                throw new IOException("Entry outside of the target directory: " + name);
+            }
+            if (bytes == null) {
+                Files.createDirectories(target);
+            } else {
+                Path parent = target.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.write(target, bytes);
+            }
+        });
+    }
+
+    protected void save(Container.Entry entry, DirectorySourceSaverProvider saver, Output output) throws IOException {
+        ExecutorService workers = sharedWorkers != null ? sharedWorkers : newWorkers(parallelism);
+        BlockingQueue<Future<Result>> queue = new ArrayBlockingQueue<>(parallelism * QUEUE_SIZE_PER_THREAD);
+        Thread producer = new Thread(() -> produce(saver, entry, queue, workers), "source-saver-producer");
+
+        producer.setDaemon(true);
+
+        try {
+            producer.start();
+            write(queue, output);
+        } catch (InterruptedException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped = true;
+            producer.interrupt();
+            if (workers != sharedWorkers) {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    public static ExecutorService newWorkers(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "source-saver-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    protected boolean isCancelled() {
+        return stopped || isCancelledFunction.getAsBoolean();
+    }
+
+    // --- Producer --- //
+    protected void produce(DirectorySourceSaverProvider saver, Container.Entry entry, BlockingQueue<Future<Result>> queue, ExecutorService workers) {
+        try {
+            walk(saver.getChildren(entry), queue, workers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void walk(Collection<Container.Entry> entries, BlockingQueue<Future<Result>> queue, ExecutorService workers) throws InterruptedException {
+        for (Container.Entry entry : entries) {
+            if (isCancelled()) {
+                return;
+            }
+
+            SourceSaver sourceSaver = api.getSourceSaver(entry);
+
+            if (sourceSaver != null) {
+                if (entry.isDirectory() && sourceSaver instanceof DirectorySourceSaverProvider) {
+                    Source directory = new Source(entry.getPath() + '/', null);
+                    queue.put(CompletableFuture.completedFuture(new Result(Collections.singletonList(directory), 0)));
+                    walk(((DirectorySourceSaverProvider) sourceSaver).getChildren(entry), queue, workers);
+                } else {
+                    // Tasks of a cancelled export may still be queued in a shared pool
+                    queue.put(workers.submit(() -> isCancelled() ? EMPTY : saveOrFail(sourceSaver, entry)));
+                }
+            }
+        }
+    }
+
+    // --- Workers --- //
+    /**
+     * Like the sequential savers, a file that cannot be saved is exported as an error comment, and counted as failed.
+     */
+    protected Result saveOrFail(SourceSaver sourceSaver, Container.Entry entry) throws IOException {
+        long start = System.nanoTime();
+
+        try {
+            return save(sourceSaver, entry);
+        } catch (Exception e) {
+            assert ExceptionUtil.printStackTrace(e);
+
+            boolean classFile = sourceSaver instanceof ClassFileSourceSaverProvider;
+            Progress progress = new Progress();
+
+            if (classFile) {
+                if (listener != null) {
+                    listener.classSaved(entry, System.nanoTime() - start, true, false);
+                }
+                ClassFileSourceSaverProvider.updateProgress(entry, progress::get, progress::set);
+            } else {
+                ProgressUtil.updateProgress(entry, progress::get, progress::set);
+            }
+
+            byte[] bytes = ClassFileSourceSaverProvider.INTERNAL_ERROR.getBytes(StandardCharsets.UTF_8);
+            return new Result(Collections.singletonList(new Source(sourceSaver.getSourcePath(entry), bytes)), progress.value);
+        }
+    }
+
+    protected Result save(SourceSaver sourceSaver, Container.Entry entry) throws IOException {
+        Progress progress = new Progress();
+
+        if (sourceSaver instanceof ClassFileSourceSaverProvider) {
+            ClassFileSourceSaverProvider classFileSourceSaver = (ClassFileSourceSaverProvider) sourceSaver;
+            long start = System.nanoTime();
+            String source = classFileSourceSaver.decompile(api, entry);
+            byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+
+            if (listener != null) {
+                boolean failed = source.equals(ClassFileSourceSaverProvider.INTERNAL_ERROR) || source.contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE);
+                boolean timedOut = source.startsWith(DecompilationWatchdog.TIMED_OUT);
+                listener.classSaved(entry, System.nanoTime() - start, failed, timedOut);
+            }
+
+            ClassFileSourceSaverProvider.updateProgress(entry, progress::get, progress::set);
+            return new Result(Collections.singletonList(new Source(sourceSaver.getSourcePath(entry), bytes)), progress.value);
+        }
+
+        if (sourceSaver.getClass() == FileSourceSaverProvider.class) {
+            byte[] bytes = null;
+
+            try (InputStream is = entry.getInputStream()) {
+                if (is != null) {
+                    bytes = IOUtils.toByteArray(is);
+                }
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+            if (bytes == null) {
+                bytes = ClassFileSourceSaverProvider.INTERNAL_ERROR.getBytes(StandardCharsets.UTF_8);
+            }
+
+            ProgressUtil.updateProgress(entry, progress::get, progress::set);
+            return new Result(Collections.singletonList(new Source(sourceSaver.getSourcePath(entry), bytes)), progress.value);
+        }
+
+        return saveToTempArchive(sourceSaver, entry, progress);
+    }
+
+    /**
+     * Savers resolve their paths against the root of an archive, like in the sequential export.
+     */
+    protected Result saveToTempArchive(SourceSaver sourceSaver, Container.Entry entry, Progress progress) throws IOException {
+        try (TempFile tmpFile = new TempFile(".zip")) {
+            URI uri = tmpFile.toURI();
+            URI archiveUri = new URI("jar:" + uri.getScheme(), uri.getHost(), uri.getPath() + "!/", null);
+            List<Source> sources = new ArrayList<>();
+
+            try (FileSystem archiveFs = FileSystems.newFileSystem(archiveUri, Collections.singletonMap("create", "true"))) {
+                Path archiveRootPath = archiveFs.getPath("/");
+
+                sourceSaver.save(api, archiveRootPath, entry, progress::get, progress::set, this::isCancelled);
+
+                try (Stream<Path> stream = Files.walk(archiveRootPath)) {
+                    for (Path path : (Iterable<Path>) stream.sorted()::iterator) {
+                        if (!path.equals(archiveRootPath)) {
+                            String name = archiveRootPath.relativize(path).toString();
+
+                            if (Files.isDirectory(path)) {
+                                sources.add(new Source(name + '/', null));
+                            } else {
+                                sources.add(new Source(name, Files.readAllBytes(path)));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+
+            return new Result(sources, progress.value);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // --- Writer --- //
+    protected void write(BlockingQueue<Future<Result>> queue, Output output) throws IOException, InterruptedException {
+        Set<String> names = new HashSet<>();
+        double progress = getProgressFunction.getAsDouble();
+
+        for (Future<Result> future = queue.take(); future != END && !isCancelled(); future = queue.take()) {
+            Result result;
+
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                // Errors only, the exceptions of the workers are saved as error comments
+                throw new IOException(e.getCause());
+            }
+
+            for (Source source : result.sources) {
+                // Directories of nested savers may have been written already
+                if (names.add(source.name)) {
+                    output.write(source.name, source.bytes);
+                }
+            }
+
+            if (result.progress > 0) {
+                progress += result.progress;
+                setProgressFunction.accept(Math.min(progress, 100));
+            }
+        }
+    }
+
+    /**
+     * Notified by the workers, once per class file.
+     */
+    public interface Listener {
+        /**
+         * @param time     the decompilation time, in nanoseconds
+         * @param failed   true if the class could not be decompiled, entirely or partially
+         * @param timedOut true if the selected engine exceeded the budgets of the watchdog
+         */
+        void classSaved(Container.Entry entry, long time, boolean failed, boolean timedOut);
+    }
+
+    protected interface Output {
+        /**
+         * @param bytes the content of the file, or null for a directory
+         */
+        void write(String name, byte[] bytes) throws IOException;
+    }
+
+    protected static class Source {
+        private final String name;
+        private final byte[] bytes; // null for directories
+
+        public Source(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+
+    protected static class Result {
+        private final List<Source> sources;
+        private final double progress;
+
+        public Result(List<Source> sources, double progress) {
+            this.sources = sources;
+            this.progress = progress;
+        }
+    }
+
+    /**
+     * Progress of a task, added to the global progress by the writer.
+     */
+    protected static class Progress {
+        private double value;
+
+        public double get() { return value; }
+        public void set(double value) { this.value = value; }
+    }
+}
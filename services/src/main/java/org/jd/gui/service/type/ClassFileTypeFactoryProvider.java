@@ -13,7 +13,7 @@ import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.model.container.entry.path.FileEntryPath;
-import org.jd.util.LRUCache;
+import org.jd.util.WeightedCache;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
@@ -30,10 +30,14 @@ import java.util.List;
 
 import javax.swing.Icon;
 
+import static org.jd.gui.util.decompiler.GuiPreferences.CLASS_TYPE_CACHE_SIZE;
+
 public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
 
-    // Create cache
-    protected LRUCache<URI, JavaType> cache = new LRUCache<>();
+    public static final long CACHE_MAX_ENTRIES = 1000;
+
+    // Create cache, shared by several threads, like the searchers of constant pools
+    protected WeightedCache<URI, JavaType> cache = new WeightedCache<>(CLASS_TYPE_CACHE_SIZE, CACHE_MAX_ENTRIES);
 
     @Override
     public String[] getSelectors() { return appendSelectors("*:file:*.class"); }
@@ -46,11 +50,11 @@ public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
     @Override
     public Type make(API api, Container.Entry entry, String fragment) {
         URI key = entry.getUri();
+        JavaType type = cache.get(key);
 
-        if (cache.containsKey(key)) {
-            return cache.get(key);
+        if (type != null) {
+            return type;
         }
-        JavaType type;
 
         try (InputStream is = entry.getInputStream()) {
             ClassReader classReader = new ClassReader(is);
@@ -108,7 +112,9 @@ public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
             type = null;
         }
 
-        cache.put(key, type);
+        if (type != null) {
+            cache.put(key, type);
+        }
         return type;
     }
 
@@ -20,7 +20,7 @@ import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.util.parser.jdt.ASTParserFactory;
 import org.jd.gui.util.parser.jdt.core.AbstractJavaListener;
-import org.jd.util.LRUCache;
+import org.jd.util.WeightedCache;
 
 import java.io.IOException;
 import java.net.URI;
@@ -35,11 +35,14 @@ import javax.swing.Icon;
 
 import static org.apache.bcel.Const.ACC_INTERFACE;
 import static org.apache.bcel.Const.ACC_STATIC;
+import static org.jd.gui.util.decompiler.GuiPreferences.JAVA_TYPE_CACHE_SIZE;
 
 public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
 
-    // Create cache
-    protected LRUCache<URI, Listener> cache = new LRUCache<>();
+    public static final long CACHE_MAX_ENTRIES = 200;
+
+    // Create cache, shared by several threads, like the searchers of constant pools
+    protected WeightedCache<URI, Listener> cache = new WeightedCache<>(JAVA_TYPE_CACHE_SIZE, CACHE_MAX_ENTRIES);
 
     @Override
     public String[] getSelectors() {
@@ -78,11 +81,10 @@ public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
     }
 
     protected Listener getListener(Container.Entry entry) {
-        URI key = entry.getUri();
+        return cache.computeIfAbsent(entry.getUri(), key -> parse(entry));
+    }
 
-        if (cache.containsKey(key)) {
-            return cache.get(key);
-        }
+    protected Listener parse(Container.Entry entry) {
         Listener listener;
 
         try {
@@ -93,7 +95,6 @@ public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
             listener = null;
         }
 
-        cache.put(key, listener);
         return listener;
     }
 
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of daemon threads shared by the background computations of the user interface, like the decompilations of
+ * the pages and the searches, bounded by the number of processors.
+ * <br>
+ * Tasks may wait for other tasks of the pool only if these are already running: a task waiting for a queued task
+ * could wait forever once all the threads wait.
+ */
+public final class ComputePool {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(getDefaultParallelism(), r -> {
+        Thread thread = new Thread(r, "compute-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ComputePool() {
+    }
+
+    public static ExecutorService getExecutor() { return EXECUTOR; }
+
+    /**
+     * @return the default degree of parallelism of the computations, like the indexation or the export of sources
+     */
+    public static int getDefaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Scheduler of the queries of a view, where each query supersedes the previous ones: a superseded query is skipped if
+ * it has not started yet, stops at its next call to {@link Query#checkCancelled()} if it is running, and its results
+ * are never published.
+ */
+public class QueryScheduler {
+    private final Executor executor;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public QueryScheduler(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Supersede the previous queries, then execute the task of the new one.
+     */
+    public void execute(Consumer<Query> task) {
+        Query query = newQuery();
+
+        executor.execute(() -> {
+            if (!query.isCancelled()) {
+                try {
+                    task.accept(query);
+                } catch (CancellationException e) {
+                    // Superseded
+                }
+            }
+        });
+    }
+
+    /**
+     * @return a new query, superseding the previous ones
+     */
+    public Query newQuery() {
+        return new Query(generation.incrementAndGet());
+    }
+
+    /**
+     * Supersede the previous queries.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public class Query {
+        private final int generation;
+
+        protected Query(int generation) {
+            this.generation = generation;
+        }
+
+        public boolean isCancelled() {
+            return generation != QueryScheduler.this.generation.get();
+        }
+
+        /**
+         * To call in the loops of the task.
+         *
+         * @throws CancellationException if the query has been superseded
+         */
+        public void checkCancelled() {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Run the publication of the results on the event dispatch thread, unless the query has been superseded
+         * in the meantime.
+         */
+        public void publish(Runnable runnable) {
+            SwingUtilities.invokeLater(() -> {
+                if (!isCancelled()) {
+                    runnable.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.container;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
+import org.jd.core.v1.util.StringConstants;
+import org.jd.gui.api.model.Container;
+import org.jd.util.WeightedCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.CLASS_BYTES_CACHE_SIZE;
+
+/**
+ * Decompressed bytes of class files, shared by the indexers, the type factories, the loaders of the decompilers and
+ * the source savers, which all read the same entries.
+ * <br>
+ * Containers read class entries through this cache, keyed by entry. The cache is bounded by the total size of the
+ * cached bytes, in MB in the preferences applied by {@link WeightedCache#applyPreferences(java.util.Map)}, least
+ * recently used entries are evicted first.
+ */
+public class ClassBytesCache {
+    public static final String DEFAULT_MAX_SIZE = "64"; // in MB
+    // Per-entry overhead: array header, map node and key reference
+    protected static final int ENTRY_OVERHEAD = 64;
+
+    protected static final ClassBytesCache CLASS_BYTES_CACHE = new ClassBytesCache();
+
+    public static ClassBytesCache getInstance() { return CLASS_BYTES_CACHE; }
+
+    private final WeightedCache<Container.Entry, byte[]> cache = new WeightedCache<>(CLASS_BYTES_CACHE_SIZE,
+            Long.parseLong(DEFAULT_MAX_SIZE) << 20, 1 << 20, bytes -> bytes.length + ENTRY_OVERHEAD);
+
+    protected ClassBytesCache() {
+    }
+
+    /**
+     * @param entry    the entry
+     * @param supplier the stream of the entry, read on cache miss
+     * @return a stream on the bytes of the entry, cached if the entry is a class file
+     */
+    public InputStream getInputStream(Container.Entry entry, IOSupplier<InputStream> supplier) throws IOException {
+        if (!isCacheable(entry)) {
+            return supplier.get();
+        }
+
+        byte[] bytes = cache.get(entry);
+
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        try (InputStream inputStream = supplier.get()) {
+            if (inputStream == null) {
+                return null;
+            }
+            bytes = IOUtils.toByteArray(inputStream);
+        }
+
+        // Large entries would evict many others
+        if (bytes.length <= cache.getMaxWeight() / 16) {
+            cache.put(entry, bytes);
+        }
+
+        return new ByteArrayInputStream(bytes);
+    }
+
+    protected boolean isCacheable(Container.Entry entry) {
+        return cache.getMaxWeight() > 0 && !entry.isDirectory() && entry.getPath().endsWith(StringConstants.CLASS_FILE_SUFFIX);
+    }
+
+    /**
+     * Remove the entries of a container, when it is closed.
+     */
+    public void invalidate(Container container) {
+        cache.removeIf(entry -> entry.getContainer() == container);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getSize() { return cache.getWeight(); }
+    public long getMaxSize() { return cache.getMaxWeight(); }
+    public int getEntryCount() { return cache.getEntryCount(); }
+    public long getHitCount() { return cache.getHitCount(); }
+    public long getMissCount() { return cache.getMissCount(); }
+    public long getEvictionCount() { return cache.getEvictionCount(); }
+
+    @Override
+    public String toString() {
+        return "ClassBytesCache [" + cache + "]";
+    }
+}
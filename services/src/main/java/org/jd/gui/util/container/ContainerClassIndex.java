@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.container;
+
+import org.jd.core.v1.util.StringConstants;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.entry.path.DirectoryEntryPath;
+import org.jd.gui.model.container.entry.path.FileEntryPath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class file entries of a container, by internal path, like "java/lang/Object.class".
+ * <br>
+ * The index covers the class files of all directories, the classes of web and Spring Boot applications, and the
+ * class files of their nested library jars. It is built on first lookup.
+ * <br>
+ * Containers of directories are not scanned, a directory may be as large as a home directory: their entries are
+ * resolved path segment by path segment.
+ */
+public class ContainerClassIndex {
+    protected static final String[] CLASSES_DIRECTORIES = { "WEB-INF/classes/", "BOOT-INF/classes/" };
+    protected static final String[] LIBRARY_DIRECTORIES = { "WEB-INF/lib/", "BOOT-INF/lib/" };
+
+    // Indexes are removed when their container is closed, see GenericContainer and ZipDirectoryContainer. Weak keys
+    // would not help: indexes reference their container, directly and through their entries.
+    protected static final Map<Container, ContainerClassIndex> INDEXES = new HashMap<>();
+
+    private final Container container;
+    private final boolean directory;
+    private Map<String, Container.Entry> entries;
+
+    protected ContainerClassIndex(Container container) {
+        Container.Entry parentEntry = container.getRoot().getParent();
+
+        this.container = container;
+        this.directory = parentEntry != null && parentEntry.isDirectory();
+    }
+
+    public static ContainerClassIndex getInstance(Container container) {
+        synchronized (INDEXES) {
+            return INDEXES.computeIfAbsent(container, ContainerClassIndex::new);
+        }
+    }
+
+    /**
+     * @return the indexes of the container of the entry and of its enclosing containers, from the nearest one
+     */
+    public static List<ContainerClassIndex> getInstances(Container.Entry entry) {
+        List<ContainerClassIndex> indexes = new ArrayList<>();
+        Container container = entry.getContainer();
+
+        while (container != null && container.getRoot() != null) {
+            indexes.add(getInstance(container));
+
+            Container.Entry parentEntry = container.getRoot().getParent();
+            container = parentEntry == null ? null : parentEntry.getContainer();
+        }
+
+        return indexes;
+    }
+
+    public static void invalidate(Container container) {
+        synchronized (INDEXES) {
+            INDEXES.remove(container);
+        }
+    }
+
+    /**
+     * @param internalPath the internal name of a type followed by ".class"
+     * @return the entry of the type, null if not found
+     */
+    public Container.Entry get(String internalPath) {
+        if (directory) {
+            return resolve(internalPath);
+        }
+        return getEntries().get(internalPath);
+    }
+
+    protected Container.Entry resolve(String internalPath) {
+        Container.Entry entry = resolve(container.getRoot(), internalPath);
+
+        for (int i = 0; entry == null && i < CLASSES_DIRECTORIES.length; i++) {
+            entry = resolve(container.getRoot(), CLASSES_DIRECTORIES[i] + internalPath);
+        }
+
+        return entry;
+    }
+
+    protected static Container.Entry resolve(Container.Entry root, String path) {
+        Container.Entry parent = root;
+        int index = path.indexOf('/');
+
+        while (index != -1) {
+            parent = getChild(parent, new DirectoryEntryPath(path.substring(0, index)));
+
+            if (parent == null) {
+                return null;
+            }
+
+            index = path.indexOf('/', index + 1);
+        }
+
+        return getChild(parent, new FileEntryPath(path));
+    }
+
+    private static Container.Entry getChild(Container.Entry parent, Container.EntryPath path) {
+        Map<Container.EntryPath, Container.Entry> children = parent.getChildren();
+        return children == null ? null : children.get(path);
+    }
+
+    protected synchronized Map<String, Container.Entry> getEntries() {
+        if (entries == null) {
+            Map<String, Container.Entry> map = new HashMap<>();
+            List<Container.Entry> libraries = new ArrayList<>();
+
+            // Classes of the container take precedence over the classes of its libraries
+            add(map, container.getRoot(), libraries);
+
+            for (Container.Entry library : libraries) {
+                add(map, library, null);
+            }
+
+            entries = map;
+        }
+        return entries;
+    }
+
+    protected static void add(Map<String, Container.Entry> map, Container.Entry parent, List<Container.Entry> libraries) {
+        Map<Container.EntryPath, Container.Entry> children = parent.getChildren();
+
+        if (children == null) {
+            return;
+        }
+
+        for (Container.Entry child : children.values()) {
+            String path = child.getPath();
+
+            if (child.isDirectory()) {
+                add(map, child, libraries);
+            } else if (path.endsWith(StringConstants.CLASS_FILE_SUFFIX)) {
+                map.putIfAbsent(getInternalPath(path), child);
+            } else if (libraries != null && path.endsWith(".jar") && startsWithAny(path, LIBRARY_DIRECTORIES)) {
+                libraries.add(child);
+            }
+        }
+    }
+
+    protected static String getInternalPath(String path) {
+        for (String directory : CLASSES_DIRECTORIES) {
+            if (path.startsWith(directory)) {
+                return path.substring(directory.length());
+            }
+        }
+        return path;
+    }
+
+    private static boolean startsWithAny(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
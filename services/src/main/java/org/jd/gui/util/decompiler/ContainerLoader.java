@@ -11,16 +11,17 @@ import org.apache.commons.io.IOUtils;
 import org.jd.core.v1.api.loader.Loader;
 import org.jd.core.v1.util.StringConstants;
 import org.jd.gui.api.model.Container;
-import org.jd.gui.model.container.entry.path.FileEntryPath;
+import org.jd.gui.util.container.ContainerClassIndex;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
-import java.util.Map;
+import java.util.List;
 
 public class ContainerLoader implements Loader {
 
     private Container.Entry entry;
+    private List<ContainerClassIndex> classIndexes;
 
     public ContainerLoader() {
         this.entry = null;
@@ -32,6 +33,7 @@ public class ContainerLoader implements Loader {
 
     public void setEntry(Container.Entry e) {
         this.entry = e;
+        this.classIndexes = null;
     }
 
     protected Container.Entry getEntry(String internalPath) {
@@ -41,8 +43,17 @@ public class ContainerLoader implements Loader {
         if (entry.getPath().equals(internalPath)) {
             return entry;
         }
-        Map<Container.EntryPath, Container.Entry> children = entry.getParent().getChildren();
-        return children.get(new FileEntryPath(internalPath));
+        if (classIndexes == null) {
+            // Indexes of the container and of its enclosing containers, including their nested libraries
+            classIndexes = ContainerClassIndex.getInstances(entry);
+        }
+        for (ContainerClassIndex classIndex : classIndexes) {
+            Container.Entry e = classIndex.get(internalPath);
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.core.v1.util.StringConstants;
+import org.jd.util.WeightedCache;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import com.heliosdecompiler.transformerapi.StandardTransformers;
+import com.heliosdecompiler.transformerapi.TransformationException;
+import com.heliosdecompiler.transformerapi.common.Loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.CLASS_TYPE_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_DISK_CACHE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_MEMORY_BUDGET;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_TIME_BUDGET;
+import static org.jd.gui.util.decompiler.GuiPreferences.JAVA_TYPE_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.OPEN_TYPE_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.PARALLEL_FALLBACK;
+import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
+import static org.jd.gui.util.decompiler.GuiPreferences.SEARCH_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_ERRORS;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_INFO;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_WARNINGS;
+import static org.jd.gui.util.decompiler.GuiPreferences.TIMEOUT_FALLBACK_ENGINE;
+
+import jd.core.DecompilationResult;
+
+/**
+ * Results of the decompilers, keyed by the SHA-1 of the bytes of the class and of its inner classes, the name of the
+ * engine and the preferences affecting the output.
+ * <br>
+ * Results are kept in memory, least recently used first evicted, the number of results being read from the preferences
+ * applied by {@link WeightedCache#applyPreferences(Map)}, and optionally stored on disk, compressed. The disk store holds the source code and the line numbers only: the views rebuild the hyperlinks of results read from disk
+ * by parsing the source code.
+ * <br>
+ * Cached results are shared: they must not be modified.
+ */
+public class DecompilationCache {
+    public static final String DEFAULT_MAX_SIZE = "256"; // in results
+    public static final String CACHE_DIRECTORY_NAME = "jd-gui-duo.sources";
+
+    /**
+     * To increment each time the disk format changes.
+     */
+    protected static final int FORMAT_VERSION = 1;
+    protected static final int MAGIC = 0x4A44534F; // "JDSO"
+    protected static final String CACHE_FILE_SUFFIX = ".src";
+    protected static final long DISK_MAX_SIZE = 256L * 1024 * 1024;
+
+    // Preferences not read by the decompilers. The engine is part of the key.
+    protected static final String[] IGNORED_PREFERENCE_PREFIXES = {
+        "IndexerPreferences.", "DirectoryIndexerPreferences.", "ViewerPreferences.", "JdGuiPreferences.",
+        "MavenOrgSourceLoaderPreferencesProvider.", "UIMainWindowPreferencesProvider.", "UITabsPreferencesProvider."
+    };
+    protected static final Set<String> IGNORED_PREFERENCES = new TreeSet<>(Arrays.asList(
+        DECOMPILE_ENGINE, REMOVE_UNNECESSARY_CASTS, SHOW_COMPILER_ERRORS, SHOW_COMPILER_WARNINGS, SHOW_COMPILER_INFO,
+        PARALLEL_FALLBACK, DECOMPILE_TIME_BUDGET, DECOMPILE_MEMORY_BUDGET, TIMEOUT_FALLBACK_ENGINE,
+        DECOMPILATION_CACHE_SIZE, DECOMPILATION_DISK_CACHE, CLASS_TYPE_CACHE_SIZE, JAVA_TYPE_CACHE_SIZE,
+        OPEN_TYPE_CACHE_SIZE, SEARCH_CACHE_SIZE
+    ));
+
+    protected static final DecompilationCache DECOMPILATION_CACHE = new DecompilationCache();
+
+    public static DecompilationCache getInstance() { return DECOMPILATION_CACHE; }
+
+    private final WeightedCache<String, DecompilationResult> cache = new WeightedCache<>(DECOMPILATION_CACHE_SIZE, Long.parseLong(DEFAULT_MAX_SIZE));
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "decompilation-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean diskEnabled;
+    private volatile File directory;
+    private long diskSize = -1; // unknown until the first write
+    private long diskHitCount;
+    private long decompilationCount;
+
+    protected DecompilationCache() {
+    }
+
+    /**
+     * Read the activation of the disk store.
+     */
+    public void applyPreferences(Map<String, String> preferences) {
+        diskEnabled = "true".equals(preferences.get(DECOMPILATION_DISK_CACHE));
+    }
+
+    /**
+     * @param directory the directory of the disk store, null to disable it
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Decompile a class, or return the cached result of a previous decompilation.
+     *
+     * @param classLoader  the loader reading the bytes of the class and of its inner classes
+     * @param apiLoader    the loader given to the decompiler
+     * @param internalName the internal name of the class
+     * @param preferences  the preferences of the decompiler
+     * @param engineName   the name of the decompiler
+     * @return the result, to not modify
+     */
+    public DecompilationResult decompile(org.jd.core.v1.api.loader.Loader classLoader, Loader apiLoader, String internalName,
+            Map<String, String> preferences, String engineName)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        String key = cache.getMaxWeight() > 0 || isDiskEnabled() ? computeKey(classLoader, internalName, preferences, engineName) : null;
+
+        if (key == null) {
+            return StandardTransformers.decompile(apiLoader, internalName, preferences, engineName);
+        }
+
+        DecompilationResult result = cache.get(key);
+
+        if (result != null) {
+            return result;
+        }
+
+        result = isDiskEnabled() ? read(key) : null;
+
+        if (result == null) {
+            result = StandardTransformers.decompile(apiLoader, internalName, preferences, engineName);
+
+            if (isDiskEnabled()) {
+                store(key, result);
+            }
+
+            synchronized (this) {
+                decompilationCount++;
+            }
+        } else {
+            synchronized (this) {
+                diskHitCount++;
+            }
+        }
+
+        cache.put(key, result);
+
+        return result;
+    }
+
+    /**
+     * @return the result kept in memory, null if the class has not been decompiled recently
+     */
+    public DecompilationResult getIfPresent(org.jd.core.v1.api.loader.Loader classLoader, String internalName,
+            Map<String, String> preferences, String engineName) {
+        if (cache.getMaxWeight() <= 0) {
+            return null;
+        }
+
+        String key = computeKey(classLoader, internalName, preferences, engineName);
+
+        if (key == null) {
+            return null;
+        }
+
+        return cache.get(key);
+    }
+
+    protected boolean isDiskEnabled() {
+        return diskEnabled && directory != null;
+    }
+
+    /**
+     * @return the hexadecimal SHA-1 of the key, null if the class can not be read
+     */
+    protected static String computeKey(org.jd.core.v1.api.loader.Loader classLoader, String internalName, Map<String, String> preferences, String engineName) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+
+            update(messageDigest, engineName);
+
+            // Sorted preferences
+            for (Map.Entry<String, String> preference : new TreeMap<>(preferences).entrySet()) {
+                if (isRelevant(preference.getKey())) {
+                    update(messageDigest, preference.getKey());
+                    update(messageDigest, String.valueOf(preference.getValue()));
+                }
+            }
+
+            // Class and inner classes
+            Set<String> visitedNames = new TreeSet<>();
+            Deque<String> names = new ArrayDeque<>();
+            Map<String, byte[]> classes = new TreeMap<>();
+
+            names.add(internalName);
+
+            while (!names.isEmpty()) {
+                String name = names.pop();
+
+                if (visitedNames.add(name) && classLoader.canLoad(name)) {
+                    byte[] bytes = classLoader.load(name);
+
+                    if (bytes == null) {
+                        return null;
+                    }
+
+                    classes.put(name, bytes);
+                    names.addAll(getInnerClassNames(name, bytes));
+                }
+            }
+
+            if (!classes.containsKey(internalName)) {
+                return null;
+            }
+
+            for (Map.Entry<String, byte[]> mapEntry : classes.entrySet()) {
+                update(messageDigest, mapEntry.getKey());
+                update(messageDigest, mapEntry.getValue());
+            }
+
+            StringBuilder sb = new StringBuilder(40);
+            for (byte b : messageDigest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | IOException | RuntimeException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return null;
+        }
+    }
+
+    protected static boolean isRelevant(String preferenceKey) {
+        if (IGNORED_PREFERENCES.contains(preferenceKey)) {
+            return false;
+        }
+        for (String prefix : IGNORED_PREFERENCE_PREFIXES) {
+            if (preferenceKey.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the names of the classes declared in the given class, read from its "InnerClasses" attribute
+     */
+    protected static Set<String> getInnerClassNames(String internalName, byte[] bytes) {
+        Set<String> innerClassNames = new TreeSet<>();
+        String prefix = internalName + StringConstants.INTERNAL_INNER_SEPARATOR;
+
+        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                if (name.startsWith(prefix)) {
+                    innerClassNames.add(name);
+                }
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return innerClassNames;
+    }
+
+    private static void update(MessageDigest messageDigest, String s) {
+        update(messageDigest, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest messageDigest, byte[] bytes) {
+        // Length prefixed, so that no concatenation of fields collides with another one
+        int length = bytes.length;
+        messageDigest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+        messageDigest.update(bytes);
+    }
+
+    // --- Disk store --- //
+    protected File getCacheFile(String key) {
+        File dir = directory;
+        return dir == null ? null : new File(dir, key + CACHE_FILE_SUFFIX);
+    }
+
+    protected DecompilationResult read(String key) {
+        File cacheFile = getCacheFile(key);
+
+        if (cacheFile != null && cacheFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile.toPath()))))) {
+                if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION) {
+                    byte[] output = new byte[in.readInt()];
+                    in.readFully(output);
+
+                    DecompilationResult result = new DecompilationResult();
+                    result.setDecompiledOutput(new String(output, StandardCharsets.UTF_8));
+
+                    Map<Integer, Integer> lineNumbers = result.getLineNumbers();
+                    for (int i = in.readInt(); i > 0; i--) {
+                        lineNumbers.put(in.readInt(), in.readInt());
+                    }
+
+                    // Least recently used eviction is based on last modification time
+                    cacheFile.setLastModified(System.currentTimeMillis());
+                    return result;
+                }
+            } catch (IOException | RuntimeException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+            // Stale or corrupted cache file
+            deleteQuietly(cacheFile);
+        }
+
+        return null;
+    }
+
+    /**
+     * Write the result in background.
+     */
+    protected void store(String key, DecompilationResult result) {
+        String output = result.getDecompiledOutput();
+        Map<Integer, Integer> lineNumbers = new TreeMap<>(result.getLineNumbers());
+
+        if (output == null) {
+            return;
+        }
+
+        writer.execute(() -> {
+            File cacheFile = getCacheFile(key);
+
+            if (cacheFile != null && (cacheFile.getParentFile().isDirectory() || cacheFile.getParentFile().mkdirs())) {
+                File tmpFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+
+                try {
+                    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmpFile.toPath()))))) {
+                        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(MAGIC);
+                        out.writeInt(FORMAT_VERSION);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                        out.writeInt(lineNumbers.size());
+                        for (Map.Entry<Integer, Integer> lineNumber : lineNumbers.entrySet()) {
+                            out.writeInt(lineNumber.getKey());
+                            out.writeInt(lineNumber.getValue());
+                        }
+                    }
+                    Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    evictFiles(cacheFile.getParentFile(), cacheFile.length());
+                } catch (IOException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    deleteQuietly(tmpFile);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called by the writer thread only.
+     */
+    protected void evictFiles(File dir, long addedSize) {
+        if (diskSize != -1) {
+            diskSize += addedSize;
+            if (diskSize <= DISK_MAX_SIZE) {
+                return;
+            }
+        }
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(CACHE_FILE_SUFFIX));
+
+        if (files != null) {
+            long totalSize = 0;
+            for (File file : files) {
+                totalSize += file.length();
+            }
+            if (totalSize > DISK_MAX_SIZE) {
+                // Leave room for a while, instead of listing the directory at each write
+                long targetSize = DISK_MAX_SIZE - DISK_MAX_SIZE / 8;
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                for (File file : files) {
+                    if (totalSize <= targetSize) {
+                        break;
+                    }
+                    totalSize -= file.length();
+                    deleteQuietly(file);
+                }
+            }
+            diskSize = totalSize;
+        }
+    }
+
+    protected static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int getEntryCount() { return cache.getEntryCount(); }
+    public long getMaxSize() { return cache.getMaxWeight(); }
+    public long getHitCount() { return cache.getHitCount(); }
+    public synchronized long getDiskHitCount() { return diskHitCount; }
+    public long getMissCount() { return cache.getMissCount(); }
+    public synchronized long getDecompilationCount() { return decompilationCount; }
+
+    @Override
+    public synchronized String toString() {
+        return "DecompilationCache [" + cache + ", diskHits=" + diskHitCount + ", decompilations=" + decompilationCount + "]";
+    }
+}
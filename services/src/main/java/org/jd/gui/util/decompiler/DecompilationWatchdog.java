@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.apache.commons.io.function.IOSupplier;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import com.heliosdecompiler.transformerapi.TransformationException;
+import com.heliosdecompiler.transformerapi.common.Loader;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_CFR;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_MEMORY_BUDGET;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_TIME_BUDGET;
+import static org.jd.gui.util.decompiler.GuiPreferences.TIMEOUT_FALLBACK_ENGINE;
+
+import jd.core.DecompilationResult;
+
+/**
+ * Time and memory budgets of the decompilation of a class.
+ * <br>
+ * Budgets are disabled by default. Watched decompilations run in a thread of the watchdog while the caller waits. A
+ * decompilation exceeding its time budget, or allocating more than its memory budget, is abandoned, not interrupted:
+ * the decompilers do not check for interruption, and the readers of containers may share channels, that an interrupt
+ * would close. Its result is discarded, and the class is decompiled by the fallback engine, under the same budgets,
+ * or replaced by a stub. Sources of timed out classes start with {@value #TIMED_OUT}.
+ * <br>
+ * An abandoned decompilation keeps its thread, its processor and its memory until it ends. Once
+ * {@link #MAX_ABANDONED_COUNT} decompilations are abandoned, new decompilations run in the thread of the caller,
+ * without budgets, until abandoned ones end: runaway decompilations can not pile up threads.
+ * <br>
+ * Timeouts are recorded, so that exports can report them.
+ */
+public class DecompilationWatchdog {
+    public static final String TIMED_OUT = "// Decompilation timed out";
+    public static final String DEFAULT_TIME_BUDGET = "0"; // in seconds, 0 for no budget
+    public static final String DEFAULT_MEMORY_BUDGET = "0"; // in MB, 0 for no budget
+    public static final String DEFAULT_FALLBACK_ENGINE = ENGINE_CFR; // empty for a stub
+
+    // Period of the checks of the memory budget
+    protected static final long POLL_PERIOD = 100; // in milliseconds
+    protected static final int MAX_RECORDED_TIMEOUTS = 1000;
+    protected static final int MAX_ABANDONED_COUNT = ComputePool.getDefaultParallelism();
+
+    protected static final DecompilationWatchdog DECOMPILATION_WATCHDOG = new DecompilationWatchdog();
+
+    public static DecompilationWatchdog getInstance() { return DECOMPILATION_WATCHDOG; }
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Bounded by the callers and by MAX_ABANDONED_COUNT: abandoned decompilations keep their thread until they end
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "decompilation-watchdog-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger abandonedCount = new AtomicInteger();
+    private final Deque<Timeout> timeouts = new ArrayDeque<>();
+    private long timeoutCount;
+
+    protected DecompilationWatchdog() {
+    }
+
+    /**
+     * @return true if decompilations must be watched
+     */
+    public static boolean isEnabled(Map<String, String> preferences) {
+        return getTimeBudget(preferences) > 0 || getMemoryBudget(preferences) > 0;
+    }
+
+    /**
+     * @return the time budget, in milliseconds, 0 for no budget
+     */
+    protected static long getTimeBudget(Map<String, String> preferences) {
+        return parse(preferences.getOrDefault(DECOMPILE_TIME_BUDGET, DEFAULT_TIME_BUDGET), DEFAULT_TIME_BUDGET) * 1000;
+    }
+
+    /**
+     * @return the memory budget, in bytes, 0 for no budget
+     */
+    protected static long getMemoryBudget(Map<String, String> preferences) {
+        return parse(preferences.getOrDefault(DECOMPILE_MEMORY_BUDGET, DEFAULT_MEMORY_BUDGET), DEFAULT_MEMORY_BUDGET) << 20;
+    }
+
+    private static long parse(String value, String defaultValue) {
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return Long.parseLong(defaultValue);
+        }
+    }
+
+    /**
+     * Decompile a class through the decompilation cache, within the budgets of the preferences. The loaders are
+     * created per decompilation: an abandoned decompilation may still be reading its loader.
+     *
+     * @param classLoaderSupplier the creation of a loader of the bytes of the classes
+     * @param apiLoaderFactory    the creation of the loader given to the decompiler, from the loader of the bytes
+     * @return the source code of the engine, of the fallback engine or a stub
+     * @see DecompilationCache#decompile
+     */
+    public String decompile(IOSupplier<org.jd.core.v1.api.loader.Loader> classLoaderSupplier,
+            Function<org.jd.core.v1.api.loader.Loader, Loader> apiLoaderFactory, String internalName, Map<String, String> preferences, String engineName)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        DecompilationCache decompilationCache = DecompilationCache.getInstance();
+        org.jd.core.v1.api.loader.Loader classLoader = classLoaderSupplier.get();
+
+        if (!isEnabled(preferences)) {
+            return decompilationCache.decompile(classLoader, apiLoaderFactory.apply(classLoader), internalName, preferences, engineName).getDecompiledOutput();
+        }
+
+        try {
+            return call(() -> decompilationCache.decompile(classLoader, apiLoaderFactory.apply(classLoader), internalName, preferences, engineName), preferences).getDecompiledOutput();
+        } catch (TimeoutException e) {
+            org.jd.core.v1.api.loader.Loader fallbackLoader = classLoaderSupplier.get();
+            return decompileAfterTimeout(fallbackLoader, apiLoaderFactory.apply(fallbackLoader), internalName, preferences, engineName, e.getMessage()).getOutput();
+        }
+    }
+
+    /**
+     * Run a decompilation within the budgets of the preferences, or in the thread of the caller, without budgets, if
+     * too many decompilations are abandoned.
+     * <br>
+     * The decompilation must not share a loader with the caller: it may still be running after the timeout.
+     *
+     * @throws TimeoutException if the decompilation exceeded a budget, with the exceeded budget as message
+     * @throws IOException      if the decompilation failed
+     */
+    public <T> T call(Callable<T> decompilation, Map<String, String> preferences) throws TimeoutException, IOException {
+        if (abandonedCount.get() >= MAX_ABANDONED_COUNT) {
+            try {
+                return decompilation.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        long timeBudget = getTimeBudget(preferences);
+        long memoryBudget = getMemoryBudget(preferences);
+        Watched<T> watched = new Watched<>(decompilation);
+        Future<T> future = executor.submit(watched);
+        long start = System.nanoTime();
+
+        try {
+            while (true) {
+                long wait = timeBudget > 0 ? timeBudget - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) : POLL_PERIOD;
+
+                if (wait <= 0) {
+                    throw abandon(future, watched, (timeBudget / 1000) + " s");
+                }
+
+                try {
+                    return future.get(memoryBudget > 0 ? Math.min(wait, POLL_PERIOD) : wait, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (memoryBudget > 0 && watched.getAllocatedBytes() > memoryBudget) {
+                        throw abandon(future, watched, (memoryBudget >> 20) + " MB");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            abandon(future, watched, null);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    protected TimeoutException abandon(Future<?> future, Watched<?> watched, String budget) {
+        // Does not stop a running decompilation
+        future.cancel(false);
+        watched.abandon();
+        return new TimeoutException(budget);
+    }
+
+    /**
+     * Decompile a class which exceeded a budget with the fallback engine, within the same budgets, or build a stub.
+     *
+     * @param budget the exceeded budget
+     */
+    public Fallback decompileAfterTimeout(org.jd.core.v1.api.loader.Loader classLoader, Loader apiLoader, String internalName,
+            Map<String, String> preferences, String engineName, String budget) throws IOException {
+        String fallbackEngineName = preferences.getOrDefault(TIMEOUT_FALLBACK_ENGINE, DEFAULT_FALLBACK_ENGINE);
+
+        record(internalName, engineName, budget);
+
+        if (!fallbackEngineName.isEmpty() && !fallbackEngineName.equals(engineName)) {
+            try {
+                DecompilationCache decompilationCache = DecompilationCache.getInstance();
+                DecompilationResult result = call(() -> decompilationCache.decompile(classLoader, apiLoader, internalName, preferences, fallbackEngineName), preferences);
+                return new Fallback(result, TIMED_OUT + ": " + engineName + " exceeded " + budget + ", decompiled by " + fallbackEngineName + '\n');
+            } catch (TimeoutException e) {
+                record(internalName, fallbackEngineName, e.getMessage());
+            }
+        }
+
+        DecompilationResult result = new DecompilationResult();
+        result.setDecompiledOutput(stub(classLoader, internalName, engineName + " exceeded " + budget));
+        return new Fallback(result, null);
+    }
+
+    /**
+     * @return the declaration of the class, without members
+     */
+    protected static String stub(org.jd.core.v1.api.loader.Loader classLoader, String internalName, String reason) {
+        int lastSlash = internalName.lastIndexOf('/');
+        String keyword = "class";
+
+        try {
+            byte[] bytes = classLoader.load(internalName);
+
+            if (bytes != null) {
+                int access = new ClassReader(bytes).getAccess();
+
+                if ((access & Opcodes.ACC_ANNOTATION) != 0) {
+                    keyword = "@interface";
+                } else if ((access & Opcodes.ACC_INTERFACE) != 0) {
+                    keyword = "interface";
+                } else if ((access & Opcodes.ACC_ENUM) != 0) {
+                    keyword = "enum";
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+
+        StringBuilder sb = new StringBuilder(128);
+
+        sb.append(TIMED_OUT).append(": ").append(reason).append("\n\n");
+        if (lastSlash != -1) {
+            sb.append("package ").append(internalName.substring(0, lastSlash).replace('/', '.')).append(";\n\n");
+        }
+        sb.append(keyword).append(' ').append(internalName.substring(lastSlash + 1)).append(" {\n");
+        sb.append("    // decompilation timed out\n");
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    // --- Timeouts --- //
+    protected synchronized void record(String internalName, String engineName, String budget) {
+        timeoutCount++;
+        timeouts.addLast(new Timeout(timeoutCount, internalName, engineName, budget));
+        if (timeouts.size() > MAX_RECORDED_TIMEOUTS) {
+            timeouts.removeFirst();
+        }
+    }
+
+    /**
+     * @return the number of timeouts since start, to give to {@link #getTimeoutsSince(long)}
+     */
+    public synchronized long getTimeoutCount() { return timeoutCount; }
+
+    /**
+     * @return the last recorded timeouts, after the given count
+     */
+    public synchronized List<Timeout> getTimeoutsSince(long count) {
+        List<Timeout> list = new ArrayList<>();
+        for (Timeout timeout : timeouts) {
+            if (timeout.index > count) {
+                list.add(timeout);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the number of abandoned decompilations still running
+     */
+    public int getAbandonedCount() { return abandonedCount.get(); }
+
+    @Override
+    public synchronized String toString() {
+        return "DecompilationWatchdog [timeouts=" + timeoutCount + ", abandoned=" + abandonedCount.get() + "]";
+    }
+
+    /**
+     * Decompilation reading the bytes allocated by its thread.
+     */
+    protected class Watched<T> implements Callable<T> {
+        private final Callable<T> decompilation;
+        private volatile Thread thread;
+        private volatile long startAllocatedBytes;
+        private boolean abandoned;
+
+        public Watched(Callable<T> decompilation) {
+            this.decompilation = decompilation;
+        }
+
+        @Override
+        public T call() throws Exception {
+            thread = Thread.currentThread();
+            startAllocatedBytes = getThreadAllocatedBytes(thread);
+            try {
+                return decompilation.call();
+            } finally {
+                synchronized (this) {
+                    if (abandoned) {
+                        abandonedCount.decrementAndGet();
+                    }
+                    thread = null;
+                }
+            }
+        }
+
+        public synchronized void abandon() {
+            if (thread != null && !abandoned) {
+                abandoned = true;
+                abandonedCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * @return the bytes allocated since start, 0 if not started or not supported by the virtual machine
+         */
+        public long getAllocatedBytes() {
+            Thread t = thread;
+            if (t == null || startAllocatedBytes < 0) {
+                return 0;
+            }
+            long allocatedBytes = getThreadAllocatedBytes(t);
+            return allocatedBytes < 0 ? 0 : allocatedBytes - startAllocatedBytes;
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the thread, or -1 if not supported by the virtual machine
+     */
+    protected static long getThreadAllocatedBytes(Thread thread) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(thread.getId());
+        }
+
+        return -1;
+    }
+
+    /**
+     * Result of a decompilation which exceeded a budget.
+     */
+    public static class Fallback {
+        private final DecompilationResult result;
+        private final String header;
+
+        public Fallback(DecompilationResult result, String header) {
+            this.result = result;
+            this.header = header;
+        }
+
+        /**
+         * @return the result of the fallback engine, to not modify, or a stub
+         */
+        public DecompilationResult getResult() { return result; }
+
+        /**
+         * @return the comment to write before the output of the fallback engine, null for a stub
+         */
+        public String getHeader() { return header; }
+
+        public String getOutput() {
+            return header != null ? header + result.getDecompiledOutput() : result.getDecompiledOutput();
+        }
+    }
+
+    public static class Timeout {
+        private final long index;
+        private final String internalName;
+        private final String engineName;
+        private final String budget;
+
+        public Timeout(long index, String internalName, String engineName, String budget) {
+            this.index = index;
+            this.internalName = internalName;
+            this.engineName = engineName;
+            this.budget = budget;
+        }
+
+        public String getInternalName() { return internalName; }
+        public String getEngineName() { return engineName; }
+        public String getBudget() { return budget; }
+
+        @Override
+        public String toString() {
+            return internalName + " (" + engineName + ", " + budget + ")";
+        }
+    }
+}
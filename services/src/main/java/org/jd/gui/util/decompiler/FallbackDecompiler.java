@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.util.MethodPatcher;
+import org.jd.gui.util.concurrent.ComputePool;
+import org.jd.gui.util.loader.LoaderUtils;
+
+import com.heliosdecompiler.transformerapi.TransformationException;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
+import static org.jd.gui.util.decompiler.GuiPreferences.PARALLEL_FALLBACK;
+
+import jd.core.ClassUtil;
+import jd.core.DecompilationResult;
+
+/**
+ * Decompilation with JD-Core v0 as fallback: the methods that the selected engine fails to decompile are replaced by
+ * the methods decompiled by JD-Core v0, see {@link MethodPatcher}.
+ * <br>
+ * By default, JD-Core v0 is started once the failure is known. In parallel mode, JD-Core v0 is started at the same
+ * time as JD-Core v1, on the {@link ComputePool}, on the same entry, the bytes of the classes being shared by the class
+ * bytes cache. When JD-Core v1 succeeds, JD-Core v0 is cancelled if it has not started yet, and its result is discarded
+ * otherwise: decompilers are not interrupted, the readers of containers may share channels.
+ * <br>
+ * Both run within the budgets of the {@link DecompilationWatchdog}: a class exceeding them is decompiled by the
+ * fallback engine of the watchdog, or replaced by a stub.
+ */
+public class FallbackDecompiler {
+    protected static final FallbackDecompiler FALLBACK_DECOMPILER = new FallbackDecompiler();
+
+    public static FallbackDecompiler getInstance() { return FALLBACK_DECOMPILER; }
+
+    private long decompilationCount;
+    private long fallbackCount;
+    private long parallelCount;
+    private long discardedCount;
+    private long engineTime;
+    private long fallbackTime;
+    private long savedTime;
+
+    protected FallbackDecompiler() {
+    }
+
+    /**
+     * @param loader      the loader of the entry
+     * @param entry       the class file entry
+     * @param preferences the preferences of the decompilers
+     * @param engineName  the name of the selected decompiler
+     */
+    public Result decompile(ContainerLoader loader, Container.Entry entry, Map<String, String> preferences, String engineName)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        if (!DecompilationWatchdog.isEnabled(preferences)) {
+            return decompileWithFallback(loader, entry, preferences, engineName);
+        }
+
+        DecompilationWatchdog watchdog = DecompilationWatchdog.getInstance();
+        // A loader per thread: the watched thread may still be running after a timeout
+        ContainerLoader watchedLoader = new ContainerLoader(entry);
+
+        try {
+            return watchdog.call(() -> decompileWithFallback(watchedLoader, entry, preferences, engineName), preferences);
+        } catch (TimeoutException e) {
+            ContainerLoader fallbackLoader = new ContainerLoader(entry);
+            DecompilationWatchdog.Fallback fallback = watchdog.decompileAfterTimeout(fallbackLoader, LoaderUtils.createLoader(preferences, fallbackLoader, entry),
+                    ClassUtil.getInternalName(entry.getPath()), preferences, engineName, e.getMessage());
+            return new Result(fallback.getResult(), null, fallback.getOutput());
+        }
+    }
+
+    protected Result decompileWithFallback(ContainerLoader loader, Container.Entry entry, Map<String, String> preferences, String engineName)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        DecompilationCache decompilationCache = DecompilationCache.getInstance();
+        String internalName = ClassUtil.getInternalName(entry.getPath());
+        Future<Timed> fallback = null;
+        // Claimed by the thread running the fallback, or by the caller to cancel it
+        AtomicBoolean claimed = new AtomicBoolean();
+
+        if (isParallel(preferences, engineName) && decompilationCache.getIfPresent(loader, internalName, preferences, engineName) == null) {
+            // A loader per thread: loaders are not thread safe
+            ContainerLoader fallbackLoader = new ContainerLoader(entry);
+            // Waited for only once running, see ComputePool
+            fallback = ComputePool.getExecutor().submit(() -> claimed.compareAndSet(false, true) ? decompile(fallbackLoader, entry, internalName, preferences, ENGINE_JD_CORE_V0) : null);
+        }
+
+        long start = System.nanoTime();
+        DecompilationResult result = decompilationCache.decompile(loader, LoaderUtils.createLoader(preferences, loader, entry), internalName, preferences, engineName);
+        long end = System.nanoTime();
+
+        if (!result.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+            boolean discarded = fallback != null && !cancel(fallback, claimed);
+            count(end - start, fallback != null, discarded);
+            return new Result(result, null);
+        }
+
+        Timed fallbackResult = null;
+        boolean overlapped = false;
+
+        if (fallback != null && !cancel(fallback, claimed)) {
+            try {
+                fallbackResult = fallback.get();
+                overlapped = true;
+            } catch (InterruptedException e) {
+                // Restore interrupted state...
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        if (fallbackResult == null) {
+            // Sequential mode, or fallback not started yet
+            fallbackResult = decompile(loader, entry, internalName, preferences, ENGINE_JD_CORE_V0);
+        }
+
+        long wait = System.nanoTime() - end;
+        countFallback(end - start, fallback != null, fallbackResult.time, overlapped ? fallbackResult.time - wait : 0);
+
+        String patchedOutput = MethodPatcher.patchCode(result.getDecompiledOutput(), fallbackResult.result.getDecompiledOutput(), entry);
+        return new Result(result, patchedOutput);
+    }
+
+    /**
+     * @return true if the fallback has not started, false if it is running or done
+     */
+    protected static boolean cancel(Future<Timed> fallback, AtomicBoolean claimed) {
+        if (claimed.compareAndSet(false, true)) {
+            fallback.cancel(false);
+            return true;
+        }
+        return false;
+    }
+
+    protected static boolean isParallel(Map<String, String> preferences, String engineName) {
+        return ENGINE_JD_CORE_V1.equals(engineName) && "true".equals(preferences.get(PARALLEL_FALLBACK));
+    }
+
+    protected static Timed decompile(ContainerLoader loader, Container.Entry entry, String internalName, Map<String, String> preferences, String engineName)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        long start = System.nanoTime();
+        DecompilationResult result = DecompilationCache.getInstance().decompile(loader, LoaderUtils.createLoader(preferences, loader, entry), internalName, preferences, engineName);
+        return new Timed(result, System.nanoTime() - start);
+    }
+
+    protected synchronized void count(long time, boolean parallel, boolean discarded) {
+        decompilationCount++;
+        engineTime += time;
+        if (parallel) {
+            parallelCount++;
+        }
+        if (discarded) {
+            discardedCount++;
+        }
+    }
+
+    /**
+     * @param saved the time of the fallback spent while the selected engine was running, not waited for
+     */
+    protected synchronized void countFallback(long time, boolean parallel, long fallbackDecompilationTime, long saved) {
+        count(time, parallel, false);
+        fallbackCount++;
+        fallbackTime += fallbackDecompilationTime;
+        if (parallel && saved > 0) {
+            savedTime += saved;
+        }
+    }
+
+    public synchronized long getDecompilationCount() { return decompilationCount; }
+    public synchronized long getFallbackCount() { return fallbackCount; }
+    public synchronized long getParallelCount() { return parallelCount; }
+    public synchronized long getDiscardedCount() { return discardedCount; }
+    public synchronized long getEngineTimeMillis() { return engineTime / 1_000_000; }
+    public synchronized long getFallbackTimeMillis() { return fallbackTime / 1_000_000; }
+    public synchronized long getSavedTimeMillis() { return savedTime / 1_000_000; }
+
+    @Override
+    public synchronized String toString() {
+        return "FallbackDecompiler [decompilations=" + decompilationCount + ", fallbacks=" + fallbackCount
+                + ", parallel=" + parallelCount + ", discarded=" + discardedCount + ", engineTime=" + getEngineTimeMillis()
+                + "ms, fallbackTime=" + getFallbackTimeMillis() + "ms, savedTime=" + getSavedTimeMillis() + "ms]";
+    }
+
+    public static class Result {
+        private final DecompilationResult decompilationResult;
+        private final String patchedOutput;
+        private final String timedOutOutput;
+
+        public Result(DecompilationResult decompilationResult, String patchedOutput) {
+            this(decompilationResult, patchedOutput, null);
+        }
+
+        public Result(DecompilationResult decompilationResult, String patchedOutput, String timedOutOutput) {
+            this.decompilationResult = decompilationResult;
+            this.patchedOutput = patchedOutput;
+            this.timedOutOutput = timedOutOutput;
+        }
+
+        /**
+         * @return the result of the selected engine, or of the fallback engine after a timeout, to not modify
+         */
+        public DecompilationResult getDecompilationResult() { return decompilationResult; }
+
+        /**
+         * @return true if methods of the selected engine have been replaced by methods of JD-Core v0
+         */
+        public boolean isPatched() { return patchedOutput != null; }
+
+        /**
+         * @return true if the selected engine exceeded the budgets of the watchdog
+         */
+        public boolean isTimedOut() { return timedOutOutput != null; }
+
+        public String getOutput() {
+            if (timedOutOutput != null) {
+                return timedOutOutput;
+            }
+            return patchedOutput != null ? patchedOutput : decompilationResult.getDecompiledOutput();
+        }
+    }
+
+    protected static class Timed {
+        private final DecompilationResult result;
+        private final long time;
+
+        public Timed(DecompilationResult result, long time) {
+            this.result = result;
+            this.time = time;
+        }
+    }
+}
@@ -18,6 +18,24 @@ public final class GuiPreferences {
     public static final String SHOW_COMPILER_INFO       = "ClassFileDecompilerPreferences.showCompilerInfo";
     public static final String ADVANCED_CLASS_LOOKUP    = "ClassFileDecompilerPreferences.advancedClassLookup";
     public static final String REMOVE_UNNECESSARY_CASTS = "ClassFileDecompilerPreferences.removeUnnecessaryCasts";
+    public static final String INDEXER_PARALLELISM      = "IndexerPreferences.parallelism";
+    public static final String INDEXES_CACHE_ENABLED    = "IndexerPreferences.cacheEnabled";
+    public static final String INDEXES_CACHE_SHA1       = "IndexerPreferences.cacheSha1";
+    public static final String INDEXES_CACHE_MAX_SIZE   = "IndexerPreferences.cacheMaxSize";
+    public static final String INDEXES_COMPACT          = "IndexerPreferences.compact";
+    public static final String INDEXES_TRIGRAMS         = "IndexerPreferences.trigrams";
+    public static final String ZIP_DIRECTORY_CONTAINER  = "IndexerPreferences.zipDirectoryContainer";
+    public static final String CLASS_BYTES_CACHE_SIZE   = "IndexerPreferences.classBytesCacheSize";
+    public static final String DECOMPILATION_CACHE_SIZE = "ClassFileDecompilerPreferences.decompilationCacheSize";
+    public static final String DECOMPILATION_DISK_CACHE = "ClassFileDecompilerPreferences.decompilationDiskCache";
+    public static final String PARALLEL_FALLBACK        = "ClassFileDecompilerPreferences.parallelFallback";
+    public static final String DECOMPILE_TIME_BUDGET    = "ClassFileDecompilerPreferences.decompilationTimeBudget";
+    public static final String DECOMPILE_MEMORY_BUDGET  = "ClassFileDecompilerPreferences.decompilationMemoryBudget";
+    public static final String TIMEOUT_FALLBACK_ENGINE  = "ClassFileDecompilerPreferences.timeoutFallbackEngine";
+    public static final String CLASS_TYPE_CACHE_SIZE    = "ClassFileDecompilerPreferences.classFileTypeCacheSize";
+    public static final String JAVA_TYPE_CACHE_SIZE     = "ClassFileDecompilerPreferences.javaFileTypeCacheSize";
+    public static final String OPEN_TYPE_CACHE_SIZE     = "ClassFileDecompilerPreferences.openTypeCacheSize";
+    public static final String SEARCH_CACHE_SIZE        = "ClassFileDecompilerPreferences.searchCacheSize";
 
     private GuiPreferences() {
     }
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only indexes with a compact memory representation:
+ * <ul>
+ * <li>keys are sorted arrays of symbols interned in the shared {@link SymbolTable},</li>
+ * <li>values (entries and type names) are numbered with dense ids per container,</li>
+ * <li>each key owns a slice of a primitive posting array of value ids.</li>
+ * </ul>
+ * Indexes are exposed as unmodifiable maps, as the default implementation does.
+ */
+@SuppressWarnings("rawtypes")
+public class CompactIndexes implements Indexes {
+    private final Object[] values;
+    private final Map<String, CompactIndex> indexes;
+
+    public CompactIndexes(Map<String, Map<String, Collection>> map) {
+        Map<Object, Integer> entryIds = new IdentityHashMap<>();
+        Map<Object, Integer> symbolIds = new HashMap<>();
+        List<Object> valueList = new ArrayList<>();
+
+        this.indexes = new HashMap<>(map.size() * 2);
+
+        for (Map.Entry<String, Map<String, Collection>> index : map.entrySet()) {
+            Map<String, Collection> source = index.getValue();
+            String[] keys = new String[source.size()];
+            int postingCount = 0;
+            int i = 0;
+
+            for (Map.Entry<String, Collection> mapEntry : source.entrySet()) {
+                keys[i++] = SymbolTable.intern(mapEntry.getKey());
+                postingCount += mapEntry.getValue().size();
+            }
+
+            Arrays.sort(keys);
+
+            int[] offsets = new int[keys.length + 1];
+            int[] postings = new int[postingCount];
+            int offset = 0;
+
+            for (i = 0; i < keys.length; i++) {
+                offsets[i] = offset;
+                for (Object value : source.get(keys[i])) {
+                    // Strings are compared by value, other objects (entries) by identity
+                    Map<Object, Integer> ids = value instanceof String ? symbolIds : entryIds;
+                    Integer id = ids.get(value);
+                    if (id == null) {
+                        id = valueList.size();
+                        ids.put(value, id);
+                        valueList.add(value instanceof String ? SymbolTable.intern((String) value) : value);
+                    }
+                    postings[offset++] = id;
+                }
+            }
+            offsets[keys.length] = offset;
+
+            indexes.put(SymbolTable.intern(index.getKey()), new CompactIndex(keys, offsets, postings));
+        }
+
+        this.values = valueList.toArray();
+    }
+
+    @Override
+    public Map<String, Collection> getIndex(String name) {
+        return indexes.get(name);
+    }
+
+    /**
+     * @return the number of distinct values (entries and type names) referenced by indexes
+     */
+    public int getValueCount() {
+        return values.length;
+    }
+
+    /**
+     * @return the approximated retained size in bytes, symbols excluded as they are shared
+     */
+    public long estimateRetainedSize() {
+        long size = 16L + 4L * values.length;
+        for (CompactIndex index : indexes.values()) {
+            size += 48L + 4L * index.keys.length + 4L * index.offsets.length + 4L * index.postings.length;
+        }
+        return size;
+    }
+
+    protected class CompactIndex extends AbstractMap<String, Collection> {
+        private final String[] keys;
+        private final int[] offsets;
+        private final int[] postings;
+
+        public CompactIndex(String[] keys, int[] offsets, int[] postings) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.postings = postings;
+        }
+
+        @Override
+        public int size() { return keys.length; }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && Arrays.binarySearch(keys, key) >= 0;
+        }
+
+        @Override
+        public Collection get(Object key) {
+            if (key instanceof String) {
+                int i = Arrays.binarySearch(keys, key);
+                if (i >= 0) {
+                    return new PostingList(postings, offsets[i], offsets[i + 1]);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Collection>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return keys.length; }
+
+                @Override
+                public Iterator<Map.Entry<String, Collection>> iterator() {
+                    return new Iterator<>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() { return i < keys.length; }
+
+                        @Override
+                        public Map.Entry<String, Collection> next() {
+                            if (i >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, Collection> entry = new SimpleImmutableEntry<>(keys[i], new PostingList(postings, offsets[i], offsets[i + 1]));
+                            i++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    protected class PostingList extends AbstractList<Object> {
+        private final int[] postings;
+        private final int from;
+        private final int to;
+
+        public PostingList(int[] postings, int from, int to) {
+            this.postings = postings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return values[postings[from + index]];
+        }
+
+        @Override
+        public int size() { return to - from; }
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Dictionary of the symbols (type names, member names, strings) stored in indexes, shared by all opened containers.
+ * <br>
+ * Symbols are weakly referenced: they are released when no more index uses them.
+ */
+public final class SymbolTable {
+
+    private static final Map<String, WeakReference<String>> SYMBOLS = new WeakHashMap<>();
+
+    private SymbolTable() {
+    }
+
+    public static String intern(String symbol) {
+        synchronized (SYMBOLS) {
+            WeakReference<String> reference = SYMBOLS.get(symbol);
+            String interned = reference == null ? null : reference.get();
+
+            if (interned == null) {
+                SYMBOLS.put(symbol, new WeakReference<>(symbol));
+                interned = symbol;
+            }
+
+            return interned;
+        }
+    }
+
+    public static int size() {
+        synchronized (SYMBOLS) {
+            return SYMBOLS.size();
+        }
+    }
+}
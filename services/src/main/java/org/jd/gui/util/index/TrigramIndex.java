@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Trigram index of the keys of an index, to search substrings and wildcard patterns without matching every key.
+ * <br>
+ * Each trigram (3 consecutive characters) of the keys owns a sorted posting array of key ids. The literal parts of a
+ * pattern ("timeout" in "*timeout*") select the keys containing all their trigrams, by intersection of the posting
+ * arrays. The candidate keys must still be matched with the pattern: the trigrams of a key may be in another order.
+ * Patterns without literal part of 3 characters or more are not supported.
+ * <br>
+ * Trigram indexes are optional: they take about 4 bytes per character of the keys. They are built when containers are
+ * indexed, for the indexes of strings and members, and released with their indexes.
+ */
+public class TrigramIndex {
+    public static final String[] INDEX_NAMES = { "strings", "methodDeclarations", "methodReferences", "fieldDeclarations", "fieldReferences" };
+
+    private static final Map<Indexes, Map<String, TrigramIndex>> TRIGRAM_INDEXES = new WeakHashMap<>();
+
+    private final String[] keys;
+    // Sorted trigram codes, and their slices in the posting array
+    private final long[] trigrams;
+    private final int[] offsets;
+    private final int[] postings;
+
+    public TrigramIndex(Collection<String> keys) {
+        this.keys = keys.toArray(new String[keys.size()]);
+
+        // Count the keys of each trigram
+        TrigramTable table = new TrigramTable();
+
+        for (int id = 0; id < this.keys.length; id++) {
+            String key = this.keys[id];
+
+            for (int i = 0, length = key.length() - 2; i < length; i++) {
+                table.count(code(key, i), id);
+            }
+        }
+
+        // Sort the trigrams, then compute the slices
+        trigrams = table.getCodes();
+        Arrays.sort(trigrams);
+        offsets = new int[trigrams.length + 1];
+
+        int[] cursors = new int[trigrams.length];
+        int offset = 0;
+
+        for (int rank = 0; rank < trigrams.length; rank++) {
+            int slot = table.find(trigrams[rank]);
+            offsets[rank] = offset;
+            cursors[rank] = offset;
+            offset += table.counts[slot];
+            table.ranks[slot] = rank;
+            table.lastIds[slot] = -1;
+        }
+        offsets[trigrams.length] = offset;
+
+        // Fill the posting array, key ids ascending
+        postings = new int[offset];
+
+        for (int id = 0; id < this.keys.length; id++) {
+            String key = this.keys[id];
+
+            for (int i = 0, length = key.length() - 2; i < length; i++) {
+                int slot = table.find(code(key, i));
+
+                if (table.lastIds[slot] != id) {
+                    table.lastIds[slot] = id;
+                    postings[cursors[table.ranks[slot]]++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the trigram indexes of the indexes of strings and members.
+     */
+    @SuppressWarnings("rawtypes")
+    public static void build(Indexes indexes) {
+        Map<String, TrigramIndex> trigramIndexes = new HashMap<>();
+
+        for (String indexName : INDEX_NAMES) {
+            Map<String, Collection> index = indexes.getIndex(indexName);
+
+            if (index != null && !index.isEmpty()) {
+                trigramIndexes.put(indexName, new TrigramIndex(index.keySet()));
+            }
+        }
+
+        synchronized (TRIGRAM_INDEXES) {
+            TRIGRAM_INDEXES.put(indexes, trigramIndexes);
+        }
+    }
+
+    /**
+     * @return the trigram index of an index, or null if not built
+     */
+    public static TrigramIndex get(Indexes indexes, String indexName) {
+        synchronized (TRIGRAM_INDEXES) {
+            Map<String, TrigramIndex> trigramIndexes = TRIGRAM_INDEXES.get(indexes);
+            return trigramIndexes == null ? null : trigramIndexes.get(indexName);
+        }
+    }
+
+    /**
+     * @param pattern a pattern where '*' matches 0 or N characters and '?' matches 1 character
+     * @return the keys containing the trigrams of the literal parts of the pattern, or null if the pattern has no
+     * literal part of 3 characters or more
+     */
+    public List<String> getCandidates(String pattern) {
+        long[] codes = new long[Math.max(pattern.length() - 2, 0)];
+        int codeCount = 0;
+        int start = 0;
+
+        for (int i = 0; i <= pattern.length(); i++) {
+            if (i == pattern.length() || pattern.charAt(i) == '*' || pattern.charAt(i) == '?') {
+                // Literal part [start, i)
+                for (int j = start; j + 3 <= i; j++) {
+                    codes[codeCount++] = code(pattern, j);
+                }
+                start = i + 1;
+            }
+        }
+
+        if (codeCount == 0) {
+            return null;
+        }
+
+        // Slices of the trigrams, shortest first
+        int[][] slices = new int[codeCount][];
+
+        for (int i = 0; i < codeCount; i++) {
+            int rank = Arrays.binarySearch(trigrams, codes[i]);
+
+            if (rank < 0) {
+                return Collections.emptyList();
+            }
+            slices[i] = new int[] { offsets[rank], offsets[rank + 1] };
+        }
+
+        Arrays.sort(slices, (s1, s2) -> Integer.compare(s1[1] - s1[0], s2[1] - s2[0]));
+
+        int[] ids = Arrays.copyOfRange(postings, slices[0][0], slices[0][1]);
+        int idCount = ids.length;
+
+        for (int i = 1; i < codeCount && idCount > 0; i++) {
+            idCount = intersect(ids, idCount, slices[i][0], slices[i][1]);
+        }
+
+        int[] result = ids;
+        int resultCount = idCount;
+
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) { return keys[result[index]]; }
+
+            @Override
+            public int size() { return resultCount; }
+        };
+    }
+
+    /**
+     * Keep the ids of the posting slice, both sorted.
+     *
+     * @return the number of kept ids
+     */
+    protected int intersect(int[] ids, int idCount, int from, int to) {
+        int count = 0;
+        int j = from;
+
+        for (int i = 0; i < idCount && j < to; i++) {
+            int id = ids[i];
+
+            // Binary search in the remaining slice, usually much longer
+            int found = Arrays.binarySearch(postings, j, to, id);
+
+            if (found >= 0) {
+                ids[count++] = id;
+                j = found + 1;
+            } else {
+                j = -found - 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the approximated retained size in bytes, keys excluded as they are shared with the index
+     */
+    public long estimateRetainedSize() {
+        return 64L + 4L * keys.length + 8L * trigrams.length + 4L * offsets.length + 4L * postings.length;
+    }
+
+    protected static long code(String s, int index) {
+        return ((long) s.charAt(index) << 32) | ((long) s.charAt(index + 1) << 16) | s.charAt(index + 2);
+    }
+
+    /**
+     * Open addressing table of the trigrams, used while building only.
+     */
+    protected static class TrigramTable {
+        private static final long FREE = -1L;
+
+        private long[] codes = new long[1024];
+        private int[] counts = new int[1024];
+        private int[] lastIds = new int[1024];
+        private int[] ranks;
+        private int size;
+
+        public TrigramTable() {
+            Arrays.fill(codes, FREE);
+        }
+
+        /**
+         * Count the key once per trigram.
+         */
+        public void count(long code, int id) {
+            int slot = find(code);
+
+            if (slot < 0) {
+                if (2 * (size + 1) > codes.length) {
+                    resize();
+                }
+                slot = -find(code) - 1;
+                codes[slot] = code;
+                lastIds[slot] = -1;
+                size++;
+            }
+            if (lastIds[slot] != id) {
+                lastIds[slot] = id;
+                counts[slot]++;
+            }
+        }
+
+        /**
+         * @return the slot of the code, or (-insertion slot - 1) if absent
+         */
+        public int find(long code) {
+            int mask = codes.length - 1;
+            int slot = (int) ((code * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+
+            while (codes[slot] != FREE) {
+                if (codes[slot] == code) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return -slot - 1;
+        }
+
+        public long[] getCodes() {
+            long[] result = new long[size];
+            int i = 0;
+
+            for (long code : codes) {
+                if (code != FREE) {
+                    result[i++] = code;
+                }
+            }
+
+            ranks = new int[codes.length];
+            return result;
+        }
+
+        protected void resize() {
+            long[] oldCodes = codes;
+            int[] oldCounts = counts;
+            int[] oldLastIds = lastIds;
+
+            codes = new long[oldCodes.length * 2];
+            counts = new int[codes.length];
+            lastIds = new int[codes.length];
+            Arrays.fill(codes, FREE);
+
+            for (int i = 0; i < oldCodes.length; i++) {
+                if (oldCodes[i] != FREE) {
+                    int slot = -find(oldCodes[i]) - 1;
+                    codes[slot] = oldCodes[i];
+                    counts[slot] = oldCounts[i];
+                    lastIds[slot] = oldLastIds[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.util.matcher.TypeNameRanker;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Index of the type names of the index "typeDeclarations" by simple name, for "Open Type":
+ * <ul>
+ * <li>type names sorted by simple name, ignoring case: prefix patterns ("str") are resolved by a range scan,</li>
+ * <li>type names sorted by humps, the first character and the upper case characters of the simple name ("HSR" for
+ * "HttpServletRequest"): camel case patterns ("HSR", "HSeR") are resolved by a range scan of their upper case
+ * characters, then the words are checked.</li>
+ * </ul>
+ * Simple names and humps are not stored: they are read from the type names, kept with the offsets of their simple
+ * names. Indexes of containers are built once, when the containers are indexed, and released with their indexes.
+ */
+public class TypeNameIndex {
+    private static final Map<Indexes, TypeNameIndex> TYPE_NAME_INDEXES = new WeakHashMap<>();
+
+    private final String[] bySimpleName;
+    private final int[] bySimpleNameOffsets;
+    private final String[] byHumps;
+    private final int[] byHumpsOffsets;
+
+    public TypeNameIndex(Collection<String> typeNames) {
+        int length = typeNames.size();
+        Key[] keys = new Key[length];
+        int i = 0;
+
+        for (String typeName : typeNames) {
+            int offset = getSimpleNameIndex(typeName);
+            keys[i++] = new Key(fold(typeName, offset), typeName, offset);
+        }
+
+        Arrays.sort(keys);
+
+        bySimpleName = new String[length];
+        bySimpleNameOffsets = new int[length];
+        for (i = 0; i < length; i++) {
+            bySimpleName[i] = keys[i].typeName;
+            bySimpleNameOffsets[i] = keys[i].offset;
+            keys[i] = new Key(getHumps(keys[i].typeName, keys[i].offset), keys[i].typeName, keys[i].offset);
+        }
+
+        Arrays.sort(keys);
+
+        byHumps = new String[length];
+        byHumpsOffsets = new int[length];
+        for (i = 0; i < length; i++) {
+            byHumps[i] = keys[i].typeName;
+            byHumpsOffsets[i] = keys[i].offset;
+        }
+    }
+
+    /**
+     * @return the index of the type names of the index "typeDeclarations", built on first call
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static TypeNameIndex get(Indexes indexes) {
+        TypeNameIndex typeNameIndex;
+
+        synchronized (TYPE_NAME_INDEXES) {
+            typeNameIndex = TYPE_NAME_INDEXES.get(indexes);
+        }
+
+        if (typeNameIndex == null) {
+            Map<String, Collection> index = indexes.getIndex("typeDeclarations");
+
+            // Built out of the lock, containers are indexed in parallel
+            typeNameIndex = new TypeNameIndex(index == null ? Collections.emptySet() : index.keySet());
+
+            synchronized (TYPE_NAME_INDEXES) {
+                TypeNameIndex previous = TYPE_NAME_INDEXES.putIfAbsent(indexes, typeNameIndex);
+
+                if (previous != null) {
+                    typeNameIndex = previous;
+                }
+            }
+        }
+
+        return typeNameIndex;
+    }
+
+    /**
+     * @return true if the pattern is a prefix (letters, digits and '_' without upper case character), or a camel case
+     * pattern (same characters, starting with an upper case character)
+     */
+    public static boolean isSupported(String pattern) {
+        int length = pattern.length();
+
+        if (length == 0) {
+            return false;
+        }
+
+        boolean upperCase = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(i);
+
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+            upperCase |= Character.isUpperCase(c);
+        }
+
+        return !upperCase || Character.isUpperCase(pattern.charAt(0));
+    }
+
+    /**
+     * Pass the type names matching a supported pattern to the consumer.
+     * <br>
+     * Like in the regular expressions of "Open Type", the lower case characters of a camel case pattern match both
+     * cases: "Url" matches "URLClassLoader". The names starting with the first word of the pattern, ignoring case, are
+     * checked after the names found by the scan of the humps.
+     */
+    public void match(String pattern, Consumer<String> consumer) {
+        if (!Character.isUpperCase(pattern.charAt(0))) {
+            matchPrefix(pattern, consumer);
+            return;
+        }
+
+        int length = pattern.length();
+        int firstWordEnd = 1;
+
+        while (firstWordEnd < length && !Character.isUpperCase(pattern.charAt(firstWordEnd))) {
+            firstWordEnd++;
+        }
+
+        if (firstWordEnd == length) {
+            // A single word: the prefix scan finds all the matching names
+            matchPrefix(pattern, typeName -> {
+                if (TypeNameRanker.matchCamelCase(pattern, typeName, getSimpleNameIndex(typeName), true)) {
+                    consumer.accept(typeName);
+                }
+            });
+        } else {
+            String initials = getHumps(pattern, 0);
+
+            matchCamelCase(pattern, consumer);
+            matchPrefix(pattern.substring(0, firstWordEnd), typeName -> {
+                int offset = getSimpleNameIndex(typeName);
+
+                if (TypeNameRanker.matchCamelCase(pattern, typeName, offset, true)
+                        // Already found by the scan of the humps
+                        && !(compareHumps(typeName, offset, initials) == 0 && TypeNameRanker.matchCamelCase(pattern, typeName, offset))) {
+                    consumer.accept(typeName);
+                }
+            });
+        }
+    }
+
+    /**
+     * Pass the type names whose simple name starts with the prefix, ignoring case, to the consumer.
+     */
+    public void matchPrefix(String prefix, Consumer<String> consumer) {
+        int low = 0;
+        int high = bySimpleName.length;
+
+        // Search the first simple name greater than or equal to the prefix
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (comparePrefixIgnoreCase(bySimpleName[middle], bySimpleNameOffsets[middle], prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        for (int i = low; i < bySimpleName.length && comparePrefixIgnoreCase(bySimpleName[i], bySimpleNameOffsets[i], prefix) == 0; i++) {
+            consumer.accept(bySimpleName[i]);
+        }
+    }
+
+    /**
+     * Pass the type names matching the camel case pattern, case sensitive, to the consumer.
+     */
+    public void matchCamelCase(String pattern, Consumer<String> consumer) {
+        String initials = getHumps(pattern, 0);
+        int low = 0;
+        int high = byHumps.length;
+
+        // Search the first humps greater than or equal to the initials
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (compareHumps(byHumps[middle], byHumpsOffsets[middle], initials) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        for (int i = low; i < byHumps.length && compareHumps(byHumps[i], byHumpsOffsets[i], initials) == 0; i++) {
+            if (TypeNameRanker.matchCamelCase(pattern, byHumps[i], byHumpsOffsets[i])) {
+                consumer.accept(byHumps[i]);
+            }
+        }
+    }
+
+    public int size() { return bySimpleName.length; }
+
+    public static int getSimpleNameIndex(String typeName) {
+        return Math.max(typeName.lastIndexOf('/'), typeName.lastIndexOf('$')) + 1;
+    }
+
+    /**
+     * @return the first character and the upper case characters of the name, from the index
+     */
+    protected static String getHumps(String name, int index) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = index; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (i == index || Character.isUpperCase(c)) {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Compare the humps of the name, limited to the length of the initials, with the initials.
+     */
+    protected static int compareHumps(String name, int index, String initials) {
+        int length = name.length();
+        int j = 0;
+
+        for (int i = index; i < length && j < initials.length(); i++) {
+            char c = name.charAt(i);
+
+            if (i == index || Character.isUpperCase(c)) {
+                if (c != initials.charAt(j)) {
+                    return c - initials.charAt(j);
+                }
+                j++;
+            }
+        }
+
+        return j < initials.length() ? -1 : 0;
+    }
+
+    /**
+     * @return the simple name with folded case, to sort simple names like {@link #comparePrefixIgnoreCase}
+     */
+    protected static String fold(String name, int index) {
+        char[] chars = new char[name.length() - index];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(name.charAt(index + i));
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Compare the simple name, limited to the length of the prefix, with the prefix, ignoring case.
+     */
+    protected static int comparePrefixIgnoreCase(String name, int index, String prefix) {
+        int length = Math.min(name.length() - index, prefix.length());
+
+        for (int i = 0; i < length; i++) {
+            char c1 = fold(name.charAt(index + i));
+            char c2 = fold(prefix.charAt(i));
+
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Sort key of a type name, used while building only.
+     */
+    protected static class Key implements Comparable<Key> {
+        private final String key;
+        private final String typeName;
+        private final int offset;
+
+        public Key(String key, String typeName, int offset) {
+            this.key = key;
+            this.typeName = typeName;
+            this.offset = offset;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = key.compareTo(other.key);
+            return result != 0 ? result : typeName.compareTo(other.typeName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && compareTo((Key) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + typeName.hashCode();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.matcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranking of the type names matching a pattern of "Open Type", keeping the best ones only.
+ * <br>
+ * Type names are ranked by the kind of match of their simple name: exact, then prefix, then camel case ("SB" or
+ * "StrBu" for "StringBuilder"), then any other match, like wildcards. Then, types of shorter packages, top level
+ * types and shorter names first. The best names are kept in a bounded heap: adding a name does not allocate unless
+ * the name enters the heap, so that patterns matching hundreds of thousands of types are not sorted.
+ */
+public class TypeNameRanker {
+    protected static final int EXACT = 0;
+    protected static final int EXACT_IGNORE_CASE = 1;
+    protected static final int PREFIX = 2;
+    protected static final int PREFIX_IGNORE_CASE = 3;
+    protected static final int CAMEL_CASE = 4;
+    protected static final int OTHER = 5;
+
+    private final String pattern;
+    private final boolean wildcards;
+    private final int maxCount;
+    // Worst kept name first
+    private final PriorityQueue<Candidate> heap;
+    private int count;
+
+    public TypeNameRanker(String pattern, int maxCount) {
+        this.pattern = pattern;
+        this.wildcards = pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1;
+        this.maxCount = maxCount;
+        this.heap = new PriorityQueue<>(maxCount + 1, Collections.reverseOrder());
+    }
+
+    /**
+     * Add a matching type name, once per name.
+     */
+    public void add(String typeName) {
+        count++;
+
+        if (maxCount > 0) {
+            long score = score(typeName);
+
+            if (heap.size() < maxCount) {
+                heap.add(new Candidate(score, typeName));
+            } else {
+                Candidate worst = heap.peek();
+
+                if (score < worst.score || score == worst.score && typeName.compareTo(worst.typeName) < 0) {
+                    heap.poll();
+                    heap.add(new Candidate(score, typeName));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of added type names
+     */
+    public int getCount() { return count; }
+
+    /**
+     * @return the best type names, best first
+     */
+    public List<String> getTypeNames() {
+        List<Candidate> candidates = new ArrayList<>(heap);
+        List<String> typeNames = new ArrayList<>(candidates.size());
+
+        Collections.sort(candidates);
+
+        for (Candidate candidate : candidates) {
+            typeNames.add(candidate.typeName);
+        }
+
+        return typeNames;
+    }
+
+    /**
+     * @return the score of a type name, the lower the better: kind of match, package depth, nesting depth, length of
+     * the simple name, then length of the name
+     */
+    protected long score(String typeName) {
+        int lastPackageSeparatorIndex = typeName.lastIndexOf('/');
+        int simpleNameIndex = Math.max(lastPackageSeparatorIndex, typeName.lastIndexOf('$')) + 1;
+        int packageDepth = 0;
+        int nestingDepth = 0;
+
+        for (int i = 0; i < lastPackageSeparatorIndex; i++) {
+            if (typeName.charAt(i) == '/') {
+                packageDepth++;
+            }
+        }
+        for (int i = lastPackageSeparatorIndex + 1; i < simpleNameIndex; i++) {
+            if (typeName.charAt(i) == '$') {
+                nestingDepth++;
+            }
+        }
+
+        return ((long) getKindOfMatch(typeName, simpleNameIndex) << 56)
+                | ((long) Math.min(packageDepth, 0xFF) << 48)
+                | ((long) Math.min(nestingDepth, 0xFF) << 40)
+                | ((long) Math.min(typeName.length() - simpleNameIndex, 0xFFFF) << 24)
+                | Math.min(typeName.length(), 0xFFFFFF);
+    }
+
+    protected int getKindOfMatch(String typeName, int simpleNameIndex) {
+        if (wildcards) {
+            return OTHER;
+        }
+
+        int patternLength = pattern.length();
+        int simpleNameLength = typeName.length() - simpleNameIndex;
+
+        if (typeName.startsWith(pattern, simpleNameIndex)) {
+            return simpleNameLength == patternLength ? EXACT : PREFIX;
+        }
+        if (typeName.regionMatches(true, simpleNameIndex, pattern, 0, patternLength)) {
+            return simpleNameLength == patternLength ? EXACT_IGNORE_CASE : PREFIX_IGNORE_CASE;
+        }
+        if (matchCamelCase(pattern, typeName, simpleNameIndex)) {
+            return CAMEL_CASE;
+        }
+
+        return OTHER;
+    }
+
+    /**
+     * Match the words of the pattern, starting with an upper case character, with the prefixes of the words of the
+     * name, in order, from the first word of the name: "SB", "StrB" or "StrBu" for "StringBuilder".
+     */
+    public static boolean matchCamelCase(String pattern, String name, int nameIndex) {
+        return matchCamelCase(pattern, name, nameIndex, false);
+    }
+
+    /**
+     * @param ignoreCase true if the lower case characters of the pattern match both cases, like in the regular
+     *                   expressions of "Open Type": "Url" or "UrlC" for "URLClassLoader"
+     */
+    public static boolean matchCamelCase(String pattern, String name, int nameIndex, boolean ignoreCase) {
+        int patternLength = pattern.length();
+        int nameLength = name.length();
+
+        if (patternLength == 0 || !Character.isUpperCase(pattern.charAt(0))) {
+            return false;
+        }
+
+        int patternIndex = 0;
+
+        while (patternIndex < patternLength) {
+            int wordEnd = patternIndex + 1;
+
+            while (wordEnd < patternLength && !Character.isUpperCase(pattern.charAt(wordEnd))) {
+                wordEnd++;
+            }
+
+            // Search the word of the name starting with the word of the pattern
+            while (!regionMatches(name, nameIndex, pattern, patternIndex, wordEnd - patternIndex, ignoreCase)) {
+                if (patternIndex == 0) {
+                    // The first words must match
+                    return false;
+                }
+                nameIndex = nextWord(name, nameIndex + 1);
+                if (nameIndex >= nameLength) {
+                    return false;
+                }
+            }
+
+            nameIndex += wordEnd - patternIndex;
+            patternIndex = wordEnd;
+
+            if (patternIndex < patternLength) {
+                nameIndex = nextWord(name, nameIndex);
+                if (nameIndex >= nameLength) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    protected static boolean regionMatches(String name, int nameIndex, String pattern, int patternIndex, int length, boolean ignoreCase) {
+        if (!ignoreCase) {
+            return name.regionMatches(nameIndex, pattern, patternIndex, length);
+        }
+        if (nameIndex + length > name.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(patternIndex + i);
+            char n = name.charAt(nameIndex + i);
+
+            if (c != n && !(Character.isLowerCase(c) && Character.toUpperCase(c) == n)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected static int nextWord(String name, int index) {
+        int length = name.length();
+
+        while (index < length && !Character.isUpperCase(name.charAt(index))) {
+            index++;
+        }
+
+        return index;
+    }
+
+    protected static class Candidate implements Comparable<Candidate> {
+        private final long score;
+        private final String typeName;
+
+        public Candidate(long score, String typeName) {
+            this.score = score;
+            this.typeName = typeName;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int result = Long.compare(score, other.score);
+            return result != 0 ? result : typeName.compareTo(other.typeName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Candidate && compareTo((Candidate) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(score) * 31 + typeName.hashCode();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
 import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
 import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
@@ -16,17 +17,58 @@ import org.jd.gui.api.model.Container.Entry;
 import org.jd.gui.util.decompiler.GuiPreferences;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import javax.swing.SwingUtilities;
 import javax.swing.text.BadLocationException;
 
+/**
+ * Compiler diagnostics of the text area.
+ * <br>
+ * Sources are compiled in background, once the text has not changed for a short delay: until then, no notice is
+ * reported. Then the text area is asked to parse again, and the problems are read from a cache keyed by the text.
+ * Nothing is compiled when no diagnostic is displayed.
+ */
 public class RSyntaxASTParser extends AbstractParser {
 
+    protected static final long DEBOUNCE_DELAY = 300; // in milliseconds
+    protected static final int CACHE_SIZE = 16;
+
+    private static final ScheduledExecutorService COMPILER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "compiler-diagnostics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Problems by archive, unit name and text, least recently used first evicted
+    private static final Map<String, List<Problem>> CACHE = new LinkedHashMap<>(CACHE_SIZE, 0.75F, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Problem>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     protected final API api;
     protected final Container.Entry entry;
+    protected final RSyntaxTextArea textArea;
+    // Accessed from the event dispatch thread only
+    private ScheduledFuture<?> pendingCompilation;
+    private String pendingKey;
 
-    public RSyntaxASTParser(Entry entry, API api) {
+    public RSyntaxASTParser(Entry entry, API api, RSyntaxTextArea textArea) {
         this.api = api;
         this.entry = entry;
+        this.textArea = textArea;
     }
 
     @Override
@@ -35,32 +77,29 @@ public class RSyntaxASTParser extends AbstractParser {
         boolean showWarnings = "true".equals(api.getPreferences().get(GuiPreferences.SHOW_COMPILER_WARNINGS));
         boolean showInfo = "true".equals(api.getPreferences().get(GuiPreferences.SHOW_COMPILER_INFO));
         DefaultParseResult result = new DefaultParseResult(this);
+        if (!showErrors && !showWarnings && !showInfo) {
+            cancelCompilation();
+            return result;
+        }
         try {
             String text = doc.getText(0, doc.getLength());
             String unitName = entry.getPath();
             URI jarURI = entry.getContainer().getRoot().getParent().getUri();
-            ASTNode ast = ASTParserFactory.getInstanceWithBindings().newASTParser(text.toCharArray(), unitName, jarURI).createAST(null);
-            if (ast instanceof CompilationUnit) {
-                CompilationUnit cu = (CompilationUnit) ast;
-                IProblem[] problems = cu.getProblems();
-                for (IProblem pb : problems) {
-                    int sourceStart = pb.getSourceStart();
-                    int length = pb.getSourceEnd() - sourceStart + 1;
-                    String message = pb.getMessage();
-                    int lineNo = pb.getSourceLineNumber();
-                    DefaultParserNotice notice = new DefaultParserNotice(this, message, lineNo, sourceStart, length);
-                    if (pb.isError()) {
-                        notice.setLevel(Level.ERROR);
-                    }
-                    if (pb.isWarning()) {
-                        notice.setLevel(Level.WARNING);
-                    }
-                    if (pb.isInfo()) {
-                        notice.setLevel(Level.INFO);
-                    }
-                    if ((pb.isError() && showErrors) || (pb.isWarning() && showWarnings) || (pb.isInfo() && showInfo)) {
-                        result.addNotice(notice);
-                    }
+            String key = jarURI + "!" + unitName + '#' + text.length() + '#' + text.hashCode();
+            List<Problem> problems;
+            synchronized (CACHE) {
+                problems = CACHE.get(key);
+            }
+            if (problems == null) {
+                scheduleCompilation(key, text, unitName, jarURI);
+                return result;
+            }
+            cancelCompilation();
+            for (Problem pb : problems) {
+                if ((pb.level == Level.ERROR && showErrors) || (pb.level == Level.WARNING && showWarnings) || (pb.level == Level.INFO && showInfo)) {
+                    DefaultParserNotice notice = new DefaultParserNotice(this, pb.message, pb.lineNo, pb.sourceStart, pb.length);
+                    notice.setLevel(pb.level);
+                    result.addNotice(notice);
                 }
             }
         } catch (BadLocationException e) {
@@ -69,4 +108,86 @@ public class RSyntaxASTParser extends AbstractParser {
         return result;
     }
 
+    /**
+     * Compile after the delay, unless the text changes in the meantime, then parse again.
+     */
+    protected void scheduleCompilation(String key, String text, String unitName, URI jarURI) {
+        if (key.equals(pendingKey)) {
+            return;
+        }
+        cancelCompilation();
+        pendingKey = key;
+        pendingCompilation = COMPILER.schedule(() -> {
+            List<Problem> problems;
+            try {
+                problems = compile(text, unitName, jarURI);
+            } catch (RuntimeException e) {
+                assert ExceptionUtil.printStackTrace(e);
+                problems = Collections.emptyList();
+            }
+            synchronized (CACHE) {
+                CACHE.put(key, problems);
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (key.equals(pendingKey)) {
+                    pendingKey = null;
+                    pendingCompilation = null;
+                    // Notices are read from the cache, and posted to the error strip by the text area
+                    textArea.forceReparsing(this);
+                }
+            });
+        }, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    protected void cancelCompilation() {
+        if (pendingCompilation != null) {
+            pendingCompilation.cancel(false);
+            pendingCompilation = null;
+            pendingKey = null;
+        }
+    }
+
+    protected static List<Problem> compile(String text, String unitName, URI jarURI) {
+        ASTNode ast = ASTParserFactory.getInstanceWithBindings().newASTParser(text.toCharArray(), unitName, jarURI).createAST(null);
+        if (!(ast instanceof CompilationUnit)) {
+            return Collections.emptyList();
+        }
+        CompilationUnit cu = (CompilationUnit) ast;
+        IProblem[] problems = cu.getProblems();
+        List<Problem> list = new ArrayList<>(problems.length);
+        for (IProblem pb : problems) {
+            int sourceStart = pb.getSourceStart();
+            int length = pb.getSourceEnd() - sourceStart + 1;
+            Level level = null;
+            if (pb.isError()) {
+                level = Level.ERROR;
+            }
+            if (pb.isWarning()) {
+                level = Level.WARNING;
+            }
+            if (pb.isInfo()) {
+                level = Level.INFO;
+            }
+            if (level != null) {
+                list.add(new Problem(pb.getMessage(), pb.getSourceLineNumber(), sourceStart, length, level));
+            }
+        }
+        return list;
+    }
+
+    protected static class Problem {
+        private final String message;
+        private final int lineNo;
+        private final int sourceStart;
+        private final int length;
+        private final Level level;
+
+        public Problem(String message, int lineNo, int sourceStart, int length, Level level) {
+            this.message = message;
+            this.lineNo = lineNo;
+            this.sourceStart = sourceStart;
+            this.length = length;
+            this.level = level;
+        }
+    }
 }
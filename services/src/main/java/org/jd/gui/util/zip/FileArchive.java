@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipException;
+
+/**
+ * Archive file read by positional reads, without memory mapping: the file is released as soon as it is closed.
+ * <br>
+ * A file channel is closed when a thread reading it is interrupted, like a cancelled decompilation. The channel is
+ * then reopened for the other readers, until this archive is closed.
+ */
+public class FileArchive implements Closeable {
+    private final Path path;
+    private FileChannel channel;
+    private boolean closed;
+
+    public FileArchive(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public long size() throws IOException {
+        return getChannel().size();
+    }
+
+    /**
+     * @return the bytes of the archive from the position, in a new heap buffer
+     */
+    public ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.allocate(length);
+
+        while (target.hasRemaining()) {
+            FileChannel fileChannel = getChannel();
+
+            try {
+                if (fileChannel.read(target, position + target.position()) < 0) {
+                    throw new ZipException("Truncated archive: " + path);
+                }
+            } catch (ClosedByInterruptException e) {
+                // This reader is interrupted
+                reopen(fileChannel);
+                throw e;
+            } catch (AsynchronousCloseException e) {
+                // Another reader is interrupted, or this archive is closed
+                reopen(fileChannel);
+            } catch (ClosedChannelException e) {
+                reopen(fileChannel);
+            }
+        }
+
+        return target.flip();
+    }
+
+    protected synchronized FileChannel getChannel() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        return channel;
+    }
+
+    protected synchronized void reopen(FileChannel closedChannel) throws IOException {
+        if (!closed && channel == closedChannel) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import org.jd.gui.util.TempFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Bytes of an archive nested in another one, read in place.
+ * <br>
+ * Stored archives are slices of the enclosing archive. Deflated archives are inflated once into an off-heap buffer,
+ * within a budget shared by all nested archives, or into a memory mapped temporary file beyond it.
+ */
+public class NestedArchive implements Closeable {
+    // Budget of the off-heap buffers holding inflated nested archives
+    protected static final long MAX_BUFFERED_SIZE = Runtime.getRuntime().maxMemory() / 4;
+    private static final AtomicLong bufferedSize = new AtomicLong(0);
+
+    private final ByteBuffer buffer;
+    private long reservedSize;
+    private Path tmpPath;
+
+    protected NestedArchive(ByteBuffer buffer, long reservedSize, Path tmpPath) {
+        this.buffer = buffer;
+        this.reservedSize = reservedSize;
+        this.tmpPath = tmpPath;
+    }
+
+    /**
+     * @return the nested archive, null if it is too large to be held in a buffer
+     */
+    public static NestedArchive open(ZipDirectory directory, int index) throws IOException {
+        switch (directory.getMethod(index)) {
+        case ZipEntry.STORED:
+            return new NestedArchive(directory.getRawData(index), 0, null);
+        case ZipEntry.DEFLATED:
+            long size = directory.getSize(index);
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (reserve(size)) {
+                try {
+                    return new NestedArchive(directory.inflate(index, ByteBuffer.allocateDirect((int)size)), size, null);
+                } catch (IOException | RuntimeException e) {
+                    bufferedSize.addAndGet(-size);
+                    throw e;
+                }
+            }
+            return openTempFile(directory, index);
+        default:
+            throw new ZipException("Unsupported compression method " + directory.getMethod(index) + ": " + directory.getName(index));
+        }
+    }
+
+    protected static NestedArchive openTempFile(ZipDirectory directory, int index) throws IOException {
+        try (TempFile tmpFile = new TempFile(".nested")) {
+            Path tmpPath = tmpFile.toPath();
+
+            try (InputStream inputStream = directory.getInputStream(index)) {
+                Files.copy(inputStream, tmpPath);
+            }
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.READ)) {
+                // The mapping remains valid after the channel is closed
+                return new NestedArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), 0, tmpPath);
+            }
+        }
+    }
+
+    protected static boolean reserve(long size) {
+        if (bufferedSize.addAndGet(size) > MAX_BUFFERED_SIZE) {
+            bufferedSize.addAndGet(-size);
+            return false;
+        }
+        return true;
+    }
+
+    public ByteBuffer getBuffer() { return buffer.duplicate(); }
+
+    @Override
+    public synchronized void close() throws IOException {
+        bufferedSize.addAndGet(-reservedSize);
+        reservedSize = 0;
+
+        if (tmpPath != null) {
+            Path path = tmpPath;
+            tmpPath = null;
+            // May fail while the mapping is alive on some platforms, the file is then deleted on exit
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal read-only file system exposing the bytes of a nested archive as a single regular file.
+ * <br>
+ * The zip file system provider of the JDK only needs a seekable channel on the archive: with this provider, a nested
+ * archive held in a buffer, a slice of the enclosing archive or an inflated copy, can be opened with
+ * <code>FileSystems.newFileSystem(path, (ClassLoader)null)</code> without being copied to a temporary file.
+ */
+public class NestedArchiveFileSystemProvider extends FileSystemProvider {
+    protected static final NestedArchiveFileSystemProvider INSTANCE = new NestedArchiveFileSystemProvider();
+
+    protected NestedArchiveFileSystemProvider() {
+    }
+
+    /**
+     * @param archive the bytes of the archive
+     * @param uri     the URI of the archive entry, used by the zip file system to build the URIs of its paths
+     * @return the path of the archive
+     */
+    public static Path newArchivePath(ByteBuffer archive, URI uri) {
+        return new NestedArchiveFileSystem(archive, uri).archivePath;
+    }
+
+    @Override
+    public String getScheme() { return "jd-nested"; }
+
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) {
+        if (options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND)) {
+            throw new ReadOnlyFileSystemException();
+        }
+        return new ByteBufferChannel(toArchivePath(path).fileSystem.getArchive());
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+        throw new NotDirectoryException(dir.toString());
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) { throw new ReadOnlyFileSystemException(); }
+    @Override
+    public void delete(Path path) { throw new ReadOnlyFileSystemException(); }
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) { throw new ReadOnlyFileSystemException(); }
+    @Override
+    public void move(Path source, Path target, CopyOption... options) { throw new ReadOnlyFileSystemException(); }
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) { throw new ReadOnlyFileSystemException(); }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) { return path.equals(path2); }
+    @Override
+    public boolean isHidden(Path path) { return false; }
+
+    @Override
+    public FileStore getFileStore(Path path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        toArchivePath(path).fileSystem.getArchive();
+
+        for (AccessMode mode : modes) {
+            if (mode != AccessMode.READ) {
+                throw new AccessDeniedException(path.toString());
+            }
+        }
+    }
+
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException();
+        }
+        return (A) new ArchiveAttributes(toArchivePath(path).fileSystem.getArchive().limit());
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected static ArchivePath toArchivePath(Path path) {
+        if (path instanceof ArchivePath) {
+            return (ArchivePath) path;
+        }
+        throw new ProviderMismatchException();
+    }
+
+    protected static class NestedArchiveFileSystem extends FileSystem {
+        private final ArchivePath archivePath;
+        private ByteBuffer archive;
+
+        public NestedArchiveFileSystem(ByteBuffer archive, URI uri) {
+            this.archive = archive;
+            this.archivePath = new ArchivePath(this, uri);
+        }
+
+        protected synchronized ByteBuffer getArchive() {
+            if (archive == null) {
+                throw new ClosedFileSystemException();
+            }
+            return archive;
+        }
+
+        @Override
+        public FileSystemProvider provider() { return INSTANCE; }
+
+        @Override
+        public synchronized void close() { archive = null; }
+
+        @Override
+        public synchronized boolean isOpen() { return archive != null; }
+        @Override
+        public boolean isReadOnly() { return true; }
+        @Override
+        public String getSeparator() { return "/"; }
+        @Override
+        public Iterable<Path> getRootDirectories() { return Collections.emptyList(); }
+        @Override
+        public Iterable<FileStore> getFileStores() { return Collections.emptyList(); }
+        @Override
+        public Set<String> supportedFileAttributeViews() { return Collections.singleton("basic"); }
+
+        @Override
+        public Path getPath(String first, String... more) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PathMatcher getPathMatcher(String syntaxAndPattern) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public UserPrincipalLookupService getUserPrincipalLookupService() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WatchService newWatchService() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The single path of a nested archive file system: an absolute path without root nor parent.
+     */
+    protected static class ArchivePath implements Path {
+        private final NestedArchiveFileSystem fileSystem;
+        private final URI uri;
+
+        public ArchivePath(NestedArchiveFileSystem fileSystem, URI uri) {
+            this.fileSystem = fileSystem;
+            this.uri = uri;
+        }
+
+        @Override
+        public FileSystem getFileSystem() { return fileSystem; }
+        @Override
+        public boolean isAbsolute() { return true; }
+        @Override
+        public Path getRoot() { return null; }
+        @Override
+        public Path getFileName() { return this; }
+        @Override
+        public Path getParent() { return null; }
+        @Override
+        public int getNameCount() { return 1; }
+
+        @Override
+        public Path getName(int index) {
+            if (index != 0) {
+                throw new IllegalArgumentException();
+            }
+            return this;
+        }
+
+        @Override
+        public Path subpath(int beginIndex, int endIndex) {
+            if (beginIndex != 0 || endIndex != 1) {
+                throw new IllegalArgumentException();
+            }
+            return this;
+        }
+
+        @Override
+        public boolean startsWith(Path other) { return equals(other); }
+        @Override
+        public boolean endsWith(Path other) { return equals(other); }
+        @Override
+        public Path normalize() { return this; }
+
+        @Override
+        public Path resolve(Path other) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Path relativize(Path other) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public URI toUri() { return uri; }
+        @Override
+        public Path toAbsolutePath() { return this; }
+        @Override
+        public Path toRealPath(LinkOption... options) { return this; }
+
+        @Override
+        public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compareTo(Path other) { return toString().compareTo(other.toString()); }
+        @Override
+        public String toString() { return uri.getPath(); }
+    }
+
+    protected static class ArchiveAttributes implements BasicFileAttributes {
+        private static final FileTime EPOCH = FileTime.fromMillis(0);
+
+        private final long size;
+
+        public ArchiveAttributes(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() { return EPOCH; }
+        @Override
+        public FileTime lastAccessTime() { return EPOCH; }
+        @Override
+        public FileTime creationTime() { return EPOCH; }
+        @Override
+        public boolean isRegularFile() { return true; }
+        @Override
+        public boolean isDirectory() { return false; }
+        @Override
+        public boolean isSymbolicLink() { return false; }
+        @Override
+        public boolean isOther() { return false; }
+        @Override
+        public long size() { return size; }
+        @Override
+        public Object fileKey() { return null; }
+    }
+}
@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Central directory of a zip archive held in a buffer or read from a file, read once into compact arrays.
+ * <br>
+ * Entry data of an archive held in a buffer is accessed in place: stored entries are slices of the archive buffer,
+ * deflated entries are inflated from these slices. Entry data of an archive file is read on demand, see
+ * {@link FileArchive}.
+ */
+public class ZipDirectory implements Closeable {
+    protected static final int LOC_SIGNATURE = 0x04034b50;
+    protected static final int CEN_SIGNATURE = 0x02014b50;
+    protected static final int END_SIGNATURE = 0x06054b50;
+    protected static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    protected static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    protected static final int ZIP64_EXTRA_ID = 0x0001;
+    protected static final int LOC_HEADER_SIZE = 30;
+    protected static final int CEN_HEADER_SIZE = 46;
+    protected static final int END_HEADER_SIZE = 22;
+    protected static final int ZIP64_END_HEADER_SIZE = 56;
+    protected static final int ZIP64_LOCATOR_SIZE = 20;
+    protected static final int MAX_COMMENT_SIZE = 0xFFFF;
+    protected static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    // The archive, or the end of the archive file from its central directory
+    private final ByteBuffer buffer;
+    // Position of the buffer in the archive
+    private final long bufferPosition;
+    // Null if the archive is held in the buffer
+    private final FileArchive file;
+    private final String[] names;
+    private final short[] methods;
+    private final int[] crcs;
+    private final long[] compressedSizes;
+    private final long[] sizes;
+    private final long[] localHeaderOffsets;
+    private final int[] headerSizes;
+    private final int[] sortedIndexes;
+
+    public ZipDirectory(ByteBuffer archive) throws ZipException {
+        this(archive, 0, null);
+    }
+
+    protected ZipDirectory(ByteBuffer archive, long bufferPosition, FileArchive file) throws ZipException {
+        this.buffer = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.bufferPosition = bufferPosition;
+        this.file = file;
+
+        try {
+            End end = new End(buffer, bufferPosition);
+            long base = end.base;
+            int count = (int) end.entryCount;
+
+            this.names = new String[count];
+            this.methods = new short[count];
+            this.crcs = new int[count];
+            this.compressedSizes = new long[count];
+            this.sizes = new long[count];
+            this.localHeaderOffsets = new long[count];
+            this.headerSizes = new int[count];
+
+            int offset = checkedOffset(end.directoryPosition - bufferPosition);
+            byte[] nameBuffer = new byte[256];
+
+            for (int i = 0; i < count; i++) {
+                if (buffer.getInt(offset) != CEN_SIGNATURE) {
+                    throw new ZipException("Invalid central directory header");
+                }
+
+                int nameLength = u2(offset + 28);
+                int extraLength = u2(offset + 30);
+                int commentLength = u2(offset + 32);
+
+                if (nameBuffer.length < nameLength) {
+                    nameBuffer = new byte[Math.max(nameLength, nameBuffer.length * 2)];
+                }
+                buffer.get(offset + CEN_HEADER_SIZE, nameBuffer, 0, nameLength);
+
+                names[i] = new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8);
+                methods[i] = (short) u2(offset + 10);
+                crcs[i] = buffer.getInt(offset + 16);
+                compressedSizes[i] = u4(offset + 20);
+                sizes[i] = u4(offset + 24);
+                localHeaderOffsets[i] = u4(offset + 42);
+
+                if (sizes[i] == ZIP64_MAGIC || compressedSizes[i] == ZIP64_MAGIC || localHeaderOffsets[i] == ZIP64_MAGIC) {
+                    readZip64Extra(i, offset + CEN_HEADER_SIZE + nameLength, extraLength);
+                }
+
+                localHeaderOffsets[i] += base;
+                // Local and central headers, assuming the local extra field is the central one
+                headerSizes[i] = LOC_HEADER_SIZE + CEN_HEADER_SIZE + 2 * (nameLength + extraLength) + commentLength;
+                offset += CEN_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            ZipException zipException = new ZipException("Truncated central directory");
+            zipException.initCause(e);
+            throw zipException;
+        }
+
+        Integer[] indexes = new Integer[names.length];
+        Arrays.setAll(indexes, i -> i);
+        Arrays.sort(indexes, Comparator.comparing(i -> names[i]));
+        sortedIndexes = Arrays.stream(indexes).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Read the central directory of an archive file. The entry data is read from the file until this directory is
+     * closed.
+     */
+    public static ZipDirectory open(Path path) throws IOException {
+        FileArchive file = new FileArchive(path);
+
+        try {
+            long size = file.size();
+            // End headers and comment
+            long position = Math.max(0, size - END_HEADER_SIZE - MAX_COMMENT_SIZE - ZIP64_LOCATOR_SIZE - ZIP64_END_HEADER_SIZE);
+            ByteBuffer end = file.read(position, (int) (size - position));
+            long directoryPosition = new End(end.order(ByteOrder.LITTLE_ENDIAN), position).directoryPosition;
+
+            if (directoryPosition < position) {
+                if (size - directoryPosition > Integer.MAX_VALUE) {
+                    throw new ZipException("Central directory too large: " + path);
+                }
+                // Central directory and end headers
+                position = directoryPosition;
+                end = file.read(position, (int) (size - position));
+            }
+
+            return new ZipDirectory(end, position, file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int size() { return names.length; }
+
+    public String getName(int index) { return names[index]; }
+    public int getMethod(int index) { return methods[index]; }
+    public int getCrc(int index) { return crcs[index]; }
+    public long getCompressedSize(int index) { return compressedSizes[index]; }
+    public long getSize(int index) { return sizes[index]; }
+
+    /**
+     * @return the space used by the entry in the archive: compressed data and headers
+     */
+    public long getImpactSize(int index) { return compressedSizes[index] + headerSizes[index]; }
+
+    /**
+     * @return the index of the entry, -1 if not found
+     */
+    public int indexOf(String name) {
+        int rank = rankOf(name);
+
+        if (rank < sortedIndexes.length && names[sortedIndexes[rank]].equals(name)) {
+            return sortedIndexes[rank];
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the rank, in the lexicographic order of names, of the first entry whose name is greater than or equal
+     *         to the given name. Entries sharing a prefix have consecutive ranks.
+     */
+    public int rankOf(String name) {
+        int low = 0;
+        int high = sortedIndexes.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (names[sortedIndexes[middle]].compareTo(name) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the index of the entry of the given rank
+     */
+    public int getIndexByRank(int rank) { return sortedIndexes[rank]; }
+
+    /**
+     * @return the raw data of the entry, compressed or not, sharing the archive buffer
+     */
+    public ByteBuffer getRawData(int index) throws IOException {
+        if (file != null) {
+            return readRawData(index);
+        }
+
+        int offset = checkedOffset(localHeaderOffsets[index]);
+
+        if (buffer.getInt(offset) != LOC_SIGNATURE) {
+            throw new ZipException("Invalid local header: " + names[index]);
+        }
+
+        int dataOffset = offset + LOC_HEADER_SIZE + u2(offset + 26) + u2(offset + 28);
+        int dataEnd = checkedOffset(dataOffset + compressedSizes[index]);
+
+        return buffer.slice(dataOffset, dataEnd - dataOffset).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @return the raw data of the entry, read from the archive file into a new buffer
+     */
+    protected ByteBuffer readRawData(int index) throws IOException {
+        long offset = localHeaderOffsets[index];
+        ByteBuffer header = file.read(offset, LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (header.getInt(0) != LOC_SIGNATURE) {
+            throw new ZipException("Invalid local header: " + names[index]);
+        }
+        if (compressedSizes[index] > Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large: " + names[index]);
+        }
+
+        long dataOffset = offset + LOC_HEADER_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+
+        return file.read(dataOffset, (int) compressedSizes[index]);
+    }
+
+    public InputStream getInputStream(int index) throws IOException {
+        InputStream inputStream = Channels.newInputStream(new ByteBufferChannel(getRawData(index)));
+
+        switch (methods[index]) {
+        case ZipEntry.STORED:
+            return inputStream;
+        case ZipEntry.DEFLATED:
+            return new InflaterInputStream(inputStream, new Inflater(true)) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inf.end();
+                }
+            };
+        default:
+            throw new ZipException("Unsupported compression method " + methods[index] + ": " + names[index]);
+        }
+    }
+
+    /**
+     * Inflate a deflated entry into the target buffer, in one pass.
+     *
+     * @return the target buffer, flipped for reading
+     */
+    public ByteBuffer inflate(int index, ByteBuffer target) throws IOException {
+        Inflater inflater = new Inflater(true);
+
+        try {
+            inflater.setInput(getRawData(index));
+
+            while (!inflater.finished() && target.hasRemaining()) {
+                if (inflater.inflate(target) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated entry: " + names[index]);
+                }
+            }
+
+            return target.flip();
+        } catch (DataFormatException e) {
+            ZipException zipException = new ZipException("Invalid deflated entry: " + names[index]);
+            zipException.initCause(e);
+            throw zipException;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    protected void readZip64Extra(int index, int offset, int length) {
+        int end = offset + length;
+
+        while (offset + 4 <= end) {
+            int id = u2(offset);
+            int size = u2(offset + 2);
+            int position = offset + 4;
+
+            if (id == ZIP64_EXTRA_ID) {
+                if (sizes[index] == ZIP64_MAGIC) {
+                    sizes[index] = buffer.getLong(position);
+                    position += 8;
+                }
+                if (compressedSizes[index] == ZIP64_MAGIC) {
+                    compressedSizes[index] = buffer.getLong(position);
+                    position += 8;
+                }
+                if (localHeaderOffsets[index] == ZIP64_MAGIC) {
+                    localHeaderOffsets[index] = buffer.getLong(position);
+                }
+                return;
+            }
+
+            offset += 4 + size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    private int checkedOffset(long offset) throws ZipException {
+        if (offset < 0 || offset > buffer.limit()) {
+            throw new ZipException("Invalid offset " + offset);
+        }
+        return (int) offset;
+    }
+
+    private int u2(int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private long u4(int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * End headers of an archive, read from a buffer holding the end of the archive.
+     */
+    protected static class End {
+        private final long entryCount;
+        // Position of the archive in the file: data may be prepended to the archive, like a launch script
+        private final long base;
+        private final long directoryPosition;
+
+        public End(ByteBuffer buffer, long bufferPosition) throws ZipException {
+            try {
+                int endOffset = findEnd(buffer);
+                long count = buffer.getShort(endOffset + 10) & 0xFFFF;
+                long directorySize = buffer.getInt(endOffset + 12) & 0xFFFFFFFFL;
+                long directoryOffset = buffer.getInt(endOffset + 16) & 0xFFFFFFFFL;
+                int directoryEnd = endOffset;
+                int locatorOffset = endOffset - ZIP64_LOCATOR_SIZE;
+
+                if (locatorOffset >= 0 && buffer.getInt(locatorOffset) == ZIP64_LOCATOR_SIGNATURE) {
+                    long zip64EndOffset = buffer.getLong(locatorOffset + 8) - bufferPosition;
+
+                    if (zip64EndOffset < 0 || zip64EndOffset > locatorOffset || buffer.getInt((int) zip64EndOffset) != ZIP64_END_SIGNATURE) {
+                        throw new ZipException("Invalid zip64 end header");
+                    }
+
+                    count = buffer.getLong((int) zip64EndOffset + 32);
+                    directorySize = buffer.getLong((int) zip64EndOffset + 40);
+                    directoryOffset = buffer.getLong((int) zip64EndOffset + 48);
+                    directoryEnd = (int) zip64EndOffset;
+                }
+
+                this.entryCount = count;
+                this.directoryPosition = bufferPosition + directoryEnd - directorySize;
+                this.base = directoryPosition - directoryOffset;
+
+                if (base < 0 || directorySize < 0 || entryCount < 0 || entryCount > Integer.MAX_VALUE) {
+                    throw new ZipException("Invalid central directory");
+                }
+            } catch (IndexOutOfBoundsException e) {
+                ZipException zipException = new ZipException("Truncated end of central directory");
+                zipException.initCause(e);
+                throw zipException;
+            }
+        }
+
+        protected static int findEnd(ByteBuffer buffer) throws ZipException {
+            int limit = Math.max(0, buffer.limit() - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+
+            for (int offset = buffer.limit() - END_HEADER_SIZE; offset >= limit; offset--) {
+                if (buffer.getInt(offset) == END_SIGNATURE) {
+                    return offset;
+                }
+            }
+
+            throw new ZipException("End of central directory not found");
+        }
+    }
+}
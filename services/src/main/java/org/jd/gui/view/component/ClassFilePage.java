@@ -9,91 +9,179 @@ package org.jd.gui.view.component;
 
 import org.fife.ui.rsyntaxtextarea.DocumentRange;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
-import org.jd.gui.util.MethodPatcher;
+import org.jd.gui.util.concurrent.ComputePool;
 import org.jd.gui.util.decompiler.ContainerLoader;
+import org.jd.gui.util.decompiler.FallbackDecompiler;
 import org.jd.gui.util.decompiler.GuiPreferences;
-import org.jd.gui.util.loader.LoaderUtils;
 import org.jd.gui.util.parser.jdt.core.manipulation.RemoveUnnecessaryCasts;
 
-import com.heliosdecompiler.transformerapi.StandardTransformers;
-import com.heliosdecompiler.transformerapi.common.Loader;
-
 import java.awt.Color;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
+import javax.swing.SwingUtilities;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
 
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static jd.core.preferences.Preferences.REALIGN_LINE_NUMBERS;
 import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
 import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
 
-import jd.core.ClassUtil;
 import jd.core.DecompilationResult;
 
 public class ClassFilePage extends TypePage {
 
     private static final String INTERNAL_ERROR = "// INTERNAL ERROR //";
+    private static final String DECOMPILING = "// Decompiling... //";
 
     private static final long serialVersionUID = 1L;
 
     private int maximumLineNumber = -1;
 
+    // Fields below are accessed from the event dispatch thread only
+    private int generation;
+    private transient Future<?> decompilation;
+    private transient Runnable cancelledDecompilation;
+    private final transient List<Runnable> pendingActions = new ArrayList<>();
+
     public ClassFilePage(API api, Container.Entry entry) {
         super(api, entry);
         Map<String, String> preferences = api.getPreferences();
         // Init view
         setErrorForeground(Color.decode(preferences.get(GuiPreferences.ERROR_BACKGROUND_COLOR)));
         // Display source
-        decompile(preferences);
+        setText(DECOMPILING);
+        decompileInBackground(preferences, () -> {});
     }
 
-    public void decompile(Map<String, String> preferences) {
-        
-        boolean realignmentLineNumbers = "true".equals(preferences.get(REALIGN_LINE_NUMBERS)) || "true".equals(preferences.get("StretchLines"));
+    /**
+     * Decompile in a background thread, then display the source in a single update of the page, and run the callback.
+     * <br>
+     * The result of a previous request is discarded. A request is cancelled when the page is removed, and submitted
+     * again if the page is added back.
+     */
+    public void decompileInBackground(Map<String, String> preferences, Runnable callback) {
+        cancelDecompilation();
+        setShowMisalignment(isRealignmentLineNumbers(preferences));
+
+        int currentGeneration = ++generation;
+        Map<String, String> snapshot = new HashMap<>(preferences);
+
+        cancelledDecompilation = () -> decompileInBackground(snapshot, callback);
+        // Decompilations run outside the event dispatch thread
+        decompilation = ComputePool.getExecutor().submit(() -> {
+            Decompilation result = decompileSource(snapshot);
+            SwingUtilities.invokeLater(() -> {
+                if (currentGeneration == generation) {
+                    decompilation = null;
+                    cancelledDecompilation = null;
+                    display(result);
+                    callback.run();
+                    runPendingActions();
+                }
+            });
+        });
+    }
+
+    /**
+     * Running decompilations are not interrupted: the readers of containers may share channels. Their results are
+     * discarded.
+     */
+    protected void cancelDecompilation() {
+        if (decompilation != null) {
+            decompilation.cancel(false);
+            decompilation = null;
+            generation++;
+        }
+    }
+
+    protected boolean isDecompiling() {
+        return decompilation != null;
+    }
+
+    protected void runPendingActions() {
+        List<Runnable> actions = new ArrayList<>(pendingActions);
+        pendingActions.clear();
+        actions.forEach(Runnable::run);
+    }
+
+    private static boolean isRealignmentLineNumbers(Map<String, String> preferences) {
+        return "true".equals(preferences.get(REALIGN_LINE_NUMBERS)) || "true".equals(preferences.get("StretchLines"));
+    }
+
+    /**
+     * Decompile and parse the source without modifying the page: may be called from any thread.
+     */
+    protected Decompilation decompileSource(Map<String, String> preferences) {
         boolean removeUnnecessaryCasts = "true".equals(preferences.get(REMOVE_UNNECESSARY_CASTS));
 
-        setShowMisalignment(realignmentLineNumbers);
-        
         // Init loader
         ContainerLoader loader = new ContainerLoader(entry);
         try {
-            // Clear ...
-            clearLineNumbers();
-            listener.clearData();
-
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-            
             String engineName = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            DecompilationResult decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
-            if (decompilationResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+            FallbackDecompiler.Result fallbackResult = FallbackDecompiler.getInstance().decompile(loader, entry, preferences, engineName);
+            DecompilationResult decompilationResult = fallbackResult.getDecompilationResult();
+            if (fallbackResult.isTimedOut()) {
+                // Output of the fallback engine after a comment, or stub
+                return new Decompilation(parse(fallbackResult.getOutput()), null);
+            }
+            if (fallbackResult.isPatched()) {
                 /*
                  * Sometimes JD-Core v0 decompiles with success where JD-Core v1 fails. 
                  * In this case, patch JD-Core v0 method into JD-Core v1 method.
                  * It will appear with comment 'Patched from JD-Core V0'
                  */
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                String patchedCode = MethodPatcher.patchCode(decompilationResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry);
+                String patchedCode = fallbackResult.getOutput();
                 if (removeUnnecessaryCasts) {
                     patchedCode = new RemoveUnnecessaryCasts(entry).process(patchedCode);
                 }
-                parseAndSetText(patchedCode);
-            } else {
+                return new Decompilation(parse(patchedCode), null);
+            }
+            if (decompilationResult.getHyperlinks().isEmpty() || removeUnnecessaryCasts) {
                 /*
-                 * Use the hyperlinks of the decompiler as preferred way providing links as it often provides more of them
+                 * if hyperlinks are empty, it means the links are not supported by the decompiler, so the JAVA parser is called to 
+                 * enable the links. Same thing in case 'Remove casts' options is activated, as it ruins the hyperlinks.
+                 * Avoid shifting positions for all of them by re-parsing the source code. 
                  */
+                String decompiledOutput = decompilationResult.getDecompiledOutput();
+                if (removeUnnecessaryCasts) {
+                    // Cached results are shared, the output is not modified in place
+                    decompiledOutput = new RemoveUnnecessaryCasts(entry).process(decompiledOutput);
+                }
+                return new Decompilation(parse(decompiledOutput), null);
+            }
+            /*
+             * Use the hyperlinks of the decompiler as preferred way providing links as it often provides more of them
+             */
+            return new Decompilation(null, decompilationResult);
+        } catch (Exception t) {
+            assert ExceptionUtil.printStackTrace(t);
+            return new Decompilation(null, null);
+        }
+    }
+
+    protected void display(Decompilation decompiled) {
+        try {
+            // Clear ...
+            clearLineNumbers();
+            listener.clearData();
+
+            if (decompiled.parsedText != null) {
+                setParsedText(decompiled.parsedText);
+            } else if (decompiled.result != null) {
+                DecompilationResult decompilationResult = decompiled.result;
                 listener.getStrings().addAll(decompilationResult.getStrings());
                 listener.getTypeDeclarations().putAll(decompilationResult.getTypeDeclarations());
                 listener.getDeclarations().putAll(decompilationResult.getDeclarations());
@@ -107,19 +195,9 @@ public class ClassFilePage extends TypePage {
                     Integer sourceLineNumber = entry.getValue();
                     setLineNumber(textAreaLineNumber, sourceLineNumber);
                 }
-                if (hyperlinks.isEmpty() || removeUnnecessaryCasts) {
-                    /*
-                     * if hyperlinks are empty, it means the links are not supported by the decompiler, so the JAVA parser is called to 
-                     * enable the links. Same thing in case 'Remove casts' options is activated, as it ruins the hyperlinks.
-                     * Avoid shifting positions for all of them by re-parsing the source code. 
-                     */
-                    if (removeUnnecessaryCasts) {
-                        decompilationResult.setDecompiledOutput(new RemoveUnnecessaryCasts(entry).process(decompilationResult.getDecompiledOutput()));
-                    }
-                    parseAndSetText(decompilationResult.getDecompiledOutput());
-                } else {
-                    setText(decompilationResult.getDecompiledOutput());
-                }
+                setText(decompilationResult.getDecompiledOutput());
+            } else {
+                setText(INTERNAL_ERROR);
             }
         } catch (Exception t) {
             assert ExceptionUtil.printStackTrace(t);
@@ -129,6 +207,21 @@ public class ClassFilePage extends TypePage {
         }
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (cancelledDecompilation != null && decompilation == null) {
+            cancelledDecompilation.run();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        // Closed tab, or original source loaded
+        cancelDecompilation();
+        super.removeNotify();
+    }
+
     @Override
     public String getSyntaxStyle() {
         return SyntaxConstants.SYNTAX_STYLE_JAVA;
@@ -145,7 +238,7 @@ public class ClassFilePage extends TypePage {
     @Override
     public void save(API api, OutputStream os) {
 
-        DecompilationResult decompilationResult = new DecompilationResult();
+        String decompiledOutput;
         
         // Init loader
         ContainerLoader loader = new ContainerLoader(entry);
@@ -153,22 +246,14 @@ public class ClassFilePage extends TypePage {
             // Init preferences
             Map<String, String> preferences = api.getPreferences();
 
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-
             String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
-            if (decompilationResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                decompilationResult.setDecompiledOutput(MethodPatcher.patchCode(decompilationResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry));
-            }
+            decompiledOutput = FallbackDecompiler.getInstance().decompile(loader, entry, preferences, decompileEngine).getOutput();
         } catch (Exception t) {
             assert ExceptionUtil.printStackTrace(t);
-            decompilationResult.setDecompiledOutput(INTERNAL_ERROR);
+            decompiledOutput = INTERNAL_ERROR;
         }
         try (PrintStream ps = new PrintStream(os, true, StandardCharsets.UTF_8.name())) {
-            ps.print(decompilationResult.getDecompiledOutput());
+            ps.print(decompiledOutput);
         } catch (IOException e) {
             assert ExceptionUtil.printStackTrace(e);
         }
@@ -182,6 +267,10 @@ public class ClassFilePage extends TypePage {
 
     @Override
     public void goToLineNumber(int lineNumber) {
+        if (isDecompiling()) {
+            pendingActions.add(() -> goToLineNumber(lineNumber));
+            return;
+        }
         int textAreaLineNumber = getTextAreaLineNumber(lineNumber);
         if (textAreaLineNumber > 0) {
             try {
@@ -199,17 +288,42 @@ public class ClassFilePage extends TypePage {
         return lineNumber <= maximumLineNumber;
     }
 
+    // --- UriOpenable --- //
+    @Override
+    public boolean openUri(URI uri) {
+        if (isDecompiling()) {
+            // Declarations are not known yet
+            pendingActions.add(() -> super.openUri(uri));
+            return true;
+        }
+        return super.openUri(uri);
+    }
+
     // --- PreferencesChangeListener --- //
     @Override
     public void preferencesChanged(Map<String, String> preferences) {
+        super.preferencesChanged(preferences);
+        decompileInBackground(preferences, () -> indexesChanged(collectionOfFutureIndexes));
+    }
+
+    @Override
+    protected void setText(String text) {
+        // Keep the view position when the source is replaced
         DefaultCaret caret = (DefaultCaret) textArea.getCaret();
         int updatePolicy = caret.getUpdatePolicy();
 
         caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
-        decompile(preferences);
+        super.setText(text);
         caret.setUpdatePolicy(updatePolicy);
+    }
 
-        super.preferencesChanged(preferences);
-        indexesChanged(collectionOfFutureIndexes);
+    protected static class Decompilation {
+        private final ParsedText parsedText;
+        private final DecompilationResult result; // null if parsed, or on error
+
+        public Decompilation(ParsedText parsedText, DecompilationResult result) {
+            this.parsedText = parsedText;
+            this.result = result;
+        }
     }
 }
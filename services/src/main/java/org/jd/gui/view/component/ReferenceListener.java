@@ -412,6 +412,18 @@ public class ReferenceListener extends AbstractJavaListener {
         hyperlinks.clear();
     }
 
+    /**
+     * Replace the data of this listener by the data collected by another listener.
+     */
+    public void copyData(ReferenceListener other) {
+        clearData();
+        strings.addAll(other.getStrings());
+        references.addAll(other.getReferences());
+        hyperlinks.putAll(other.getHyperlinks());
+        declarationListener.getDeclarations().putAll(other.getDeclarations());
+        declarationListener.getTypeDeclarations().putAll(other.getTypeDeclarations());
+    }
+
     public void addStringData(StringData stringData) {
         strings.add(stringData);
     }
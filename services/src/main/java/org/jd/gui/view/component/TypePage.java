@@ -30,6 +30,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -63,7 +64,7 @@ public abstract class TypePage extends CustomLineNumbersPage
         this.entry = entry;
         this.listener = new ReferenceListener(entry);
         this.listener.setHyperlinks(hyperlinks);
-        this.textArea.addParser(new RSyntaxASTParser(entry, api));
+        this.textArea.addParser(new RSyntaxASTParser(entry, api, textArea));
     }
 
     @Override
@@ -512,26 +513,47 @@ public abstract class TypePage extends CustomLineNumbersPage
     }
 
     public void parseAndSetText(String text) {
-        listener.clearData();
+        setParsedText(parse(text));
+    }
+
+    /**
+     * Parse a text without modifying the page: may be called from any thread.
+     */
+    protected ParsedText parse(String text) {
+        ReferenceListener parsedListener = new ReferenceListener(entry);
         // Parse
         char[] source = text.toCharArray();
         URI jarURI = entry.getContainer().getRoot().getParent().getUri();
         String unitName = entry.getPath();
         // 1st pass for declarations
         ASTParser astParser = ASTParserFactory.getInstance().newASTParser(source, unitName, jarURI);
-        astParser.createAST(null).accept(listener.getDeclarationListener());    
-        listener.init();
+        astParser.createAST(null).accept(parsedListener.getDeclarationListener());
+        parsedListener.init();
         // 2nd pass for references
         ASTParser astParserWithBindings = ASTParserFactory.getInstanceWithBindings().newASTParser(source, unitName, jarURI);
         ASTNode astNode = astParserWithBindings.createAST(null);
-        astNode.accept(listener);
+        astNode.accept(parsedListener);
+        return new ParsedText(text, parsedListener, getMisalignedLineNumbers(astNode, text));
+    }
+
+    /**
+     * Display a parsed text, in a single update of the page.
+     */
+    protected void setParsedText(ParsedText parsedText) {
+        listener.copyData(parsedText.listener);
         // Display
-        setText(text);
+        setText(parsedText.text);
         initLineNumbers();
-        setMisalignedLineNumbers(astNode, text);
+        for (Map.Entry<Integer, Integer> lineNumber : parsedText.misalignedLineNumbers.entrySet()) {
+            setLineNumber(lineNumber.getKey(), lineNumber.getValue());
+        }
     }
 
-    private void setMisalignedLineNumbers(ASTNode astNode, String text) {
+    /**
+     * @return the original line numbers of the text area lines, for the lines where they differ
+     */
+    private static Map<Integer, Integer> getMisalignedLineNumbers(ASTNode astNode, String text) {
+        Map<Integer, Integer> lineNumbers = new HashMap<>();
         if (astNode instanceof CompilationUnit) {
             CompilationUnit cu = (CompilationUnit) astNode;
             @SuppressWarnings("unchecked")
@@ -550,11 +572,24 @@ public abstract class TypePage extends CustomLineNumbersPage
                         int originalLineNumber = Integer.parseInt(lineNumberText);
                         int textAreaLineNumber = startLineNumber;
                         if (originalLineNumber != textAreaLineNumber) {
-                            setLineNumber(textAreaLineNumber, originalLineNumber);
+                            lineNumbers.put(textAreaLineNumber, originalLineNumber);
                         }
                     }
                 }
             }
         }
+        return lineNumbers;
+    }
+
+    protected static class ParsedText {
+        private final String text;
+        private final ReferenceListener listener;
+        private final Map<Integer, Integer> misalignedLineNumbers;
+
+        public ParsedText(String text, ReferenceListener listener, Map<Integer, Integer> misalignedLineNumbers) {
+            this.text = text;
+            this.listener = listener;
+            this.misalignedLineNumbers = misalignedLineNumbers;
+        }
     }
 }
@@ -14,10 +14,10 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container.Entry;
 import org.jd.gui.util.decompiler.ContainerLoader;
+import org.jd.gui.util.decompiler.DecompilationCache;
 import org.jd.gui.util.loader.LoaderUtils;
 import org.jd.gui.util.parser.jdt.ASTParserFactory;
 
-import com.heliosdecompiler.transformerapi.StandardTransformers;
 import com.heliosdecompiler.transformerapi.common.Loader;
 
 import java.net.URI;
@@ -100,7 +100,7 @@ public class ClassFileTreeNodeBean extends TreeNodeBean {
         Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
         DecompilationResult decompilationResult;
         try {
-            decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
+            decompilationResult = DecompilationCache.getInstance().decompile(loader, apiLoader, entryInternalName, preferences, engineName);
         } catch (Exception e) {
             assert ExceptionUtil.printStackTrace(e);
             return new ClassFileTreeNodeState(true, false);
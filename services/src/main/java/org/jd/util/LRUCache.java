@@ -1,60 +0,0 @@
-/*******************************************************************************
- * Copyright (C) 2022 GPLv3
- *
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with this program.  If not, see <http://www.gnu.org/licenses/>.
- ******************************************************************************/
-package org.jd.util;
-
-import java.util.LinkedHashMap;
-import java.util.Map;
-
-public class LRUCache<K, V> extends LinkedHashMap<K, V> {
-
-    private static final long serialVersionUID = 1L;
-
-    private static final int DEFAULT_MAX_ENTRIES = 100;
-
-    private final int maxEntries;
-
-    public LRUCache(int maxEntries) {
-        super(maxEntries * 3 / 2, 0.7F, true);
-        this.maxEntries = maxEntries;
-    }
-
-    public LRUCache() {
-        this(DEFAULT_MAX_ENTRIES);
-    }
-
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-        return size() > maxEntries;
-    }
-
-    @Override
-    public int hashCode() {
-        return 31 * super.hashCode() + maxEntries;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (!super.equals(obj) || getClass() != obj.getClass()) {
-            return false;
-        }
-        LRUCache<?, ?> other = (LRUCache<?, ?>) obj;
-        return maxEntries == other.maxEntries;
-    }
-}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache shared by several threads, bounded by the total weight of its values, least recently used entries are evicted
+ * first. The weight of a value is estimated by the weigher of the cache, like the size of a map, once, when the value
+ * is put. Null values are cached, and weigh 1.
+ * <br>
+ * The maximum weight of each cache is read from the preference named at construction by
+ * {@link #applyPreferences(Map)}, in a unit of weight, like MB for a cache weighing bytes. A maximum weight of 0
+ * disables the cache.
+ */
+public class WeightedCache<K, V> {
+    // Caches to configure, and the last preferences, applied to the caches created later
+    private static final Set<WeightedCache<?, ?>> CACHES = Collections.newSetFromMap(new WeakHashMap<>());
+    private static Map<String, String> lastPreferences = Collections.emptyMap();
+
+    private final String preferenceName;
+    private final long defaultMaxWeight;
+    private final long preferenceUnit;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(64, 0.75F, true);
+    private volatile long maxWeight;
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param preferenceName   the name of the preference of the maximum weight
+     * @param defaultMaxWeight the maximum weight if the preference is not set
+     * @param preferenceUnit   the weight of a unit of the preference
+     * @param weigher          the estimation of the weight of a value
+     */
+    public WeightedCache(String preferenceName, long defaultMaxWeight, long preferenceUnit, ToLongFunction<V> weigher) {
+        this.preferenceName = preferenceName;
+        this.defaultMaxWeight = defaultMaxWeight;
+        this.preferenceUnit = preferenceUnit;
+        this.weigher = weigher;
+        this.maxWeight = defaultMaxWeight;
+
+        synchronized (CACHES) {
+            CACHES.add(this);
+            applyPreference(lastPreferences);
+        }
+    }
+
+    public WeightedCache(String preferenceName, long defaultMaxWeight, ToLongFunction<V> weigher) {
+        this(preferenceName, defaultMaxWeight, 1, weigher);
+    }
+
+    /**
+     * Cache bounded by its number of entries.
+     */
+    public WeightedCache(String preferenceName, long defaultMaxEntries) {
+        this(preferenceName, defaultMaxEntries, value -> 1);
+    }
+
+    /**
+     * Read the maximum weight of all the caches from the preferences.
+     */
+    public static void applyPreferences(Map<String, String> preferences) {
+        synchronized (CACHES) {
+            lastPreferences = preferences;
+
+            for (WeightedCache<?, ?> cache : CACHES) {
+                cache.applyPreference(preferences);
+            }
+        }
+    }
+
+    protected void applyPreference(Map<String, String> preferences) {
+        String value = preferences.get(preferenceName);
+
+        try {
+            setMaxWeight(value == null ? defaultMaxWeight : Long.parseLong(value) * preferenceUnit);
+        } catch (NumberFormatException e) {
+            setMaxWeight(defaultMaxWeight);
+        }
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * @return the cached value, null if the key is not cached
+     */
+    public synchronized V get(K key) {
+        Node<V> node = map.get(key);
+
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return node.value;
+    }
+
+    /**
+     * Return the cached value, or compute and cache it. The value is computed out of the lock of the cache: it may be
+     * computed by several threads at once, the last one is cached.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        synchronized (this) {
+            Node<V> node = map.get(key);
+
+            if (node != null) {
+                hitCount++;
+                return node.value;
+            }
+
+            missCount++;
+        }
+
+        V value = function.apply(key);
+
+        put(key, value);
+
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        Node<V> previous = map.remove(key);
+
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+
+        long valueWeight = value == null ? 1 : Math.max(1, weigher.applyAsLong(value));
+
+        // A value heavier than the cache would evict all the others
+        if (valueWeight <= maxWeight) {
+            map.put(key, new Node<>(value, valueWeight));
+            weight += valueWeight;
+            evict();
+        }
+    }
+
+    public synchronized void remove(K key) {
+        Node<V> node = map.remove(key);
+
+        if (node != null) {
+            weight -= node.weight;
+        }
+    }
+
+    /**
+     * Remove the entries whose keys match, like the entries of a closed container.
+     */
+    public synchronized void removeIf(Predicate<? super K> keyPredicate) {
+        Iterator<Map.Entry<K, Node<V>>> iterator = map.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<K, Node<V>> mapEntry = iterator.next();
+
+            if (keyPredicate.test(mapEntry.getKey())) {
+                weight -= mapEntry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    protected void evict() {
+        Iterator<Node<V>> iterator = map.values().iterator();
+
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    public String getPreferenceName() { return preferenceName; }
+    public synchronized long getWeight() { return weight; }
+    public long getMaxWeight() { return maxWeight; }
+    public synchronized int getEntryCount() { return map.size(); }
+    public synchronized long getHitCount() { return hitCount; }
+    public synchronized long getMissCount() { return missCount; }
+    public synchronized long getEvictionCount() { return evictionCount; }
+
+    /**
+     * @return the ratio of the lookups finding a cached value, 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        long lookupCount = hitCount + missCount;
+        return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WeightedCache [preference=" + preferenceName + ", entries=" + map.size() + ", weight=" + weight + ", maxWeight=" + maxWeight
+                + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+    }
+
+    protected static class Node<V> {
+        private final V value;
+        private final long weight;
+
+        public Node(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
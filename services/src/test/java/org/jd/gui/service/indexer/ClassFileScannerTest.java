@@ -0,0 +1,74 @@
+package org.jd.gui.service.indexer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ClassFileScannerTest {
+
+    private static final List<byte[]> CLASS_FILES = new ArrayList<>();
+
+    @BeforeAll
+    public static void loadClassFiles() throws IOException {
+        Path root = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("modules", "java.base");
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(".class") && !fileName.equals("module-info.class")) {
+                    CLASS_FILES.add(Files.readAllBytes(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testScanMatchesASM() throws IOException {
+        assertFalse(CLASS_FILES.isEmpty());
+
+        ClassFileIndexerProvider indexer = new ClassFileIndexerProvider();
+
+        for (byte[] classFile : CLASS_FILES) {
+            indexer.clearSets();
+            String expectedTypeName = indexer.scanWithASM(classFile, 0, classFile.length);
+            List<Set<String>> expected = copySets(indexer);
+            String expectedOuterTypeName = indexer.outerTypeName;
+
+            indexer.clearSets();
+            indexer.classFileScanner.read(new ByteArrayInputStream(classFile));
+            String typeName = indexer.classFileScanner.scan();
+
+            assertEquals(expectedTypeName, typeName);
+            assertEquals(expected, copySets(indexer), typeName);
+            assertEquals(expectedOuterTypeName, indexer.outerTypeName, typeName);
+        }
+    }
+
+    private static List<Set<String>> copySets(ClassFileIndexerProvider indexer) {
+        return List.of(
+            new HashSet<>(indexer.typeDeclarationSet),
+            new HashSet<>(indexer.constructorDeclarationSet),
+            new HashSet<>(indexer.methodDeclarationSet),
+            new HashSet<>(indexer.fieldDeclarationSet),
+            new HashSet<>(indexer.typeReferenceSet),
+            new HashSet<>(indexer.constructorReferenceSet),
+            new HashSet<>(indexer.methodReferenceSet),
+            new HashSet<>(indexer.fieldReferenceSet),
+            new HashSet<>(indexer.stringSet),
+            new HashSet<>(indexer.superTypeNameSet));
+    }
+}
@@ -0,0 +1,204 @@
+package org.jd.gui.service.sourcesaver;
+
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelSourceSaverTest {
+    private static final int DIRECTORY_COUNT = 5;
+    private static final int FILE_COUNT = 20;
+
+    private static final DirectorySourceSaverProvider DIRECTORY_SAVER = new DirectorySourceSaverProvider();
+    private static final FileSourceSaverProvider FILE_SAVER = new FileSourceSaverProvider();
+    private static final ClassFileSourceSaverProvider CLASS_FILE_SAVER = new ClassFileSourceSaverProvider() {
+        @Override
+        public String decompile(API api, Container.Entry entry) {
+            throw new IllegalStateException("decompiler failure");
+        }
+    };
+    private static final String BROKEN_FILE_NAME = "Broken.txt";
+    private static final String BROKEN_CLASS_NAME = "Broken.class";
+    // Only the source savers are used by the export
+    private static final API API = (API) Proxy.newProxyInstance(API.class.getClassLoader(), new Class<?>[] { API.class }, (proxy, method, args) -> {
+        if ("getSourceSaver".equals(method.getName())) {
+            Container.Entry entry = (Container.Entry) args[0];
+            if (entry.isDirectory()) {
+                return DIRECTORY_SAVER;
+            }
+            return entry.getPath().endsWith(".class") ? CLASS_FILE_SAVER : FILE_SAVER;
+        }
+        throw new UnsupportedOperationException(method.getName());
+    });
+
+    @TempDir
+    Path tmpDir;
+
+    private final AtomicInteger readCount = new AtomicInteger();
+    private TestEntry root;
+    private List<String> expectedNames;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // Progress is relative to the size of the archive
+        File archive = Files.write(tmpDir.resolve("test.jar"), new byte[1 << 16]).toFile();
+        TestEntry archiveEntry = new TestEntry(null, null, archive.getPath(), true, archive.toURI());
+        Container container = new Container() {
+            @Override
+            public String getType() { return "generic"; }
+            @Override
+            public Container.Entry getRoot() { return root; }
+        };
+
+        root = new TestEntry(container, archiveEntry, "", true, null);
+        expectedNames = new ArrayList<>();
+
+        for (int i = 0; i < DIRECTORY_COUNT; i++) {
+            TestEntry directory = root.add(new TestEntry(container, root, "p" + i, true, null));
+
+            expectedNames.add(directory.getPath() + '/');
+
+            for (int j = 0; j < FILE_COUNT; j++) {
+                TestEntry file = directory.add(new TestEntry(container, directory, directory.getPath() + "/File" + j + ".txt", false, null));
+
+                expectedNames.add(file.getPath());
+            }
+        }
+
+        TestEntry directory = (TestEntry) root.getChildren().values().iterator().next();
+        TestEntry brokenFile = directory.add(new TestEntry(container, directory, directory.getPath() + '/' + BROKEN_FILE_NAME, false, null));
+        TestEntry brokenClass = directory.add(new TestEntry(container, directory, directory.getPath() + '/' + BROKEN_CLASS_NAME, false, null));
+
+        expectedNames.add(FILE_COUNT + 1, brokenFile.getPath());
+        expectedNames.add(FILE_COUNT + 2, CLASS_FILE_SAVER.getSourcePath(brokenClass));
+    }
+
+    @Test
+    public void testFailures() throws IOException {
+        List<String> failedClasses = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        ParallelSourceSaver saver = new ParallelSourceSaver(API, 4, () -> 0, p -> {}, () -> false);
+
+        saver.setListener((entry, time, failed, timedOut) -> {
+            if (failed) {
+                synchronized (failedClasses) {
+                    failedClasses.add(entry.getPath());
+                }
+            }
+        });
+        saver.save(root, DIRECTORY_SAVER, (name, bytes) -> names.add(name));
+
+        // Failed files are exported as error comments, not left out
+        assertEquals(expectedNames, names);
+        assertEquals(Collections.singletonList("p0/" + BROKEN_CLASS_NAME), failedClasses);
+    }
+
+    @Test
+    public void testArchiveOrder() throws IOException {
+        for (int parallelism : new int[] { 1, 2, 4, 8 }) {
+            List<String> names = new ArrayList<>();
+            int[] writtenFileCount = { 0 };
+            int[] maxPendingCount = { 0 };
+            double[] progress = { 0 };
+            ParallelSourceSaver saver = new ParallelSourceSaver(API, parallelism, () -> progress[0], p -> progress[0] = p, () -> false);
+
+            readCount.set(0);
+            saver.save(root, DIRECTORY_SAVER, (name, bytes) -> {
+                if (bytes != null) {
+                    assertArrayEquals(name.contains("Broken") ? ClassFileSourceSaverProvider.INTERNAL_ERROR.getBytes(StandardCharsets.UTF_8) : content(name), bytes, name);
+                    // Files read by the workers, not yet written
+                    maxPendingCount[0] = Math.max(maxPendingCount[0], readCount.get() - ++writtenFileCount[0]);
+                }
+                names.add(name);
+            });
+
+            assertEquals(expectedNames, names, "parallelism " + parallelism);
+            // Bounded queue, the task submitted by the waiting producer and the one being written
+            assertTrue(maxPendingCount[0] <= parallelism * ParallelSourceSaver.QUEUE_SIZE_PER_THREAD + 2, "parallelism " + parallelism + ": " + maxPendingCount[0]);
+        }
+    }
+
+    protected static byte[] content(String path) {
+        return ("content of " + path).getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected class TestEntry implements Container.Entry {
+        private final Container container;
+        private final Container.Entry parent;
+        private final String path;
+        private final boolean directory;
+        private final URI uri;
+        private final Map<Container.EntryPath, Container.Entry> children = new LinkedHashMap<>();
+
+        public TestEntry(Container container, Container.Entry parent, String path, boolean directory, URI uri) {
+            this.container = container;
+            this.parent = parent;
+            this.path = path;
+            this.directory = directory;
+            this.uri = uri;
+        }
+
+        public TestEntry add(TestEntry child) {
+            children.put(child, child);
+            return child;
+        }
+
+        @Override
+        public Container getContainer() { return container; }
+        @Override
+        public Container.Entry getParent() { return parent; }
+        @Override
+        public URI getUri() { return uri; }
+        @Override
+        public String getPath() { return path; }
+        @Override
+        public boolean isDirectory() { return directory; }
+        @Override
+        public long length() { return content(path).length; }
+        @Override
+        public long compressedLength() { return length(); }
+        @Override
+        public Map<Container.EntryPath, Container.Entry> getChildren() { return Collections.unmodifiableMap(children); }
+
+        /**
+         * Entries take various times to read, so that the workers complete them out of order.
+         */
+        @Override
+        public InputStream getInputStream() {
+            readCount.incrementAndGet();
+
+            if (path.endsWith(BROKEN_FILE_NAME)) {
+                throw new IllegalStateException("unreadable entry");
+            }
+
+            try {
+                Thread.sleep((path.hashCode() & 0x7FFFFFFF) % 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new ByteArrayInputStream(content(path));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.jd.gui.util.concurrent;
+
+import org.jd.gui.util.concurrent.QueryScheduler.Query;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuerySchedulerTest {
+
+    @Test
+    public void testSupersededQueriesAreSkipped() {
+        List<Runnable> queue = new ArrayList<>();
+        List<String> executed = new ArrayList<>();
+        QueryScheduler scheduler = new QueryScheduler(queue::add);
+
+        scheduler.execute(query -> executed.add("a"));
+        scheduler.execute(query -> executed.add("ab"));
+        scheduler.execute(query -> executed.add("abc"));
+        queue.forEach(Runnable::run);
+
+        assertEquals(List.of("abc"), executed);
+    }
+
+    @Test
+    public void testRunningQueryIsCancelled() {
+        List<String> executed = new ArrayList<>();
+        QueryScheduler scheduler = new QueryScheduler(Runnable::run);
+
+        scheduler.execute(query -> {
+            executed.add("a");
+            // Superseded while running
+            scheduler.cancel();
+            query.checkCancelled();
+            executed.add("a, not cancelled");
+        });
+
+        assertEquals(List.of("a"), executed);
+    }
+
+    @Test
+    public void testIsCancelled() {
+        QueryScheduler scheduler = new QueryScheduler(Runnable::run);
+        Query first = scheduler.newQuery();
+
+        assertFalse(first.isCancelled());
+
+        Query second = scheduler.newQuery();
+
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+        assertThrows(CancellationException.class, first::checkCancelled);
+
+        scheduler.cancel();
+
+        assertTrue(second.isCancelled());
+    }
+}
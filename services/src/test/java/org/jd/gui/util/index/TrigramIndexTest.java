@@ -0,0 +1,64 @@
+package org.jd.gui.util.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void testGetCandidates() {
+        TrigramIndex index = new TrigramIndex(List.of("connection timeout", "timeout", "timer", "outtime", "read", "socketTimeout"));
+
+        assertEquals(Set.of("connection timeout", "timeout"), new HashSet<>(index.getCandidates("*timeout*")));
+        assertEquals(Set.of("connection timeout", "timeout", "outtime"), new HashSet<>(index.getCandidates("*tim*out")));
+        assertEquals(Set.of("socketTimeout"), new HashSet<>(index.getCandidates("soc?etTim")));
+        assertTrue(index.getCandidates("*xyz*").isEmpty());
+        assertNull(index.getCandidates("*ti*me*"));
+        assertNull(index.getCandidates("re"));
+    }
+
+    @Test
+    public void testCandidatesContainMatches() {
+        Random random = new Random(0);
+        List<String> keys = new ArrayList<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(20); j >= 0; j--) {
+                sb.append((char) ('a' + random.nextInt(6)));
+            }
+            keys.add(sb.toString());
+        }
+
+        TrigramIndex index = new TrigramIndex(new HashSet<>(keys));
+
+        for (String pattern : List.of("abc", "*abc*", "*abc?de*", "a*bcd", "*fff", "?bad*cab*")) {
+            Pattern regExp = Pattern.compile(pattern.replace("?", ".").replace("*", ".*") + ".*");
+            Set<String> expected = new HashSet<>();
+            Set<String> matched = new HashSet<>();
+
+            for (String key : keys) {
+                if (regExp.matcher(key).matches()) {
+                    expected.add(key);
+                }
+            }
+            for (String key : index.getCandidates(pattern)) {
+                if (regExp.matcher(key).matches()) {
+                    matched.add(key);
+                }
+            }
+
+            assertEquals(expected, matched, pattern);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.jd.gui.util.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TypeNameIndexTest {
+    private static final TypeNameIndex INDEX = new TypeNameIndex(List.of(
+            "javax/servlet/http/HttpServletRequest",
+            "javax/servlet/http/HttpServletRequestWrapper",
+            "javax/servlet/http/HttpServletResponse",
+            "javax/servlet/http/HttpSession",
+            "java/lang/String",
+            "java/lang/StringBuilder",
+            "java/lang/Character$Subset",
+            "java/util/Map$Entry",
+            "java/net/URI",
+            "java/net/URLClassLoader",
+            "a/stream",
+            "Strange"));
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(TypeNameIndex.isSupported("str"));
+        assertTrue(TypeNameIndex.isSupported("HSR"));
+        assertTrue(TypeNameIndex.isSupported("HSeR"));
+        assertTrue(TypeNameIndex.isSupported("Base64"));
+
+        assertFalse(TypeNameIndex.isSupported(""));
+        assertFalse(TypeNameIndex.isSupported("*Map"));
+        assertFalse(TypeNameIndex.isSupported("Str?ng"));
+        assertFalse(TypeNameIndex.isSupported("strB"));
+    }
+
+    @Test
+    public void testMatchPrefix() {
+        assertEquals(List.of("Strange", "a/stream", "java/lang/String", "java/lang/StringBuilder"), match("str"));
+        assertEquals(List.of("Strange", "a/stream", "java/lang/String", "java/lang/StringBuilder", "java/lang/Character$Subset"), match("s"));
+        assertEquals(List.of("java/util/Map$Entry"), match("entry"));
+        assertEquals(List.of(), match("stringx"));
+    }
+
+    @Test
+    public void testMatchCamelCase() {
+        assertEquals(List.of("javax/servlet/http/HttpServletRequest", "javax/servlet/http/HttpServletResponse", "javax/servlet/http/HttpServletRequestWrapper"), match("HSR"));
+        assertEquals(List.of("javax/servlet/http/HttpServletRequest", "javax/servlet/http/HttpServletRequestWrapper"), match("HSReq"));
+        assertEquals(List.of("javax/servlet/http/HttpServletRequestWrapper"), match("HSRW"));
+        assertEquals(List.of("java/lang/StringBuilder"), match("SB"));
+        assertEquals(List.of("Strange", "java/lang/String", "java/lang/StringBuilder"), match("Str"));
+        assertEquals(List.of(), match("HRS"));
+    }
+
+    @Test
+    public void testMatchCamelCaseIgnoreCase() {
+        // Lower case characters match both cases
+        assertEquals(List.of("java/net/URLClassLoader"), match("Url"));
+        assertEquals(List.of("java/net/URI", "java/net/URLClassLoader"), match("Ur"));
+        assertEquals(List.of("java/net/URLClassLoader"), match("UrlC"));
+        assertEquals(List.of("java/net/URLClassLoader"), match("URLCL"));
+        assertEquals(List.of(), match("UrlS"));
+        // Upper case characters do not
+        assertEquals(List.of(), match("STr"));
+    }
+
+    private static List<String> match(String pattern) {
+        List<String> typeNames = new ArrayList<>();
+        INDEX.match(pattern, typeNames::add);
+        return typeNames;
+    }
+}
@@ -0,0 +1,55 @@
+package org.jd.gui.util.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TypeNameRankerTest {
+
+    @Test
+    public void testMatchCamelCase() {
+        assertTrue(TypeNameRanker.matchCamelCase("SB", "StringBuilder", 0));
+        assertTrue(TypeNameRanker.matchCamelCase("StrB", "StringBuilder", 0));
+        assertTrue(TypeNameRanker.matchCamelCase("StrBu", "java/lang/StringBuilder", 10));
+        assertTrue(TypeNameRanker.matchCamelCase("TZ", "TimeZone", 0));
+        assertTrue(TypeNameRanker.matchCamelCase("CHM", "ConcurrentHashMap", 0));
+        assertTrue(TypeNameRanker.matchCamelCase("CM", "ConcurrentHashMap", 0));
+
+        assertFalse(TypeNameRanker.matchCamelCase("HM", "ConcurrentHashMap", 0));
+        assertFalse(TypeNameRanker.matchCamelCase("SBx", "StringBuilder", 0));
+        assertFalse(TypeNameRanker.matchCamelCase("sb", "StringBuilder", 0));
+        assertFalse(TypeNameRanker.matchCamelCase("SBB", "StringBuilder", 0));
+    }
+
+    @Test
+    public void testRanking() {
+        TypeNameRanker ranker = new TypeNameRanker("Str", 4);
+
+        ranker.add("org/apache/commons/lang3/StringUtils");
+        ranker.add("java/lang/StringBuilder");
+        ranker.add("java/lang/String");
+        ranker.add("com/example/Str");
+        ranker.add("java/io/StreamTokenizer");
+        ranker.add("a/b/c/d/SubTypeRegistry");
+        ranker.add("java/lang/Character$UnicodeBlock$Str");
+
+        assertEquals(7, ranker.getCount());
+        assertEquals(List.of("com/example/Str", "java/lang/Character$UnicodeBlock$Str", "java/lang/String", "java/lang/StringBuilder"), ranker.getTypeNames());
+    }
+
+    @Test
+    public void testRankingOfKindsOfMatch() {
+        TypeNameRanker ranker = new TypeNameRanker("SB", 10);
+
+        ranker.add("java/lang/StringBuilder");
+        ranker.add("x/Sb");
+        ranker.add("java/lang/SBuffer");
+        ranker.add("x/SB");
+
+        assertEquals(List.of("x/SB", "x/Sb", "java/lang/SBuffer", "java/lang/StringBuilder"), ranker.getTypeNames());
+    }
+}
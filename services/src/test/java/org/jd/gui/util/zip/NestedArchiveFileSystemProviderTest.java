@@ -0,0 +1,185 @@
+package org.jd.gui.util.zip;
+
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.GenericContainer;
+import org.jd.gui.service.container.GenericContainerFactoryProvider;
+import org.jd.gui.spi.ContainerFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class NestedArchiveFileSystemProviderTest {
+    private static final String CLASS_PATH = "a/Hello.class";
+    private static final String TEXT_PATH = "a/readme.txt";
+
+    // Only the container factories are used by the containers
+    private static final ContainerFactory CONTAINER_FACTORY = new GenericContainerFactoryProvider();
+    private static final API API = (API) Proxy.newProxyInstance(API.class.getClassLoader(), new Class<?>[] { API.class }, (proxy, method, args) -> {
+        if ("getContainerFactory".equals(method.getName())) {
+            return CONTAINER_FACTORY;
+        }
+        throw new UnsupportedOperationException(method.getName());
+    });
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testOpenNestedArchives() throws IOException {
+        ZipDirectory directory = new ZipDirectory(ByteBuffer.wrap(newOuterArchive()));
+
+        for (String name : new String[] { "lib/stored.jar", "lib/deflated.jar" }) {
+            try (NestedArchive archive = NestedArchive.open(directory, directory.indexOf(name));
+                 FileSystem fileSystem = FileSystems.newFileSystem(NestedArchiveFileSystemProvider.newArchivePath(archive.getBuffer(), URI.create("file:/test.jar!/" + name)), (ClassLoader) null)) {
+                assertArrayEquals(content(CLASS_PATH), Files.readAllBytes(fileSystem.getPath(CLASS_PATH)), name);
+                assertArrayEquals(content(TEXT_PATH), Files.readAllBytes(fileSystem.getPath(TEXT_PATH)), name);
+            }
+        }
+    }
+
+    @Test
+    public void testReadThroughGenericContainer() throws IOException {
+        File file = Files.write(tmpDir.resolve("test.jar"), newOuterArchive()).toFile();
+
+        try (FileSystem fileSystem = FileSystems.newFileSystem(file.toPath(), (ClassLoader) null)) {
+            GenericContainer container = new GenericContainer(API, new ArchiveEntry(file), fileSystem.getRootDirectories().iterator().next());
+
+            try {
+                Container.Entry lib = getChild(container.getRoot(), "lib");
+
+                for (String name : new String[] { "lib/stored.jar", "lib/deflated.jar" }) {
+                    Container.Entry nestedArchive = getChild(lib, name);
+                    Container.Entry classEntry = getChild(getChild(nestedArchive, "a"), CLASS_PATH);
+                    Container.Entry textEntry = getChild(getChild(nestedArchive, "a"), TEXT_PATH);
+
+                    assertArrayEquals(content(CLASS_PATH), read(classEntry), name);
+                    assertArrayEquals(content(TEXT_PATH), read(textEntry), name);
+                    assertEquals("file:" + file.toURI().getPath() + "!/" + name + "!/" + CLASS_PATH, classEntry.getUri().toString());
+                }
+            } finally {
+                container.close();
+            }
+        }
+    }
+
+    protected static Container.Entry getChild(Container.Entry parent, String path) {
+        Map<Container.EntryPath, Container.Entry> children = parent.getChildren();
+
+        assertNotNull(children, parent.getPath());
+
+        for (Container.Entry child : children.values()) {
+            if (child.getPath().equals(path)) {
+                return child;
+            }
+        }
+
+        throw new AssertionError(path + " not found in " + parent.getPath());
+    }
+
+    protected static byte[] read(Container.Entry entry) throws IOException {
+        try (InputStream in = entry.getInputStream()) {
+            assertNotNull(in, entry.getPath());
+            return in.readAllBytes();
+        }
+    }
+
+    protected static byte[] content(String path) {
+        return ("content of " + path + ' ').repeat(50).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return an archive holding the same archive, stored and deflated
+     */
+    protected static byte[] newOuterArchive() throws IOException {
+        byte[] nestedArchive = newArchive(CLASS_PATH, TEXT_PATH);
+        CRC32 crc = new CRC32();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        crc.update(nestedArchive);
+
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            ZipEntry stored = new ZipEntry("lib/stored.jar");
+
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(nestedArchive.length);
+            stored.setCompressedSize(nestedArchive.length);
+            stored.setCrc(crc.getValue());
+
+            out.putNextEntry(stored);
+            out.write(nestedArchive);
+            out.closeEntry();
+
+            out.putNextEntry(new ZipEntry("lib/deflated.jar"));
+            out.write(nestedArchive);
+            out.closeEntry();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    protected static byte[] newArchive(String... paths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (String path : paths) {
+                out.putNextEntry(new ZipEntry(path));
+                out.write(content(path));
+                out.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * File of the archive, like the parent entries of the containers made by the file loaders.
+     */
+    protected static class ArchiveEntry implements Container.Entry {
+        private final File file;
+
+        public ArchiveEntry(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Container getContainer() { return null; }
+        @Override
+        public Container.Entry getParent() { return null; }
+        @Override
+        public URI getUri() { return file.toURI(); }
+        @Override
+        public String getPath() { return file.getPath(); }
+        @Override
+        public boolean isDirectory() { return false; }
+        @Override
+        public long length() { return file.length(); }
+        @Override
+        public long compressedLength() { return length(); }
+        @Override
+        public InputStream getInputStream() { return null; }
+        @Override
+        public Map<Container.EntryPath, Container.Entry> getChildren() { return Collections.emptyMap(); }
+    }
+}
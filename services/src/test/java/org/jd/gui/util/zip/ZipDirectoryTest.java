@@ -0,0 +1,193 @@
+package org.jd.gui.util.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipDirectoryTest {
+    // Header of the jmod files, before the zip archive
+    private static final byte[] JMOD_HEADER = { 'J', 'M', 1, 0 };
+
+    @TempDir
+    Path tmpDir;
+
+    @Test
+    public void testArchive() throws IOException {
+        byte[] archive = newArchive(100);
+
+        assertSameEntries(archive, ByteBuffer.wrap(archive));
+    }
+
+    @Test
+    public void testPrefixedArchive() throws IOException {
+        byte[] archive = newArchive(100);
+        ByteBuffer prefixedArchive = ByteBuffer.allocate(JMOD_HEADER.length + archive.length);
+
+        prefixedArchive.put(JMOD_HEADER).put(archive).flip();
+
+        assertSameEntries(archive, prefixedArchive);
+    }
+
+    @Test
+    public void testZip64Archive() throws IOException {
+        // More entries than the end header can count
+        byte[] archive = newArchive(70_000);
+        ZipDirectory directory = new ZipDirectory(ByteBuffer.wrap(archive));
+
+        assertTrue(directory.size() > 0xFFFF);
+        assertSameEntries(archive, ByteBuffer.wrap(archive));
+    }
+
+    @Test
+    public void testClosedArchiveFile() throws IOException {
+        Path file = Files.write(tmpDir.resolve("closed.jar"), newArchive(10));
+        ZipDirectory directory = ZipDirectory.open(file);
+        int index = directory.indexOf("org/example/p1/Type1.class");
+
+        try (InputStream in = directory.getInputStream(index)) {
+            assertTrue(in.readAllBytes().length > 0);
+        }
+
+        directory.close();
+
+        // The file is released
+        assertThrows(ClosedChannelException.class, () -> directory.getInputStream(index));
+        Files.delete(file);
+    }
+
+    @Test
+    public void testInterruptedReader() throws Exception {
+        Path file = Files.write(tmpDir.resolve("interrupted.jar"), newArchive(10));
+
+        try (ZipDirectory directory = ZipDirectory.open(file)) {
+            int index = directory.indexOf("org/example/p1/Type1.class");
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                try {
+                    directory.getRawData(index);
+                } catch (IOException e) {
+                    failure.set(e);
+                }
+            });
+
+            reader.start();
+            reader.join();
+
+            assertInstanceOf(ClosedByInterruptException.class, failure.get());
+
+            // The channel closed by the interrupted reader is reopened for the others
+            assertTrue(directory.getRawData(index).remaining() > 0);
+        }
+    }
+
+    protected void assertSameEntries(byte[] archive, ByteBuffer buffer) throws IOException {
+        Path file = Files.write(tmpDir.resolve("test.jar"), archive);
+        byte[] bytes = new byte[buffer.remaining()];
+
+        buffer.duplicate().get(bytes);
+
+        // Archive held in a buffer
+        assertSameEntries(file, new ZipDirectory(buffer));
+
+        // Archive file
+        try (ZipDirectory directory = ZipDirectory.open(Files.write(tmpDir.resolve("test-file.jar"), bytes))) {
+            assertSameEntries(file, directory);
+        }
+    }
+
+    protected void assertSameEntries(Path file, ZipDirectory directory) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(zipFile.size(), directory.size());
+
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                int index = directory.indexOf(zipEntry.getName());
+
+                assertNotEquals(-1, index, zipEntry.getName());
+                assertEquals(zipEntry.getName(), directory.getName(index));
+                assertEquals(zipEntry.getMethod(), directory.getMethod(index));
+                assertEquals(zipEntry.getSize(), directory.getSize(index));
+                assertEquals(zipEntry.getCompressedSize(), directory.getCompressedSize(index));
+                assertEquals((int) zipEntry.getCrc(), directory.getCrc(index));
+
+                byte[] expected;
+
+                try (InputStream in = zipFile.getInputStream(zipEntry)) {
+                    expected = in.readAllBytes();
+                }
+
+                try (InputStream in = directory.getInputStream(index)) {
+                    assertArrayEquals(expected, in.readAllBytes(), zipEntry.getName());
+                }
+
+                if (zipEntry.getMethod() == ZipEntry.DEFLATED) {
+                    ByteBuffer inflated = directory.inflate(index, ByteBuffer.allocate((int) zipEntry.getSize()));
+                    byte[] bytes = new byte[inflated.remaining()];
+
+                    inflated.get(bytes);
+                    assertArrayEquals(expected, bytes, zipEntry.getName());
+                }
+            }
+        }
+
+        assertEquals(-1, directory.indexOf("missing.class"));
+    }
+
+    /**
+     * @return an archive of deflated and stored entries, with directories
+     */
+    protected static byte[] newArchive(int entryCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("META-INF/"));
+            out.closeEntry();
+
+            for (int i = 0; i < entryCount; i++) {
+                String name = "org/example/p" + (i % 10) + "/Type" + i + ".class";
+                byte[] data = ("data of " + name + ' ').repeat(1 + i % 7).getBytes(StandardCharsets.UTF_8);
+                ZipEntry zipEntry = new ZipEntry(name);
+
+                if (i % 3 == 0) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(data.length);
+                    zipEntry.setCompressedSize(data.length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+
+                out.putNextEntry(zipEntry);
+                out.write(data);
+                out.closeEntry();
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package org.jd.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class WeightedCacheTest {
+
+    @AfterEach
+    public void resetPreferences() {
+        // The preferences are applied to all the caches, created later too
+        WeightedCache.applyPreferences(Map.of());
+    }
+
+    @Test
+    public void testEviction() {
+        WeightedCache<String, List<String>> cache = new WeightedCache<>("WeightedCacheTest.testEviction", 5, List::size);
+
+        cache.put("a", List.of("a1", "a2"));
+        cache.put("b", List.of("b1", "b2"));
+        // Least recently used: "b"
+        assertEquals(List.of("a1", "a2"), cache.get("a"));
+
+        cache.put("c", List.of("c1", "c2"));
+
+        assertNull(cache.get("b"));
+        assertEquals(List.of("c1", "c2"), cache.get("c"));
+        assertEquals(4, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+
+        // Heavier than the cache
+        cache.put("d", List.of("d1", "d2", "d3", "d4", "d5", "d6"));
+
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        WeightedCache<String, String> cache = new WeightedCache<>("WeightedCacheTest.testComputeIfAbsent", 10);
+
+        assertNull(cache.computeIfAbsent("a", key -> null));
+        // Null values are cached
+        assertNull(cache.computeIfAbsent("a", key -> "computed again"));
+        assertEquals("b", cache.computeIfAbsent("b", key -> "b"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testApplyPreferences() {
+        WeightedCache<String, String> cache = new WeightedCache<>("WeightedCacheTest.testApplyPreferences", 10);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), "value");
+        }
+
+        WeightedCache.applyPreferences(Map.of("WeightedCacheTest.testApplyPreferences", "4"));
+
+        assertEquals(4, cache.getMaxWeight());
+        assertEquals(4, cache.getEntryCount());
+
+        // Applied to the caches created later
+        assertEquals(4, new WeightedCache<String, String>("WeightedCacheTest.testApplyPreferences", 10).getMaxWeight());
+
+        WeightedCache.applyPreferences(Map.of("WeightedCacheTest.testApplyPreferences", "x"));
+
+        assertEquals(10, cache.getMaxWeight());
+    }
+
+    @Test
+    public void testPreferenceUnit() {
+        WeightedCache<String, byte[]> cache = new WeightedCache<>("WeightedCacheTest.testPreferenceUnit", 2048, 1024, bytes -> bytes.length);
+
+        assertEquals(2048, cache.getMaxWeight());
+
+        WeightedCache.applyPreferences(Map.of("WeightedCacheTest.testPreferenceUnit", "1"));
+
+        assertEquals(1024, cache.getMaxWeight());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        WeightedCache<String, List<String>> cache = new WeightedCache<>("WeightedCacheTest.testRemoveIf", 10, List::size);
+
+        cache.put("a1", List.of("a"));
+        cache.put("a2", List.of("a", "a"));
+        cache.put("b1", List.of("b"));
+
+        cache.removeIf(key -> key.startsWith("a"));
+
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1, cache.getWeight());
+        assertEquals(List.of("b"), cache.get("b1"));
+    }
+}